@@ -1,5 +1,6 @@
 package io.sinistral.proteus;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -13,10 +14,18 @@ import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.name.Named;
 import com.typesafe.config.Config;
+import io.sinistral.proteus.annotations.Lazy;
 import io.sinistral.proteus.modules.ConfigModule;
 import io.sinistral.proteus.server.endpoints.EndpointInfo;
 import io.sinistral.proteus.server.handlers.HandlerGenerator;
+import io.sinistral.proteus.server.handlers.LazyRouteSupplier;
+import io.sinistral.proteus.server.handlers.MethodHandleHandlerGenerator;
+import io.sinistral.proteus.server.handlers.ProteusRoutingHandler;
+import io.sinistral.proteus.server.handlers.RouteSupplierCache;
+import io.sinistral.proteus.server.handlers.RouteSupplierCompiler;
+import io.sinistral.proteus.server.handlers.RouteSupplierPrecompiler;
 import io.sinistral.proteus.server.handlers.ServerDefaultHttpHandler;
+import io.sinistral.proteus.server.startup.StartupReport;
 import io.sinistral.proteus.services.BaseService;
 import io.sinistral.proteus.utilities.SecurityUtilities;
 import io.sinistral.proteus.utilities.TablePrinter;
@@ -29,8 +38,8 @@ import io.undertow.server.RoutingHandler;
 import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.server.session.SessionAttachmentHandler;
 import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
-import net.openhft.compiler.CachedCompiler;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +49,7 @@ import org.xnio.XnioWorker;
 import javax.ws.rs.core.MediaType;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketAddress;
 import java.net.URL;
@@ -51,8 +61,13 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
@@ -61,7 +76,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -77,8 +92,6 @@ public class ProteusApplication {
 
     private static Logger log = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(ProteusApplication.class.getCanonicalName());
 
-    private static final String TMP_DIRECTORY_NAME = "proteus_generated_classes";
-
     @Inject
     @Named("registeredControllers")
     public Set<Class<?>> registeredControllers;
@@ -117,36 +130,61 @@ public class ProteusApplication {
 
     public Duration startupDuration;
 
-    final Instant startTime = Instant.now();
+    protected RouteSupplierCache routeSupplierCache;
+
+    protected final List<LazyRouteSupplier> lazyRouteSuppliers = new CopyOnWriteArrayList<>();
+
+    protected final ExecutorService lazyHandlerExecutor = Executors.newSingleThreadExecutor(r -> {
+
+        Thread thread = new Thread(r, "proteus-lazy-handlers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    final StartupReport startupReport = new StartupReport();
+
+    final Instant startTime = startupReport.getStartTime();
 
     public ProteusApplication()
     {
 
-        injector = Guice.createInjector(new ConfigModule());
-        injector.injectMembers(this);
+        try (StartupReport.ActivePhase ignored = startupReport.begin("injector.create"))
+        {
+            injector = Guice.createInjector(new ConfigModule());
+            injector.injectMembers(this);
+        }
     }
 
     public ProteusApplication(String configFile)
     {
 
-        injector = Guice.createInjector(new ConfigModule(configFile));
-        injector.injectMembers(this);
+        try (StartupReport.ActivePhase ignored = startupReport.begin("injector.create"))
+        {
+            injector = Guice.createInjector(new ConfigModule(configFile));
+            injector.injectMembers(this);
+        }
 
     }
 
     public ProteusApplication(URL configURL)
     {
 
-        injector = Guice.createInjector(new ConfigModule(configURL));
-        injector.injectMembers(this);
+        try (StartupReport.ActivePhase ignored = startupReport.begin("injector.create"))
+        {
+            injector = Guice.createInjector(new ConfigModule(configURL));
+            injector.injectMembers(this);
+        }
 
     }
 
     public ProteusApplication(Module... modules)
     {
 
-        injector = Guice.createInjector(modules);
-        injector.injectMembers(this);
+        try (StartupReport.ActivePhase ignored = startupReport.begin("injector.create"))
+        {
+            injector = Guice.createInjector(modules);
+            injector.injectMembers(this);
+        }
 
     }
 
@@ -163,9 +201,12 @@ public class ProteusApplication {
 
         log.info("Installing modules: {}", registeredModules.stream().map(Class::getSimpleName).collect(Collectors.joining(",")));
 
-        Set<Module> modules = registeredModules.stream().map(mc -> injector.getInstance(mc)).collect(Collectors.toSet());
+        try (StartupReport.ActivePhase ignored = startupReport.begin("modules.install"))
+        {
+            Set<Module> modules = registeredModules.stream().map(mc -> injector.getInstance(mc)).collect(Collectors.toSet());
 
-        injector = injector.createChildInjector(modules);
+            injector = injector.createChildInjector(modules);
+        }
 
         if (rootHandlerClass == null && rootHandler == null)
         {
@@ -175,7 +216,12 @@ public class ProteusApplication {
 
         log.info("Installing services: {}", registeredServices.stream().map(Class::getSimpleName).collect(Collectors.joining(",")));
 
-        Set<BaseService> services = registeredServices.stream().map(sc -> injector.getInstance(sc)).collect(Collectors.toSet());
+        Set<BaseService> services;
+
+        try (StartupReport.ActivePhase ignored = startupReport.begin("services.create"))
+        {
+            services = registeredServices.stream().map(sc -> injector.getInstance(sc)).collect(Collectors.toSet());
+        }
 
         //injector = injector.createChildInjector(services);
 
@@ -196,6 +242,10 @@ public class ProteusApplication {
 
                 startupDuration = Duration.between(startTime, Instant.now());
 
+                serviceManager.startupTimes().forEach((service, millis) -> startupReport.record("service.startUp", service.getClass().getSimpleName(), TimeUnit.MILLISECONDS.toNanos(millis)));
+
+                startupReport.complete();
+
                 for (ListenerInfo info : undertow.getListenerInfo())
                 {
                     log.debug("listener info: " + info);
@@ -218,6 +268,8 @@ public class ProteusApplication {
 
                 startupDuration = Duration.between(startTime, Instant.now());
 
+                startupReport.complete();
+
                 for (ListenerInfo info : undertow.getListenerInfo())
                 {
                     log.debug("listener info: " + info);
@@ -259,11 +311,14 @@ public class ProteusApplication {
 
         buildServer();
 
-        undertow.start();
+        try (StartupReport.ActivePhase ignored = startupReport.begin("undertow.start"))
+        {
+            undertow.start();
+        }
 
         Duration timeout = config.getDuration("application.services.timeout");
 
-        try
+        try (StartupReport.ActivePhase ignored = startupReport.begin("services.start"))
         {
             serviceManager.startAsync().awaitHealthy(timeout);
         } catch (TimeoutException e)
@@ -276,6 +331,11 @@ public class ProteusApplication {
 
         this.running.set(true);
 
+        if (config.getBoolean("application.handlers.lazy.background"))
+        {
+            lazyRouteSuppliers.forEach(LazyRouteSupplier::initialize);
+        }
+
 //        serviceManager.startAsync();
 
     }
@@ -293,6 +353,8 @@ public class ProteusApplication {
 
         undertow.stop();
 
+        lazyHandlerExecutor.shutdownNow();
+
         serviceManager.stopAsync().awaitStopped(2, TimeUnit.SECONDS);
 
         this.running.set(false);
@@ -311,77 +373,94 @@ public class ProteusApplication {
 
         final Instant compilationStartTime = Instant.now();
 
-        ExecutorService handlerCompilationExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        if (routeSupplierCache == null && config.getBoolean("application.handlers.cache.enabled"))
+        {
+            try
+            {
+                routeSupplierCache = new RouteSupplierCache(Paths.get(config.getString("application.handlers.cache.path")), config.getInt("application.handlers.cache.maxEntries"));
 
-        CountDownLatch countDownLatch = new CountDownLatch(registeredControllers.size());
+            } catch (Exception e)
+            {
+                log.error("Failed to create route supplier cache, handlers will be compiled", e);
+            }
+        }
 
-        CopyOnWriteArrayList<Class<? extends Supplier<RoutingHandler>>> routerClasses = new CopyOnWriteArrayList<>();
+        final Set<String> lazyControllerNames = new HashSet<>(config.getStringList("application.handlers.lazy.controllers"));
 
-        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final List<Class<?>> eagerControllers = new ArrayList<>();
 
-        log.info("Compiling route handlers...");
+        final List<Class<?>> lazyControllers = new ArrayList<>();
 
         for (Class<?> controllerClass : registeredControllers)
         {
+            boolean isLazy = Optional.ofNullable(controllerClass.getAnnotation(Lazy.class)).map(Lazy::value).orElse(false) || lazyControllerNames.contains(controllerClass.getName());
 
-            handlerCompilationExecutor.submit(() -> {
+            (isLazy ? lazyControllers : eagerControllers).add(controllerClass);
+        }
 
-                try
-                {
+        log.info(config.getString("application.handlers.backend").equalsIgnoreCase("methodHandle") ? "Creating route handlers..." : "Compiling route handlers...");
 
-                    //  log.debug("Generating {}...", controllerClass);
+        final List<Supplier<RoutingHandler>> routeSuppliers = new ArrayList<>(createRouteSuppliers(eagerControllers));
 
-                    final File tempFile = getTemporaryDirectoryPath().toFile();
+        for (Class<?> controllerClass : lazyControllers)
+        {
+            try (StartupReport.ActivePhase ignored = startupReport.begin("handlers.placeholder", controllerClass.getName()))
+            {
+                HandlerGenerator generator = new HandlerGenerator(RouteSupplierPrecompiler.GENERATED_PACKAGE_NAME, controllerClass);
+
+                injector.injectMembers(generator);
 
-                    HandlerGenerator generator = new HandlerGenerator("io.sinistral.proteus.controllers.handlers", controllerClass);
+                List<EndpointInfo> endpoints = generator.generateEndpointInfo();
 
-                    injector.injectMembers(generator);
+                registeredEndpoints.addAll(endpoints);
 
-                    //   log.debug("Compiling {}...", controllerClass);
+                LazyRouteSupplier lazyRouteSupplier = new LazyRouteSupplier(controllerClass, endpoints, () -> {
 
-                    try (CachedCompiler cachedCompiler = new CachedCompiler(null, tempFile))
+                    List<Supplier<RoutingHandler>> suppliers = createRouteSuppliers(List.of(controllerClass));
+
+                    if (suppliers.isEmpty())
                     {
-                        final String source = generator.generateClassSource();
+                        throw new IllegalStateException("Failed to create handlers for " + controllerClass.getName());
+                    }
 
-                        Class<? extends Supplier<RoutingHandler>> routerClass = cachedCompiler.loadFromJava(generator.getCanonicalName(), source);
+                    return suppliers.get(0);
 
-                        lock.writeLock().lock();
+                }, lazyHandlerExecutor);
 
-                        routerClasses.add(routerClass);
+                lazyRouteSuppliers.add(lazyRouteSupplier);
 
-                        lock.writeLock().unlock();
-                    }
+                routeSuppliers.add(lazyRouteSupplier);
 
+                log.debug("Handlers for {} will be created on first request", controllerClass.getName());
+            }
+        }
 
+        log.debug("Compilation completed in {}", DurationFormatUtils.formatDurationHMS(Duration.between(compilationStartTime, Instant.now()).toMillis()));
 
-                } catch (Exception e)
+        try (StartupReport.ActivePhase ignored = startupReport.begin("routes.register"))
+        {
+            updateRoutes(r -> {
+
+                for (Supplier<RoutingHandler> routeSupplier : routeSuppliers)
                 {
-                    log.error("Exception creating handlers for {}", controllerClass.getName(), e);
+                    r.addAll(routeSupplier.get());
                 }
 
-                countDownLatch.countDown();
+                this.addDefaultRoutes(r);
             });
-
-        }
-
-        try
-        {
-            countDownLatch.await();
-        } catch (Exception e)
-        {
-            log.error("Failed waiting for handlers to generate", e);
         }
 
-        log.debug("Compilation completed in {}", DurationFormatUtils.formatDurationHMS(Duration.between(compilationStartTime, Instant.now()).toMillis()));
-
-        for (Class<? extends Supplier<RoutingHandler>> clazz : routerClasses)
+        if (router instanceof ProteusRoutingHandler)
         {
-            Supplier<RoutingHandler> generatedRouteSupplier = injector.getInstance(clazz);
-            router.addAll(generatedRouteSupplier.get());
+            try (StartupReport.ActivePhase ignored = startupReport.begin("routes.compile"))
+            {
+                if (((ProteusRoutingHandler) router).compile())
+                {
+                    log.debug("Compiled {} routes", ((ProteusRoutingHandler) router).getCompiledRouter().getRouteCount());
+                }
+            }
         }
 
-        this.addDefaultRoutes(router);
-
         log.info("Route handlers generated");
 
         HttpHandler handler;
@@ -425,6 +504,8 @@ public class ProteusApplication {
             httpPort = Integer.parseInt(System.getProperty("http.port"));
         }
 
+        final StartupReport.ActivePhase undertowBuildPhase = startupReport.begin("undertow.build");
+
         final int processorCount = Runtime.getRuntime().availableProcessors();
 
         Undertow.Builder undertowBuilder = Undertow.builder().addHttpListener(httpPort, config.getString("application.host"))
@@ -474,6 +555,194 @@ public class ProteusApplication {
 
         this.undertow = undertowBuilder.build();
 
+        undertowBuildPhase.close();
+    }
+
+    /**
+     * Create the route suppliers for a set of controllers, using precompiled or cached classes where possible and
+     * compiling the remaining controllers in a single batch
+     *
+     * @param controllers controller classes
+     * @return a route supplier for each controller whose handlers could be created
+     */
+    protected List<Supplier<RoutingHandler>> createRouteSuppliers(Collection<Class<?>> controllers)
+    {
+
+        if (controllers.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        ExecutorService handlerCompilationExecutor = Executors.newFixedThreadPool(Math.min(controllers.size(), Runtime.getRuntime().availableProcessors()));
+
+        CountDownLatch countDownLatch = new CountDownLatch(controllers.size());
+
+        CopyOnWriteArrayList<Supplier<RoutingHandler>> routeSuppliers = new CopyOnWriteArrayList<>();
+
+        final RouteSupplierCache cache = routeSupplierCache;
+
+        final boolean useMethodHandles = config.getString("application.handlers.backend").equalsIgnoreCase("methodHandle");
+
+        final Map<String, String> pendingSources = new LinkedHashMap<>();
+
+        final Map<String, Class<?>> pendingControllers = new HashMap<>();
+
+        final Map<String, String> pendingCacheKeys = new HashMap<>();
+
+        for (Class<?> controllerClass : controllers)
+        {
+
+            handlerCompilationExecutor.submit(() -> {
+
+                try
+                {
+
+                    if (useMethodHandles)
+                    {
+                        Supplier<RoutingHandler> routeSupplier;
+
+                        try (StartupReport.ActivePhase ignored = startupReport.begin("handlers.generate", controllerClass.getName()))
+                        {
+                            MethodHandleHandlerGenerator generator = new MethodHandleHandlerGenerator(RouteSupplierPrecompiler.GENERATED_PACKAGE_NAME, controllerClass);
+
+                            injector.injectMembers(generator);
+
+                            routeSupplier = generator.generateRouteSupplier();
+                        }
+
+                        routeSuppliers.add(routeSupplier);
+
+                        return;
+                    }
+
+                    HandlerGenerator generator = new HandlerGenerator(RouteSupplierPrecompiler.GENERATED_PACKAGE_NAME, controllerClass);
+
+                    final String source;
+
+                    try (StartupReport.ActivePhase ignored = startupReport.begin("handlers.generate", controllerClass.getName()))
+                    {
+                        injector.injectMembers(generator);
+
+                        source = generator.generateClassSource();
+                    }
+
+                    Class<? extends Supplier<RoutingHandler>> routerClass;
+
+                    String cacheKey = null;
+
+                    try (StartupReport.ActivePhase ignored = startupReport.begin("handlers.load", controllerClass.getName()))
+                    {
+                        routerClass = RouteSupplierPrecompiler.loadPrecompiled(controllerClass, generator.getCanonicalName(), source);
+
+                        if (routerClass != null)
+                        {
+                            log.debug("Using precompiled handlers for {}", controllerClass.getName());
+                        }
+                        else if (cache != null)
+                        {
+                            try
+                            {
+                                cacheKey = cache.key(controllerClass, source);
+
+                            } catch (IOException e)
+                            {
+                                log.warn("Handlers for {} will not be cached: {}", controllerClass.getName(), e.getMessage());
+                            }
+
+                            routerClass = cacheKey != null ? cache.load(cacheKey, generator.getCanonicalName(), controllerClass) : null;
+
+                            if (routerClass != null)
+                            {
+                                log.debug("Using cached handlers for {}", controllerClass.getName());
+                            }
+                        }
+                    }
+
+                    synchronized (pendingSources)
+                    {
+                        if (routerClass != null)
+                        {
+                            final Class<? extends Supplier<RoutingHandler>> routeSupplierClass = routerClass;
+
+                            routeSuppliers.add(() -> injector.getInstance(routeSupplierClass).get());
+                        }
+                        else
+                        {
+                            pendingSources.put(generator.getCanonicalName(), source);
+                            pendingControllers.put(generator.getCanonicalName(), controllerClass);
+
+                            if (cacheKey != null)
+                            {
+                                pendingCacheKeys.put(generator.getCanonicalName(), cacheKey);
+                            }
+                        }
+                    }
+
+                } catch (Throwable e)
+                {
+                    log.error("Exception creating handlers for {}", controllerClass.getName(), e);
+                } finally
+                {
+                    countDownLatch.countDown();
+                }
+            });
+
+        }
+
+        try
+        {
+            countDownLatch.await();
+        } catch (Exception e)
+        {
+            log.error("Failed waiting for handlers to generate", e);
+        }
+
+        handlerCompilationExecutor.shutdown();
+
+        if (!pendingSources.isEmpty())
+        {
+            try (StartupReport.ActivePhase ignored = startupReport.begin("handlers.compile", pendingSources.size() + " controllers"))
+            {
+                RouteSupplierCompiler.Result result = new RouteSupplierCompiler(handlerClassLoader()).compile(pendingSources);
+
+                result.getFailures().forEach((canonicalName, errors) -> log.error("Failed to compile handlers for {}:\n{}", pendingControllers.get(canonicalName).getName(), errors));
+
+                for (Map.Entry<String, Class<? extends Supplier<RoutingHandler>>> compiled : result.getClasses().entrySet())
+                {
+                    final String canonicalName = compiled.getKey();
+
+                    final Class<? extends Supplier<RoutingHandler>> routeSupplierClass = compiled.getValue();
+
+                    if (cache != null && pendingCacheKeys.containsKey(canonicalName))
+                    {
+                        cache.store(pendingCacheKeys.get(canonicalName), result.getClassFiles().get(canonicalName));
+                    }
+
+                    routeSuppliers.add(() -> injector.getInstance(routeSupplierClass).get());
+
+                    startupReport.record("handlers.compile.controller", pendingControllers.get(canonicalName).getName(), result.getCompilationNanos().getOrDefault(canonicalName, 0L));
+                }
+
+            } catch (Throwable e)
+            {
+                log.error("Exception compiling handlers for {}", pendingControllers.values().stream().map(Class::getName).collect(Collectors.joining(", ")), e);
+            }
+        }
+
+
+        return routeSuppliers;
+    }
+
+    /**
+     * @return the class loader compiled handlers delegate to, the context class loader if one is set, otherwise the one that
+     * loaded the application
+     */
+    protected ClassLoader handlerClassLoader()
+    {
+
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        return contextClassLoader != null ? contextClassLoader : getClass().getClassLoader();
     }
 
     /**
@@ -502,6 +771,120 @@ public class ProteusApplication {
         return this;
     }
 
+    /**
+     * Apply changes to the routes of the application, including while it is running
+     * <p>
+     * With a {@link ProteusRoutingHandler} all changes are compiled and published as one routing snapshot, requests already
+     * being routed complete with the snapshot they started with.
+     *
+     * @param changes changes to the router
+     * @return the application
+     */
+    public ProteusApplication updateRoutes(Consumer<RoutingHandler> changes)
+    {
+
+        if (router instanceof ProteusRoutingHandler)
+        {
+            ((ProteusRoutingHandler) router).update(changes);
+        }
+        else
+        {
+            synchronized (router)
+            {
+                changes.accept(router);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Create the handlers of a controller and add its routes to the running application
+     *
+     * @param controllerClass a controller that is not already part of the application
+     * @return the application
+     */
+    public ProteusApplication deployController(Class<?> controllerClass)
+    {
+
+        if (registeredControllers.contains(controllerClass))
+        {
+            throw new IllegalStateException(controllerClass.getName() + " is already deployed");
+        }
+
+        List<Supplier<RoutingHandler>> suppliers = createRouteSuppliers(List.of(controllerClass));
+
+        if (suppliers.isEmpty())
+        {
+            throw new IllegalStateException("Failed to create handlers for " + controllerClass.getName());
+        }
+
+        final RoutingHandler controllerRouter = suppliers.get(0).get();
+
+        updateRoutes(r -> r.addAll(controllerRouter));
+
+        registeredControllers.add(controllerClass);
+
+        log.info("Deployed {}", controllerClass.getName());
+
+        return this;
+    }
+
+    /**
+     * Remove the routes of a controller from the running application
+     *
+     * @param controllerClass a controller of the application
+     * @return the application
+     */
+    public ProteusApplication undeployController(Class<?> controllerClass)
+    {
+
+        HandlerGenerator generator = new HandlerGenerator(RouteSupplierPrecompiler.GENERATED_PACKAGE_NAME, controllerClass);
+
+        injector.injectMembers(generator);
+
+        final List<EndpointInfo> endpoints = generator.generateEndpointInfo();
+
+        updateRoutes(r -> {
+
+            for (EndpointInfo endpoint : endpoints)
+            {
+                r.remove(endpoint.getMethod(), endpoint.getPathTemplate());
+            }
+        });
+
+        registeredEndpoints.removeAll(endpoints);
+
+        registeredControllers.remove(controllerClass);
+
+        lazyRouteSuppliers.removeIf(s -> s.getControllerClass().equals(controllerClass));
+
+        log.info("Undeployed {}", controllerClass.getName());
+
+        return this;
+    }
+
+    /**
+     * Enable or disable an endpoint of the running application, requests to a disabled endpoint are handled as if it did not exist
+     *
+     * @param method       the endpoint's method
+     * @param pathTemplate the endpoint's path template
+     * @param enabled      whether the endpoint is enabled
+     * @return the application
+     */
+    public ProteusApplication setEndpointEnabled(HttpString method, String pathTemplate, boolean enabled)
+    {
+
+        if (!(router instanceof ProteusRoutingHandler))
+        {
+            throw new IllegalStateException("Endpoints can only be enabled or disabled when routing with a " + ProteusRoutingHandler.class.getSimpleName());
+        }
+
+        ((ProteusRoutingHandler) router).setEnabled(method, pathTemplate, enabled);
+
+        return this;
+    }
+
     /**
      * Add a module class to the application
      *
@@ -517,6 +900,9 @@ public class ProteusApplication {
 
     /**
      * Add utility routes the router
+     * <p>
+     * The routes are added one at a time, so call this from {@link #updateRoutes(Consumer)} once the router is compiled
+     * to publish them together.
      *
      * @param router
      */
@@ -551,6 +937,26 @@ public class ProteusApplication {
             }
         }
 
+        if (config.hasPath("health.startupReportPath"))
+        {
+            try
+            {
+                final String startupReportPath = config.getString("health.startupReportPath");
+
+                router.add(Methods.GET, startupReportPath, (final HttpServerExchange exchange) ->
+                {
+                    exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+                    exchange.getResponseSender().send(injector.getInstance(ObjectMapper.class).writeValueAsString(startupReport));
+                });
+
+                this.registeredEndpoints.add(EndpointInfo.builder().withConsumes("*/*").withProduces(MediaType.APPLICATION_JSON).withPathTemplate(startupReportPath).withControllerName("Internal").withMethod(Methods.GET).build());
+
+            } catch (Exception e)
+            {
+                log.error("Error adding startup report route.", e);
+            }
+        }
+
         if (config.hasPath("application.favicon"))
         {
             try
@@ -682,6 +1088,15 @@ public class ProteusApplication {
         return router;
     }
 
+    /**
+     * @return the timings of each startup phase
+     */
+    public StartupReport getStartupReport()
+    {
+
+        return startupReport;
+    }
+
     /**
      * @return a list of used ports
      */
@@ -765,27 +1180,11 @@ public class ProteusApplication {
 
         printer = new TablePrinter(tableHeaders, tableRows);
 
-        sb.append(printer.toString()).append("\nListening On: " + this.ports).append("\nApplication Startup Time: ").append(DurationFormatUtils.formatDurationHMS(this.startupDuration.toMillis())).append("\n");
-
-        log.info(sb.toString());
-    }
-
-    protected java.nio.file.Path getTemporaryDirectoryPath() throws Exception
-    {
-
-        String tmpDirLocation = System.getProperty("java.io.tmpdir");
+        sb.append(printer.toString()).append("\nStartup phases: \n").append(startupReport.toString());
 
-        java.nio.file.Path tmpPath = Paths.get(tmpDirLocation);
-
-        try
-        {
-            return Files.createDirectory(tmpPath.resolve(TMP_DIRECTORY_NAME));
-
-        } catch (Exception e)
-        {
-            return tmpPath;
-        }
+        sb.append("\nListening On: " + this.ports).append("\nApplication Startup Time: ").append(DurationFormatUtils.formatDurationHMS(this.startupDuration.toMillis())).append("\n");
 
+        log.info(sb.toString());
     }
 
 }
@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package io.sinistral.proteus.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Indicates that the handlers for this controller should be created on its first request instead of at startup
+ */
+@Retention(RUNTIME)
+@Target({TYPE})
+public @interface Lazy
+{
+    boolean value() default true;
+}
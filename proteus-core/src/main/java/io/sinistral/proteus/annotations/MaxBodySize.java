@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package io.sinistral.proteus.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Limits the size in bytes of the request body of this route, larger requests are rejected with 413 before their body is read
+ */
+@Retention(RUNTIME)
+@Target({TYPE, METHOD})
+public @interface MaxBodySize
+{
+    long value();
+}
@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package io.sinistral.proteus.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Indicates that the {@link java.util.concurrent.Flow.Publisher} returned by this route is sent as a stream of server-sent
+ * events, as is the publisher of a route that produces <code>text/event-stream</code>
+ */
+@Retention(RUNTIME)
+@Target({METHOD})
+public @interface SSE
+{
+
+}
@@ -9,8 +9,13 @@ import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
 import com.typesafe.config.Config;
 import io.sinistral.proteus.server.Extractors;
+import io.sinistral.proteus.server.ServerRequest;
 import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerSentEventResponse;
 import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.sinistral.proteus.server.handlers.JsonBodyHandler;
+import io.sinistral.proteus.server.handlers.MaxBodySizeHandler;
+import io.sinistral.proteus.server.handlers.ProteusRoutingHandler;
 import io.sinistral.proteus.services.BaseService;
 import io.sinistral.proteus.wrappers.JsonViewWrapper;
 import io.undertow.server.DefaultResponseListener;
@@ -21,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * @author jbauer
@@ -30,7 +36,7 @@ public class ApplicationModule extends AbstractModule
 {
     private static Logger log = LoggerFactory.getLogger(ApplicationModule.class.getCanonicalName());
 
-    protected Set<EndpointInfo> registeredEndpoints = new TreeSet<>();
+    protected Set<EndpointInfo> registeredEndpoints = new ConcurrentSkipListSet<>();
     protected Set<Class<?>> registeredControllers = new HashSet<>();
     protected Set<Class<? extends BaseService>> registeredServices = new HashSet<>();
     protected Map<String, HandlerWrapper> registeredHandlerWrappers = new HashMap<>();
@@ -94,8 +100,12 @@ public class ApplicationModule extends AbstractModule
         }
 
         this.requestStaticInjection(Extractors.class);
+        this.requestStaticInjection(ServerRequest.class);
         this.requestStaticInjection(ServerResponse.class);
         this.requestStaticInjection(JsonViewWrapper.class);
+        this.requestStaticInjection(JsonBodyHandler.class);
+        this.requestStaticInjection(MaxBodySizeHandler.class);
+        this.requestStaticInjection(ServerSentEventResponse.class);
 
      }
 
@@ -107,7 +117,22 @@ public class ApplicationModule extends AbstractModule
 
         this.bindMappers();
 
-        RoutingHandler router = new RoutingHandler();
+        RoutingHandler router;
+
+        try {
+
+            String className = config.getString("application.routingHandler");
+
+            Class<? extends RoutingHandler> clazz = (Class<? extends RoutingHandler>) Class.forName(className);
+
+            router = clazz.getDeclaredConstructor().newInstance();
+
+        } catch (Exception e) {
+
+            log.error(e.getMessage(), e);
+
+            router = new ProteusRoutingHandler();
+        }
 
         try {
 
@@ -792,6 +792,7 @@ public class MediaType
     public static final MediaType APPLICATION_X_MS_WMZ = create("application/x-ms-wmz", "wmz");
     public static final MediaType APPLICATION_X_MSWRITE = create("application/x-mswrite", "wri");
     public static final MediaType APPLICATION_X_MS_XBAP = create("application/x-ms-xbap", "xbap");
+    public static final MediaType APPLICATION_X_NDJSON = create("application/x-ndjson", "ndjson");
     public static final MediaType APPLICATION_X_NETCDF = create("application/x-netcdf", "nc", "cdf");
     public static final MediaType APPLICATION_X_NS_PROXY_AUTOCONFIG = create("application/x-ns-proxy-autoconfig",
             "pac", "DAT");
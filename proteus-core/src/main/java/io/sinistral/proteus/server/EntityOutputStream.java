@@ -0,0 +1,286 @@
+package io.sinistral.proteus.server;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.io.UndertowOutputStream;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+import org.xnio.XnioIoThread;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes response entities straight into the pooled buffers of the connection instead of an intermediate array.
+ * <p>
+ * Outside of IO threads the entity is written through the response output stream, starting a blocking exchange if
+ * needed. The stream sends each pooled buffer to the client as soon as it is full, so large entities start streaming
+ * immediately and hold a single buffer.
+ * <p>
+ * An IO thread can not wait for the channel to drain, so there the entity is serialized into a chain of at most
+ * {@value #MAX_BUFFERS} pooled buffers that is written by the non-blocking sender with one gathering write and released
+ * when the write completes. An entity that does not fit is discarded and serialized again on a worker thread through
+ * the output stream, so the memory held for any entity is bounded and only the first buffers of a large entity are
+ * serialized twice.
+ * <p>
+ * If serialization fails before anything was sent the buffered output is discarded and the failure is reported as
+ * usual, if part of a streamed entity was already sent the connection is closed so the client can not mistake the
+ * truncated entity for a complete one.
+ */
+public class EntityOutputStream extends OutputStream
+{
+
+    private static final Logger log = LoggerFactory.getLogger(EntityOutputStream.class.getName());
+
+    /**
+     * Pooled buffers an entity may be serialized into on an IO thread
+     */
+    static final int MAX_BUFFERS = 4;
+
+    private final HttpServerExchange exchange;
+
+    private final OutputStream blockingStream;
+
+    private final List<PooledByteBuffer> buffers;
+
+    private ByteBuffer current;
+
+    private boolean overflowed;
+
+    private EntityOutputStream(HttpServerExchange exchange)
+    {
+
+        this.exchange = exchange;
+
+        if (!(Thread.currentThread() instanceof XnioIoThread))
+        {
+            if (!exchange.isBlocking())
+            {
+                exchange.startBlocking();
+            }
+
+            this.blockingStream = exchange.getOutputStream();
+            this.buffers = null;
+        }
+        else
+        {
+            this.blockingStream = null;
+            this.buffers = new ArrayList<>(4);
+        }
+    }
+
+    /**
+     * Serialize an entity as the response body and end the exchange once it has been sent.
+     *
+     * @param exchange the exchange to respond to
+     * @param writer   the writer to serialize the entity with
+     * @param entity   the entity
+     * @throws IOException if the entity could not be serialized
+     */
+    public static void write(HttpServerExchange exchange, ObjectWriter writer, Object entity) throws IOException
+    {
+
+        final EntityOutputStream outputStream = new EntityOutputStream(exchange);
+
+        try
+        {
+            writer.writeValue(outputStream, entity);
+
+        } catch (IOException | RuntimeException e)
+        {
+            outputStream.abort();
+
+            // serializers may wrap the overflow, so it is recognized by the state of the stream
+            if (outputStream.overflowed)
+            {
+                exchange.dispatch(exchange.getConnection().getWorker(), () -> writeBlocking(exchange, writer, entity));
+                return;
+            }
+
+            throw e;
+        }
+
+        outputStream.send();
+    }
+
+    /**
+     * Serialize an entity that did not fit into the buffers of an IO thread again on a worker thread
+     */
+    private static void writeBlocking(HttpServerExchange exchange, ObjectWriter writer, Object entity)
+    {
+
+        final EntityOutputStream outputStream = new EntityOutputStream(exchange);
+
+        try
+        {
+            writer.writeValue(outputStream, entity);
+
+            outputStream.send();
+
+        } catch (IOException | RuntimeException e)
+        {
+            log.error("Failed to write entity {}", entity, e);
+
+            outputStream.abort();
+
+            if (!exchange.isResponseStarted())
+            {
+                exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        exchange.endExchange();
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+
+        if (blockingStream != null)
+        {
+            blockingStream.write(b);
+            return;
+        }
+
+        buffer().put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+
+        if (blockingStream != null)
+        {
+            blockingStream.write(b, off, len);
+            return;
+        }
+
+        while (len > 0)
+        {
+            final ByteBuffer buffer = buffer();
+
+            final int count = Math.min(len, buffer.remaining());
+
+            buffer.put(b, off, count);
+
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Serializers close their target when they are done or fail, the body is only completed by {@link #send()}
+     */
+    @Override
+    public void close()
+    {
+
+    }
+
+    private ByteBuffer buffer()
+    {
+
+        if (current == null || !current.hasRemaining())
+        {
+            if (buffers.size() == MAX_BUFFERS)
+            {
+                overflowed = true;
+
+                throw new IllegalStateException("The entity does not fit into " + MAX_BUFFERS + " buffers");
+            }
+
+            final ByteBufferPool pool = exchange.getConnection().getByteBufferPool();
+
+            final PooledByteBuffer pooled = pool.allocate();
+
+            buffers.add(pooled);
+
+            current = pooled.getBuffer();
+
+            current.clear();
+        }
+
+        return current;
+    }
+
+    private void send() throws IOException
+    {
+
+        if (blockingStream != null)
+        {
+            blockingStream.close();
+            return;
+        }
+
+        final ByteBuffer[] body = new ByteBuffer[buffers.size()];
+
+        long length = 0;
+
+        for (int i = 0; i < body.length; i++)
+        {
+            body[i] = buffers.get(i).getBuffer().flip();
+
+            length += body[i].remaining();
+        }
+
+        exchange.setResponseContentLength(length);
+
+        exchange.getResponseSender().send(body, new IoCallback()
+        {
+            @Override
+            public void onComplete(HttpServerExchange exchange, Sender sender)
+            {
+
+                release();
+
+                IoCallback.END_EXCHANGE.onComplete(exchange, sender);
+            }
+
+            @Override
+            public void onException(HttpServerExchange exchange, Sender sender, IOException exception)
+            {
+
+                release();
+
+                IoCallback.END_EXCHANGE.onException(exchange, sender, exception);
+            }
+        });
+    }
+
+    private void abort()
+    {
+
+        if (blockingStream == null)
+        {
+            release();
+        }
+        else if (exchange.isResponseStarted())
+        {
+            IoUtils.safeClose(exchange.getConnection());
+        }
+        else if (blockingStream instanceof UndertowOutputStream)
+        {
+            ((UndertowOutputStream) blockingStream).resetBuffer();
+        }
+    }
+
+    private void release()
+    {
+
+        buffers.forEach(PooledByteBuffer::close);
+
+        buffers.clear();
+
+        current = null;
+    }
+
+}
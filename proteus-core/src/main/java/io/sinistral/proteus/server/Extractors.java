@@ -3,14 +3,17 @@
  */
 package io.sinistral.proteus.server;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.google.inject.Inject;
 import io.sinistral.proteus.server.predicates.ServerPredicates;
-import io.sinistral.proteus.utilities.DataUtilities;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.form.FormData;
 import io.undertow.server.handlers.form.FormDataParser;
@@ -20,14 +23,17 @@ import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.channels.BlockingReadableByteChannel;
+import org.xnio.channels.StreamSourceChannel;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.OffsetDateTime;
@@ -37,11 +43,13 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -66,25 +74,28 @@ public class Extractors {
     @Inject
     private static ObjectMapper OBJECT_MAPPER;
 
-    private static JsonNode parseJson(byte[] bytes)
+    @Inject
+    private static UploadStorage UPLOAD_STORAGE;
+
+    private static <T> T parseTypedJson(final Class<T> type, final ByteBuffer buffer)
     {
 
-        try
+        try (JsonParser parser = bodyParser(OBJECT_MAPPER, buffer))
         {
-            return OBJECT_MAPPER.readTree(bytes);
+            return OBJECT_MAPPER.readValue(parser, type);
         } catch (Exception e)
         {
-            log.error("Failed to parse JSON", e);
+            log.error("Failed to parse JSON for type {}", type, e);
             return null;
         }
     }
 
-    private static <T> T parseTypedJson(final Class<T> type, byte[] bytes)
+    private static <T> T parseTypedJson(final TypeReference<T> type, final ByteBuffer buffer)
     {
 
-        try
+        try (JsonParser parser = bodyParser(OBJECT_MAPPER, buffer))
         {
-            return OBJECT_MAPPER.readValue(bytes, type);
+            return OBJECT_MAPPER.readValue(parser, javaType(type));
         } catch (Exception e)
         {
             log.error("Failed to parse JSON for type {}", type, e);
@@ -92,58 +103,119 @@ public class Extractors {
         }
     }
 
-    private static <T> T parseTypedJson(final TypeReference<T> type, byte[] bytes)
+    private static JavaType javaType(final TypeReference<?> type)
     {
 
-        try
+        final Type _rawType = type.getType();
+
+        JavaType _javaType = JAVA_TYPE_MAP.get(_rawType);
+
+        if (_javaType == null)
         {
-            final Type _rawType = type.getType();
+            _javaType = OBJECT_MAPPER.getTypeFactory().constructType(_rawType);
+            JAVA_TYPE_MAP.put(_rawType, _javaType);
+        }
 
-            JavaType _javaType = JAVA_TYPE_MAP.get(_rawType);
+        return _javaType;
+    }
 
-            if (_javaType == null)
-            {
-                _javaType = OBJECT_MAPPER.getTypeFactory().constructType(_rawType);
-                JAVA_TYPE_MAP.put(_rawType, _javaType);
-            }
+    /**
+     * @return true if the request body was received, either as tokens or as a buffer
+     */
+    private static boolean hasBody(final HttpServerExchange exchange)
+    {
+
+        return exchange.getAttachment(ServerRequest.JSON_TOKENS_KEY) != null || exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY) != null;
+    }
+
+    /**
+     * @return a parser over the JSON request body, from the tokens parsed while it was received or from its buffer
+     */
+    private static JsonParser jsonBody(final HttpServerExchange exchange) throws IOException
+    {
+
+        final TokenBuffer tokens = exchange.getAttachment(ServerRequest.JSON_TOKENS_KEY);
+
+        if (tokens != null)
+        {
+            return tokens.asParser(OBJECT_MAPPER);
+        }
+
+        return bodyParser(OBJECT_MAPPER, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY));
+    }
+
+    /**
+     * Heap buffers are parsed in place, other buffers, e.g. read-only views, through a stream over a duplicate
+     */
+    private static JsonParser bodyParser(final ObjectMapper mapper, final ByteBuffer buffer) throws IOException
+    {
+
+        if (buffer.hasArray())
+        {
+            return mapper.getFactory().createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        return mapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    private static JsonNode parseJson(final HttpServerExchange exchange)
+    {
 
-            return OBJECT_MAPPER.readValue(bytes, _javaType);
+        try (JsonParser parser = jsonBody(exchange))
+        {
+            return OBJECT_MAPPER.readTree(parser);
         } catch (Exception e)
         {
-            log.error("Failed to parse JSON for type {}", type, e);
+            log.error("Failed to parse JSON", e);
             return null;
         }
     }
 
-    private static <T> T parseTypedXML(final Class<T> type, byte[] bytes)
+    private static <T> T parseTypedJson(final Class<T> type, final HttpServerExchange exchange)
     {
 
-        try
+        try (JsonParser parser = jsonBody(exchange))
         {
-            return XML_MAPPER.readValue(bytes, type);
+            return OBJECT_MAPPER.readValue(parser, type);
         } catch (Exception e)
         {
-            log.error("Failed to parse XML for type {}", type, e);
+            log.error("Failed to parse JSON for type {}", type, e);
             return null;
         }
     }
 
-    private static <T> T parseTypedXML(final TypeReference<T> type, byte[] bytes)
+    private static <T> T parseTypedJson(final TypeReference<T> type, final HttpServerExchange exchange)
     {
 
-        try
+        try (JsonParser parser = jsonBody(exchange))
+        {
+            return OBJECT_MAPPER.readValue(parser, javaType(type));
+        } catch (Exception e)
         {
-            final Type _rawType = type.getType();
+            log.error("Failed to parse JSON for type {}", type, e);
+            return null;
+        }
+    }
 
-            JavaType _javaType = JAVA_TYPE_MAP.get(_rawType);
+    private static <T> T parseTypedJson(final ObjectReader reader, final HttpServerExchange exchange)
+    {
 
-            if (_javaType == null)
-            {
-                _javaType = OBJECT_MAPPER.getTypeFactory().constructType(_rawType);
-                JAVA_TYPE_MAP.put(_rawType, _javaType);
-            }
+        try (JsonParser parser = jsonBody(exchange))
+        {
+            return reader.readValue(parser);
+        } catch (Exception e)
+        {
+            log.error("Failed to parse JSON for type {}", reader.getValueType(), e);
+            return null;
+        }
+    }
+
+    private static <T> T parseTypedXML(final Class<T> type, final HttpServerExchange exchange)
+    {
 
-            return XML_MAPPER.readValue(bytes, _javaType);
+        try (JsonParser parser = bodyParser(XML_MAPPER, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)))
+        {
+            return XML_MAPPER.readValue(parser, type);
         } catch (Exception e)
         {
             log.error("Failed to parse XML for type {}", type, e);
@@ -151,95 +223,88 @@ public class Extractors {
         }
     }
 
-    private static Path formValueFileItemPath(FormData.FileItem fileItem) {
+    private static <T> T parseTypedXML(final TypeReference<T> type, final HttpServerExchange exchange)
+    {
 
-        if (fileItem.isInMemory())
+        try (JsonParser parser = bodyParser(XML_MAPPER, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)))
         {
-            try
-            {
-                Path path = Files.createTempFile("proteus", "upload");
+            return XML_MAPPER.readValue(parser, javaType(type));
+        } catch (Exception e)
+        {
+            log.error("Failed to parse XML for type {}", type, e);
+            return null;
+        }
+    }
 
-                path.toFile().deleteOnExit();
+    private static <T> T parseTypedXML(final Class<T> type, final ByteBuffer buffer)
+    {
 
-                DataUtilities.writeStreamToPath(fileItem.getInputStream(), path);
+        try (JsonParser parser = bodyParser(XML_MAPPER, buffer))
+        {
+            return XML_MAPPER.readValue(parser, type);
+        } catch (Exception e)
+        {
+            log.error("Failed to parse XML for type {}", type, e);
+            return null;
+        }
+    }
 
-                return path;
+    private static <T> T parseTypedXML(final TypeReference<T> type, final ByteBuffer buffer)
+    {
 
-            } catch (Exception e)
-            {
-                log.error("Failed to create temporary file for form item", e);
-                return null;
-            }
+        try (JsonParser parser = bodyParser(XML_MAPPER, buffer))
+        {
+            return XML_MAPPER.readValue(parser, javaType(type));
+        } catch (Exception e)
+        {
+            log.error("Failed to parse XML for type {}", type, e);
+            return null;
         }
-        else
+    }
+
+    private static Path formValueFileItemPath(final HttpServerExchange exchange, final FormData.FileItem fileItem) {
+
+        try
+        {
+            return UPLOAD_STORAGE.path(exchange, fileItem);
+
+        } catch (Exception e)
         {
-            return fileItem.getFile();
+            log.error("Failed to create file for form item", e);
+            return null;
         }
     }
 
     private static java.util.Optional<Path> formValueFilePath(final HttpServerExchange exchange, final String name) {
 
-        return formValueFileItem(exchange, name).map(Extractors::formValueFileItemPath);
+        return formValueFileItem(exchange, name).map(item -> formValueFileItemPath(exchange, item));
 
     }
 
     private static java.util.Optional<Stream<Path>> formValueFilePaths(final HttpServerExchange exchange, final String name) {
 
-        return formValueFileItems(exchange, name).map(items -> items.map(Extractors::formValueFileItemPath));
+        return formValueFileItems(exchange, name).map(items -> items.map(item -> formValueFileItemPath(exchange, item)));
 
     }
 
     private static java.util.Optional<Map<String, Path>> formValuePathMap(final HttpServerExchange exchange, final String name) {
 
         return java.util.Optional.ofNullable(exchange.getAttachment(FormDataParser.FORM_DATA).get(name))
-                                 .map(deque -> deque.stream().filter(fv -> fv.getFileItem() != null).collect(Collectors.toMap(FormData.FormValue::getFileName, fv -> formValueFileItemPath(fv.getFileItem()))));
+                                 .map(deque -> deque.stream().filter(fv -> fv.getFileItem() != null).collect(Collectors.toMap(FormData.FormValue::getFileName, fv -> formValueFileItemPath(exchange, fv.getFileItem()))));
 
     }
 
     private static java.util.Optional<Map<String, File>> formValueFileMap(final HttpServerExchange exchange, final String name) {
 
         return java.util.Optional.ofNullable(exchange.getAttachment(FormDataParser.FORM_DATA).get(name))
-                                 .map(deque -> deque.stream().filter(fv -> fv.getFileItem() != null).collect(Collectors.toMap(FormData.FormValue::getFileName, fv -> formValueFileItemPath(fv.getFileItem()).toFile())));
+                                 .map(deque -> deque.stream().filter(fv -> fv.getFileItem() != null).collect(Collectors.toMap(FormData.FormValue::getFileName, fv -> formValueFileItemPath(exchange, fv.getFileItem()).toFile())));
 
     }
 
     private static java.util.Optional<ByteBuffer> formValueBuffer(final HttpServerExchange exchange, final String name)
     {
 
-      FormData formData =  exchange.getAttachment(FormDataParser.FORM_DATA);
-
-      //  
-
-        Iterator<String> itr = formData.iterator();
-
-        while(itr.hasNext())
-        {
-            String s = itr.next();
-
-           // 
-
-           Deque<FormData.FormValue> deque = formData.get(s);
-
-           var values = deque.stream().map(v -> {
-
-
-               if(v.isFileItem())
-               {
-                   return Map.of("headers",v.getHeaders(),"fileItem",v.getFileItem(),"fileName",v.getFileName());
-               }
-               else
-
-               {
-                   return Map.of("headers",v.getHeaders(),"value",v.getValue());
-               }
-
-
-           }).collect(Collectors.toList());
-
-        //   
-
-        }
-
+        final FormData formData = exchange.getAttachment(FormDataParser.FORM_DATA);
 
         return java.util.Optional.ofNullable(formData.get(name)).map(Deque::getFirst).map(fi -> {
 
@@ -248,15 +313,7 @@ public class Extractors {
 
                 if (fi.isFileItem())
                 {
-                    FormData.FileItem fileItem = fi.getFileItem();
-
-                  log.trace("fileItem: {} {} ",fileItem,fileItem.getFile());
-
-                    if(fileItem.isInMemory())
-                    {
-                        log.trace("fileItem: {} is in memory {}", fileItem, fileItem.getFileSize());
-                    }
-                    return DataUtilities.fileItemToBuffer(fileItem);
+                    return UPLOAD_STORAGE.buffer(fi.getFileItem());
                 }
 
             } catch (Exception e)
@@ -299,9 +356,7 @@ public class Extractors {
             {
                 try
                 {
-                    ByteBuffer byteBuffer = DataUtilities.fileItemToBuffer(formValue.getFileItem());
-
-                    return parseTypedXML(type, byteBuffer.array());
+                    return parseTypedXML(type, UPLOAD_STORAGE.buffer(formValue.getFileItem()));
 
                 } catch (Exception e)
                 {
@@ -313,7 +368,7 @@ public class Extractors {
             {
                 try
                 {
-                    return parseTypedXML(type, formValue.getValue().getBytes());
+                    return parseTypedXML(type, ByteBuffer.wrap(formValue.getValue().getBytes()));
                 } catch (Exception e)
                 {
                     log.error("Failed to parse XML for {}", name, e);
@@ -327,9 +382,7 @@ public class Extractors {
             {
                 try
                 {
-                    ByteBuffer byteBuffer = DataUtilities.fileItemToBuffer(formValue.getFileItem());
-
-                    return parseTypedJson(type, byteBuffer.array());
+                    return parseTypedJson(type, UPLOAD_STORAGE.buffer(formValue.getFileItem()));
 
                 } catch (Exception e)
                 {
@@ -339,7 +392,7 @@ public class Extractors {
             }
             else
             {
-                return parseTypedJson(type, formValue.getValue().getBytes());
+                return parseTypedJson(type, ByteBuffer.wrap(formValue.getValue().getBytes()));
             }
         }
         else
@@ -358,9 +411,7 @@ public class Extractors {
             {
                 try
                 {
-                    ByteBuffer byteBuffer = DataUtilities.fileItemToBuffer(formValue.getFileItem());
-
-                    return parseTypedXML(type, byteBuffer.array());
+                    return parseTypedXML(type, UPLOAD_STORAGE.buffer(formValue.getFileItem()));
 
                 } catch (Exception e)
                 {
@@ -372,7 +423,7 @@ public class Extractors {
             {
                 try
                 {
-                    return parseTypedXML(type, formValue.getValue().getBytes());
+                    return parseTypedXML(type, ByteBuffer.wrap(formValue.getValue().getBytes()));
                 } catch (Exception e)
                 {
                     log.error("Failed to parse XML for {}", name, e);
@@ -386,9 +437,7 @@ public class Extractors {
             {
                 try
                 {
-                    ByteBuffer byteBuffer = DataUtilities.fileItemToBuffer(formValue.getFileItem());
-
-                    return parseTypedJson(type, byteBuffer.array());
+                    return parseTypedJson(type, UPLOAD_STORAGE.buffer(formValue.getFileItem()));
 
                 } catch (Exception e)
                 {
@@ -398,7 +447,7 @@ public class Extractors {
             }
             else
             {
-                return parseTypedJson(type, formValue.getValue().getBytes());
+                return parseTypedJson(type, ByteBuffer.wrap(formValue.getValue().getBytes()));
             }
         }
         else
@@ -413,7 +462,16 @@ public class Extractors {
         public static String string(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
         {
 
-            return java.util.Optional.ofNullable(exchange.getRequestHeaders().get(name)).map(HeaderValues::getFirst).orElseThrow(() -> new IllegalArgumentException("Invalid parameter " + name));
+            final HeaderValues values = exchange.getRequestHeaders().get(name);
+
+            final String value = values != null ? values.getFirst() : null;
+
+            if (value == null)
+            {
+                throw new IllegalArgumentException("Invalid parameter " + name);
+            }
+
+            return value;
         }
 
         public static class Optional {
@@ -421,19 +479,102 @@ public class Extractors {
             public static java.util.Optional<String> string(final HttpServerExchange exchange, final String name)
             {
 
-                return java.util.Optional.ofNullable(exchange.getRequestHeaders().get(name)).map(HeaderValues::getFirst);
+                final HeaderValues values = exchange.getRequestHeaders().get(name);
+
+                return values != null ? java.util.Optional.ofNullable(values.getFirst()) : java.util.Optional.empty();
+            }
+
+            public static <T> java.util.Optional<T> extractWithFunction(final HttpServerExchange exchange, final String name, Function<String, T> function)
+            {
+
+                final HeaderValues values = exchange.getRequestHeaders().get(name);
+
+                final String value = values != null ? values.getFirst() : null;
+
+                return value != null ? java.util.Optional.ofNullable(function.apply(value)) : java.util.Optional.empty();
             }
 
         }
 
     }
 
+    /**
+     * Extractors for primitive parameters that parse the first query or path parameter value without boxing
+     */
+    public static class Primitive {
+
+        public static long longValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Long.parseLong(string(exchange, name));
+        }
+
+        public static int intValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Integer.parseInt(string(exchange, name));
+        }
+
+        public static short shortValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Short.parseShort(string(exchange, name));
+        }
+
+        public static float floatValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Float.parseFloat(string(exchange, name));
+        }
+
+        public static double doubleValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Double.parseDouble(string(exchange, name));
+        }
+
+        public static boolean booleanValue(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+        {
+
+            return Boolean.parseBoolean(string(exchange, name));
+        }
+
+    }
+
     public static class Optional {
 
         public static <T> java.util.Optional<T> extractWithFunction(final HttpServerExchange exchange, final String name, Function<String, T> function)
         {
 
-            return string(exchange, name).map(function);
+            final String value = first(exchange, name);
+
+            return value != null ? java.util.Optional.ofNullable(function.apply(value)) : java.util.Optional.empty();
+        }
+
+        /**
+         * Converts every value of a query parameter without creating an intermediate stream
+         *
+         * @return the converted values or empty if the parameter is absent
+         */
+        public static <T> java.util.Optional<List<T>> queryList(final HttpServerExchange exchange, final String name, Function<String, T> function)
+        {
+
+            final Deque<String> values = exchange.getQueryParameters().get(name);
+
+            return values != null ? java.util.Optional.of(convertList(values, function)) : java.util.Optional.empty();
+        }
+
+        /**
+         * Converts every value of a query parameter without creating an intermediate stream
+         *
+         * @return the converted values or empty if the parameter is absent
+         */
+        public static <T> java.util.Optional<Set<T>> querySet(final HttpServerExchange exchange, final String name, Function<String, T> function)
+        {
+
+            final Deque<String> values = exchange.getQueryParameters().get(name);
+
+            return values != null ? java.util.Optional.of(convertSet(values, function)) : java.util.Optional.empty();
         }
 
         public static java.util.Optional<JsonNode> namedJsonNode(final HttpServerExchange exchange)
@@ -474,6 +615,28 @@ public class Extractors {
             }
         }
 
+        public static <T> java.util.Optional<T> model(final HttpServerExchange exchange, final TypeReference<T> type, final ObjectReader reader)
+        {
+
+            if (ServerPredicates.XML_PREDICATE.resolve(exchange))
+            {
+                return xmlModel(exchange, type);
+            }
+
+            return hasBody(exchange) ? java.util.Optional.ofNullable(parseTypedJson(reader, exchange)) : java.util.Optional.empty();
+        }
+
+        public static <T> java.util.Optional<T> model(final HttpServerExchange exchange, final Class<T> type, final ObjectReader reader)
+        {
+
+            if (ServerPredicates.XML_PREDICATE.resolve(exchange))
+            {
+                return xmlModel(exchange, type);
+            }
+
+            return hasBody(exchange) ? java.util.Optional.ofNullable(parseTypedJson(reader, exchange)) : java.util.Optional.empty();
+        }
+
         public static <T> java.util.Optional<T> namedModel(final HttpServerExchange exchange, final Class<T> type, final String name)
         {
 
@@ -490,93 +653,93 @@ public class Extractors {
         public static <T> java.util.Optional<T> jsonModel(final HttpServerExchange exchange, final TypeReference<T> type)
         {
 
-            return java.util.Optional.ofNullable(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)).map(ByteBuffer::array).map(b -> parseTypedJson(type, b));
+            return hasBody(exchange) ? java.util.Optional.ofNullable(parseTypedJson(type, exchange)) : java.util.Optional.empty();
         }
 
         public static <T> java.util.Optional<T> jsonModel(final HttpServerExchange exchange, final Class<T> type)
         {
 
-            return java.util.Optional.ofNullable(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)).map(ByteBuffer::array).map(b -> parseTypedJson(type, b));
+            return hasBody(exchange) ? java.util.Optional.ofNullable(parseTypedJson(type, exchange)) : java.util.Optional.empty();
         }
 
         public static <T> java.util.Optional<T> xmlModel(final HttpServerExchange exchange, final TypeReference<T> type)
         {
 
-            return java.util.Optional.ofNullable(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)).map(ByteBuffer::array).map(b -> parseTypedXML(type, b));
+            return exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY) != null ? java.util.Optional.ofNullable(parseTypedXML(type, exchange)) : java.util.Optional.empty();
         }
 
         public static <T> java.util.Optional<T> xmlModel(final HttpServerExchange exchange, final Class<T> type)
         {
 
-            return java.util.Optional.ofNullable(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY)).map(ByteBuffer::array).map(b -> parseTypedXML(type, b));
+            return exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY) != null ? java.util.Optional.ofNullable(parseTypedXML(type, exchange)) : java.util.Optional.empty();
         }
 
         public static java.util.Optional<Date> date(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(OffsetDateTime::parse).map(OffsetDateTime::toInstant).map(Date::from);
+            return extractWithFunction(exchange, name, v -> Date.from(OffsetDateTime.parse(v).toInstant()));
 
         }
 
         public static java.util.Optional<OffsetDateTime> offsetDateTime(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(OffsetDateTime::parse);
+            return extractWithFunction(exchange, name, OffsetDateTime::parse);
 
         }
 
         public static java.util.Optional<ZonedDateTime> zonedDateTime(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(ZonedDateTime::parse);
+            return extractWithFunction(exchange, name, ZonedDateTime::parse);
         }
 
         public static java.util.Optional<Instant> instant(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Instant::parse);
+            return extractWithFunction(exchange, name, Instant::parse);
         }
 
         public static java.util.Optional<Integer> integerValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Integer::parseInt);
+            return extractWithFunction(exchange, name, Integer::parseInt);
         }
 
         public static java.util.Optional<Short> shortValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Short::parseShort);
+            return extractWithFunction(exchange, name, Short::parseShort);
         }
 
         public static java.util.Optional<Float> floatValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Float::parseFloat);
+            return extractWithFunction(exchange, name, Float::parseFloat);
         }
 
         public static java.util.Optional<Double> doubleValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Double::parseDouble);
+            return extractWithFunction(exchange, name, Double::parseDouble);
         }
 
         public static java.util.Optional<BigDecimal> bigDecimalValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(BigDecimal::new);
+            return extractWithFunction(exchange, name, BigDecimal::new);
         }
 
         public static java.util.Optional<Long> longValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Long::parseLong);
+            return extractWithFunction(exchange, name, Long::parseLong);
         }
 
         public static java.util.Optional<Boolean> booleanValue(final HttpServerExchange exchange, final String name)
         {
 
-            return string(exchange, name).map(Boolean::parseBoolean);
+            return extractWithFunction(exchange, name, Boolean::parseBoolean);
         }
 
 //		public static  <E extends Enum<E>> java.util.Optional<E> enumValue(final HttpServerExchange exchange, final Class<E> clazz, final String name)
@@ -587,7 +750,7 @@ public class Extractors {
         public static java.util.Optional<String> string(final HttpServerExchange exchange, final String name)
         {
 
-            return java.util.Optional.ofNullable(exchange.getQueryParameters().get(name)).map(Deque::getFirst);
+            return java.util.Optional.ofNullable(first(exchange, name));
         }
 
         public static java.util.Optional<Path> filePath(final HttpServerExchange exchange, final String name)
@@ -684,16 +847,117 @@ public class Extractors {
         return formValueBuffer(exchange, name).orElseThrow(() -> new IllegalArgumentException("Invalid parameter " + name));
     }
 
+    /**
+     * @return a stream of the unread request body, the exchange must be blocking
+     */
+    public static InputStream inputStream(final HttpServerExchange exchange)
+    {
+
+        return exchange.getInputStream();
+    }
+
+    /**
+     * @return a channel that reads the unread request body with blocking reads outside of the IO thread
+     * @throws IOException if the request body has already been read
+     */
+    public static ReadableByteChannel channel(final HttpServerExchange exchange) throws IOException
+    {
+
+        final StreamSourceChannel channel = exchange.getRequestChannel();
+
+        if (channel == null)
+        {
+            throw new IOException("The request body has already been read");
+        }
+
+        return new BlockingReadableByteChannel(channel);
+    }
+
+    /**
+     * @return a publisher of the unread request body that reads it as it is requested
+     */
+    public static Flow.Publisher<ByteBuffer> publisher(final HttpServerExchange exchange)
+    {
+
+        return new RequestBodyPublisher(exchange);
+    }
+
     public static String string(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
     {
 
-        try
+        final String value = first(exchange, name);
+
+        if (value == null)
         {
-            return exchange.getQueryParameters().get(name).getFirst();
-        } catch (NullPointerException e)
+            throw new IllegalArgumentException("Invalid parameter " + name);
+        }
+
+        return value;
+    }
+
+    /**
+     * Converts every value of a query parameter into a list sized to the number of values
+     */
+    public static <T> List<T> queryList(final HttpServerExchange exchange, final String name, Function<String, T> function) throws IllegalArgumentException
+    {
+
+        return convertList(values(exchange, name), function);
+    }
+
+    /**
+     * Converts every value of a query parameter into a set sized to the number of values
+     */
+    public static <T> Set<T> querySet(final HttpServerExchange exchange, final String name, Function<String, T> function) throws IllegalArgumentException
+    {
+
+        return convertSet(values(exchange, name), function);
+    }
+
+    private static String first(final HttpServerExchange exchange, final String name)
+    {
+
+        final Deque<String> values = exchange.getQueryParameters().get(name);
+
+        return values != null ? values.peekFirst() : null;
+    }
+
+    private static Deque<String> values(final HttpServerExchange exchange, final String name) throws IllegalArgumentException
+    {
+
+        final Deque<String> values = exchange.getQueryParameters().get(name);
+
+        if (values == null)
+        {
+            throw new IllegalArgumentException("Invalid parameter " + name);
+        }
+
+        return values;
+    }
+
+    private static <T> List<T> convertList(final Deque<String> values, Function<String, T> function)
+    {
+
+        final List<T> result = new ArrayList<>(values.size());
+
+        for (String value : values)
+        {
+            result.add(function.apply(value));
+        }
+
+        return result;
+    }
+
+    private static <T> Set<T> convertSet(final Deque<String> values, Function<String, T> function)
+    {
+
+        final Set<T> result = new HashSet<>(Math.max(4, (int) (values.size() / .75f) + 1));
+
+        for (String value : values)
         {
-            throw new IllegalArgumentException("Invalid parameter " + name, e);
+            result.add(function.apply(value));
         }
+
+        return result;
     }
 
     public static <T> T extractWithFunction(final HttpServerExchange exchange, final String name, Function<String, T> function) throws IllegalArgumentException
@@ -755,41 +1019,41 @@ public class Extractors {
     public static <T> T jsonModel(final HttpServerExchange exchange, final TypeReference<T> type) throws IllegalArgumentException
     {
 
-        return parseTypedJson(type, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseTypedJson(type, exchange);
 
     }
 
     public static <T> T jsonModel(final HttpServerExchange exchange, final Class<T> type) throws IllegalArgumentException
     {
 
-        return parseTypedJson(type, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseTypedJson(type, exchange);
 
     }
 
     public static <T> T xmlModel(final HttpServerExchange exchange, final Class<T> type) throws IllegalArgumentException
     {
 
-        return parseTypedXML(type, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseTypedXML(type, exchange);
 
     }
 
     public static <T> T xmlModel(final HttpServerExchange exchange, final TypeReference<T> type) throws IllegalArgumentException
     {
 
-        return parseTypedXML(type, exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseTypedXML(type, exchange);
 
     }
 
     public static JsonNode any(final HttpServerExchange exchange)
     {
 
-        return parseJson(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseJson(exchange);
     }
 
     public static JsonNode jsonNode(final HttpServerExchange exchange)
     {
 
-        return parseJson(exchange.getAttachment(ServerRequest.BYTE_BUFFER_KEY).array());
+        return parseJson(exchange);
     }
 
     public static JsonNode namedJsonNode(final HttpServerExchange exchange, final String name)
@@ -824,6 +1088,52 @@ public class Extractors {
         }
     }
 
+    /**
+     * Parse the request body with a reader resolved for the model type when the handler was created
+     */
+    public static <T> T model(final HttpServerExchange exchange, final TypeReference<T> type, final ObjectReader reader) throws IllegalArgumentException
+    {
+
+        if (ServerPredicates.XML_PREDICATE.resolve(exchange))
+        {
+            return xmlModel(exchange, type);
+        }
+
+        return parseTypedJson(reader, exchange);
+    }
+
+    /**
+     * Parse the request body with a reader resolved for the model type when the handler was created
+     */
+    public static <T> T model(final HttpServerExchange exchange, final Class<T> type, final ObjectReader reader) throws IllegalArgumentException
+    {
+
+        if (ServerPredicates.XML_PREDICATE.resolve(exchange))
+        {
+            return xmlModel(exchange, type);
+        }
+
+        return parseTypedJson(reader, exchange);
+    }
+
+    /**
+     * @return a reader for JSON request bodies of the provided type
+     */
+    public static ObjectReader jsonReader(final TypeReference<?> type)
+    {
+
+        return OBJECT_MAPPER.readerFor(type);
+    }
+
+    /**
+     * @return a reader for JSON request bodies of the provided type
+     */
+    public static ObjectReader jsonReader(final Class<?> type)
+    {
+
+        return OBJECT_MAPPER.readerFor(type);
+    }
+
     public static <T> T namedModel(final HttpServerExchange exchange, final TypeReference<T> type, final String name) throws IllegalArgumentException
     {
 
@@ -0,0 +1,178 @@
+package io.sinistral.proteus.server;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.DefaultByteBufferPool;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ImmediatePooledByteBuffer;
+import org.xnio.channels.Channels;
+import org.xnio.channels.StreamSourceChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Direct buffers that request bodies are read into, pooled by size class so that reading a body does not allocate.
+ * <p>
+ * A body is read into the smallest buffer of its content length and moved to the next size class while it grows. A
+ * read-only view of the bytes read is attached as {@link ServerRequest#BYTE_BUFFER_KEY} and the buffer returns to the
+ * pool when the exchange completes. The view is emptied and detached from the exchange before that, so a handler that
+ * keeps it past the exchange reads nothing rather than the body of a later request. Duplicates and slices taken from the
+ * view are not emptied and must not outlive the exchange. Bodies larger than the largest size class are read into heap
+ * buffers and attached as they are.
+ */
+@Singleton
+public class RequestBodyPool
+{
+
+    private static final int MINIMUM_SIZE = 1024 * 8;
+
+    private final DefaultByteBufferPool[] pools;
+
+    @Inject
+    public RequestBodyPool(@Named("application.requestBuffers.maximumPooledSize") int maximumPooledSize, @Named("application.requestBuffers.poolSize") int poolSize)
+    {
+
+        int classes = 1;
+
+        while ((MINIMUM_SIZE << classes) <= maximumPooledSize && (MINIMUM_SIZE << classes) > 0)
+        {
+            classes++;
+        }
+
+        this.pools = new DefaultByteBufferPool[classes];
+
+        for (int i = 0; i < classes; i++)
+        {
+            // buffers are released by whichever thread completes the exchange, so per thread caches would pin memory for every worker thread
+            pools[i] = new DefaultByteBufferPool(true, MINIMUM_SIZE << i, poolSize, 0);
+        }
+    }
+
+    /**
+     * Read the request body with blocking reads and attach it as {@link ServerRequest#BYTE_BUFFER_KEY}
+     *
+     * @param exchange a blocking exchange outside of the IO thread
+     * @throws IOException if the body could not be read
+     */
+    public void receive(HttpServerExchange exchange) throws IOException
+    {
+
+        final StreamSourceChannel channel = exchange.getRequestChannel();
+
+        if (channel == null)
+        {
+            throw new IOException("The request body has already been read");
+        }
+
+        final long contentLength = exchange.getRequestContentLength();
+
+        PooledByteBuffer pooled = allocate(contentLength > 0 ? contentLength : MINIMUM_SIZE);
+
+        try
+        {
+            while (true)
+            {
+                final ByteBuffer buffer = pooled.getBuffer();
+
+                if (contentLength > 0 && buffer.position() == contentLength)
+                {
+                    break;
+                }
+
+                if (!buffer.hasRemaining())
+                {
+                    pooled = grow(pooled);
+                    continue;
+                }
+
+                if (Channels.readBlocking(channel, buffer) == -1)
+                {
+                    break;
+                }
+            }
+
+        } catch (IOException | RuntimeException e)
+        {
+            pooled.close();
+            throw e;
+        }
+
+        final PooledByteBuffer body = pooled;
+
+        final ByteBuffer view = view(body);
+
+        exchange.putAttachment(ServerRequest.BYTE_BUFFER_KEY, view);
+
+        exchange.addExchangeCompleteListener((ex, next) -> {
+
+            ex.removeAttachment(ServerRequest.BYTE_BUFFER_KEY);
+
+            release(body, view);
+
+            next.proceed();
+        });
+    }
+
+    /**
+     * @return the bytes read into a buffer, as a read-only view of a pooled buffer or as the heap buffer itself
+     */
+    static ByteBuffer view(PooledByteBuffer pooled)
+    {
+
+        final ByteBuffer buffer = pooled.getBuffer().flip();
+
+        if (pooled instanceof ImmediatePooledByteBuffer)
+        {
+            return buffer;
+        }
+
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Empty a view returned by {@link #view(PooledByteBuffer)} and return its buffer to the pool
+     */
+    static void release(PooledByteBuffer pooled, ByteBuffer view)
+    {
+
+        view.position(0).limit(0);
+
+        pooled.close();
+    }
+
+    PooledByteBuffer allocate(long size)
+    {
+
+        for (DefaultByteBufferPool pool : pools)
+        {
+            if (pool.getBufferSize() >= size)
+            {
+                final PooledByteBuffer pooled = pool.allocate();
+
+                pooled.getBuffer().clear();
+
+                return pooled;
+            }
+        }
+
+        return new ImmediatePooledByteBuffer(ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE - 8)));
+    }
+
+    PooledByteBuffer grow(PooledByteBuffer pooled)
+    {
+
+        final ByteBuffer buffer = pooled.getBuffer();
+
+        final PooledByteBuffer grown = allocate((long) buffer.capacity() * 2);
+
+        grown.getBuffer().put(buffer.flip());
+
+        pooled.close();
+
+        return grown;
+    }
+
+}
@@ -0,0 +1,270 @@
+package io.sinistral.proteus.server;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.channels.StreamSourceChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the request body as it is read from the request channel, one chunk for every requested item.
+ * <p>
+ * The channel is only read while the subscriber has outstanding demand, otherwise reads are suspended and the client is
+ * held back by flow control, so a body of any size is streamed with a single pooled buffer. Each chunk is a read-only
+ * view of that buffer and is only valid until {@link Flow.Subscriber#onNext(Object)} returns, subscribers that keep it
+ * must copy it. All reads and signals happen on the IO thread of the exchange and the body can only be subscribed to once.
+ * <p>
+ * Reads can not be resumed while the handler that dispatched the exchange is still running. If the body runs out of
+ * readable bytes in that window it waits for the dispatched task to call {@link #resume(HttpServerExchange)}, which the
+ * responses sent for futures and publishers do.
+ */
+public class RequestBodyPublisher implements Flow.Publisher<ByteBuffer>
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RequestBodyPublisher.class.getCanonicalName());
+
+    private static final AttachmentKey<BodySubscription> SUBSCRIPTION_KEY = AttachmentKey.create(BodySubscription.class);
+
+    private final HttpServerExchange exchange;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public RequestBodyPublisher(HttpServerExchange exchange)
+    {
+
+        this.exchange = exchange;
+    }
+
+    /**
+     * Continue reading the body of an exchange once the handler that dispatched it has returned, to be called by the
+     * dispatched task
+     *
+     * @param exchange the exchange
+     */
+    public static void resume(HttpServerExchange exchange)
+    {
+
+        final BodySubscription subscription = exchange.getAttachment(SUBSCRIPTION_KEY);
+
+        if (subscription != null)
+        {
+            subscription.execute(subscription::drain);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber)
+    {
+
+        if (!subscribed.compareAndSet(false, true))
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+
+                }
+
+                @Override
+                public void cancel()
+                {
+
+                }
+            });
+
+            subscriber.onError(new IllegalStateException("The request body has already been subscribed to"));
+            return;
+        }
+
+        final StreamSourceChannel channel = exchange.getRequestChannel();
+
+        if (channel == null)
+        {
+            subscriber.onSubscribe(new BodySubscription(subscriber, null));
+            subscriber.onError(new IOException("The request body has already been read"));
+            return;
+        }
+
+        final BodySubscription subscription = new BodySubscription(subscriber, channel);
+
+        exchange.putAttachment(SUBSCRIPTION_KEY, subscription);
+
+        exchange.getIoThread().execute(() -> {
+
+            subscriber.onSubscribe(subscription);
+
+            subscription.drain();
+        });
+    }
+
+    private final class BodySubscription implements Flow.Subscription
+    {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+        private final StreamSourceChannel channel;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        private volatile boolean done;
+
+        private boolean draining;
+
+        private BodySubscription(Flow.Subscriber<? super ByteBuffer> subscriber, StreamSourceChannel channel)
+        {
+
+            this.subscriber = subscriber;
+            this.channel = channel;
+        }
+
+        @Override
+        public void request(long n)
+        {
+
+            if (done || channel == null)
+            {
+                return;
+            }
+
+            if (n <= 0)
+            {
+                done = true;
+
+                execute(() -> {
+
+                    channel.suspendReads();
+
+                    subscriber.onError(new IllegalArgumentException("Requested " + n + " items, demand must be positive"));
+                });
+
+                return;
+            }
+
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+
+            execute(this::drain);
+        }
+
+        @Override
+        public void cancel()
+        {
+
+            if (channel != null && !done)
+            {
+                done = true;
+
+                execute(channel::suspendReads);
+            }
+        }
+
+        /**
+         * Read and publish chunks while there is demand, called on the IO thread only
+         */
+        private void drain()
+        {
+
+            if (draining)
+            {
+                return;
+            }
+
+            draining = true;
+
+            try
+            {
+                while (!done && demand.get() > 0)
+                {
+                    final PooledByteBuffer pooled = exchange.getConnection().getByteBufferPool().allocate();
+
+                    try
+                    {
+                        final ByteBuffer buffer = pooled.getBuffer();
+
+                        buffer.clear();
+
+                        final int read = channel.read(buffer);
+
+                        if (read == -1)
+                        {
+                            done = true;
+
+                            channel.suspendReads();
+
+                            subscriber.onComplete();
+                            return;
+                        }
+
+                        if (read == 0)
+                        {
+                            awaitReadable();
+                            return;
+                        }
+
+                        demand.decrementAndGet();
+
+                        subscriber.onNext(buffer.flip().asReadOnlyBuffer());
+
+                    } finally
+                    {
+                        pooled.close();
+                    }
+                }
+
+                if (!done)
+                {
+                    channel.suspendReads();
+                }
+
+            } catch (IOException | RuntimeException e)
+            {
+                log.error("Failed to read request body", e);
+
+                done = true;
+
+                channel.suspendReads();
+
+                subscriber.onError(e);
+
+            } finally
+            {
+                draining = false;
+            }
+        }
+
+        private void awaitReadable()
+        {
+
+            // reads can not be resumed while a handler that dispatched the exchange is still running, the dispatched task
+            // drains again through resume(exchange) once it has returned
+            if (exchange.isDispatched())
+            {
+                return;
+            }
+
+            channel.getReadSetter().set(c -> {
+
+                c.suspendReads();
+
+                drain();
+            });
+
+            channel.resumeReads();
+        }
+
+        private void execute(Runnable task)
+        {
+
+            // signals are always dispatched through the IO thread, so a request made from onNext does not recurse
+            exchange.getIoThread().execute(task);
+        }
+    }
+
+}
@@ -3,6 +3,8 @@
  */
 package io.sinistral.proteus.server;
 
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.inject.Inject;
 import io.sinistral.proteus.server.predicates.ServerPredicates;
 import io.undertow.UndertowOptions;
 import io.undertow.io.Receiver;
@@ -69,14 +71,27 @@ public class ServerRequest {
 
     public static final AttachmentKey<ByteBuffer> BYTE_BUFFER_KEY = AttachmentKey.create(ByteBuffer.class);
 
+    /**
+     * The tokens of a JSON body parsed while it was received, see {@link io.sinistral.proteus.server.handlers.JsonBodyHandler}
+     */
+    public static final AttachmentKey<TokenBuffer> JSON_TOKENS_KEY = AttachmentKey.create(TokenBuffer.class);
+
 
     public static final AttachmentKey<ServerRequest> SERVER_REQUEST_ATTACHMENT_KEY = AttachmentKey.create(ServerRequest.class);
 
+    private static final AttachmentKey<Boolean> BODY_READ_KEY = AttachmentKey.create(Boolean.class);
+
     protected static final Receiver.ErrorCallback ERROR_CALLBACK = (exchange, e) -> {
         exchange.putAttachment(ExceptionHandler.THROWABLE, e);
         exchange.endExchange();
     };
 
+    @Inject
+    private static RequestBodyPool BODY_POOL;
+
+    @Inject
+    private static UploadStorage UPLOAD_STORAGE;
+
     protected static final String TMP_DIR = System.getProperty("java.io.tmpdir");
 
     public final HttpServerExchange exchange;
@@ -107,25 +122,101 @@ public class ServerRequest {
         this.exchange = exchange;
         this.contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
         this.accept = exchange.getRequestHeaders().getFirst(Headers.ACCEPT);
+    }
+
+    /**
+     * Read the request body unless it has been read already. Form fields are added to the query parameters and their
+     * files to {@link FormDataParser#FORM_DATA}, other bodies are attached as {@link #BYTE_BUFFER_KEY}.
+     * <p>
+     * Handlers call this before extracting body parameters, a {@link ServerRequest} reads the body on the first access
+     * to its form data or attachments so endpoints that do not use it never read it.
+     *
+     * @param exchange the exchange
+     * @throws IOException if a form could not be parsed
+     */
+    public static void readBody(final HttpServerExchange exchange) throws IOException
+    {
 
-        if (this.contentType != null)
+        if (exchange.getAttachment(BODY_READ_KEY) != null || exchange.getAttachment(JSON_TOKENS_KEY) != null)
         {
-            if (ServerPredicates.URL_ENCODED_FORM_PREDICATE.resolve(exchange))
-            {
-                this.parseEncodedForm();
-            }
-            else if (ServerPredicates.MULTIPART_FORM_PREDICATE.resolve(exchange))
+            return;
+        }
+
+        exchange.putAttachment(BODY_READ_KEY, Boolean.TRUE);
+
+        if (exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE) == null)
+        {
+            return;
+        }
+
+        if (ServerPredicates.URL_ENCODED_FORM_PREDICATE.resolve(exchange))
+        {
+            parseEncodedForm(exchange);
+        }
+        else if (ServerPredicates.MULTIPART_FORM_PREDICATE.resolve(exchange))
+        {
+            parseMultipartForm(exchange);
+        }
+        else if (exchange.getRequestContentLength() > 0)
+        {
+            receiveBody(exchange);
+        }
+    }
+
+    /**
+     * @param exchange the exchange
+     * @return a parser for a URL-encoded or multipart form body, or null if the body is not a form
+     */
+    public static FormDataParser createFormParser(final HttpServerExchange exchange)
+    {
+
+        if (ServerPredicates.URL_ENCODED_FORM_PREDICATE.resolve(exchange))
+        {
+            return new FormEncodedDataDefinition().setDefaultEncoding(exchange.getRequestCharset()).create(exchange);
+        }
+        else if (ServerPredicates.MULTIPART_FORM_PREDICATE.resolve(exchange))
+        {
+            return multipartFormParser(exchange);
+        }
+
+        return null;
+    }
+
+    /**
+     * Add the fields of a form parsed without blocking to the query parameters, as {@link #readBody(HttpServerExchange)} does
+     *
+     * @param exchange the exchange
+     * @param formData the parsed form
+     */
+    public static void formParsed(final HttpServerExchange exchange, final FormData formData)
+    {
+
+        exchange.putAttachment(BODY_READ_KEY, Boolean.TRUE);
+
+        extractFormParameters(exchange, formData);
+    }
+
+    private static void receiveBody(final HttpServerExchange exchange)
+    {
+
+        if (BODY_POOL != null && exchange.isBlocking() && !exchange.isInIoThread())
+        {
+            try
             {
-                this.parseMultipartForm();
-            }
-            else if (exchange.getRequestContentLength() > 0)
+                BODY_POOL.receive(exchange);
+
+            } catch (IOException e)
             {
-                this.exchange.getRequestReceiver().receiveFullBytes((ex, message) -> {
-                    ByteBuffer buffer = ByteBuffer.wrap(message);
-                    ex.putAttachment(BYTE_BUFFER_KEY, buffer);
-                }, ERROR_CALLBACK);
+                ERROR_CALLBACK.error(exchange, e);
             }
         }
+        else
+        {
+            exchange.getRequestReceiver().receiveFullBytes((ex, message) -> {
+                ByteBuffer buffer = ByteBuffer.wrap(message);
+                ex.putAttachment(BYTE_BUFFER_KEY, buffer);
+            }, ERROR_CALLBACK);
+        }
     }
 
     public String accept()
@@ -149,6 +240,8 @@ public class ServerRequest {
     public Deque<FormData.FormValue> files(final String name)
     {
 
+        this.readBodyOnDemand();
+
         FormData formData = this.exchange.getAttachment(FORM_DATA);
 
         if (formData != null)
@@ -233,6 +326,11 @@ public class ServerRequest {
     public <T> T getAttachment(AttachmentKey<T> key)
     {
 
+        if (key == BYTE_BUFFER_KEY || key == FORM_DATA)
+        {
+            this.readBodyOnDemand();
+        }
+
         return exchange.getAttachment(key);
     }
 
@@ -258,6 +356,9 @@ public class ServerRequest {
     public Map<String, Deque<String>> getQueryParameters()
     {
 
+        // form fields are added to the query parameters
+        this.readBodyOnDemand();
+
         return exchange.getQueryParameters();
     }
 
@@ -798,7 +899,20 @@ public class ServerRequest {
         exchange.addToAttachmentList(key, value);
     }
 
-    private void extractFormParameters(final FormData formData)
+    private void readBodyOnDemand()
+    {
+
+        try
+        {
+            readBody(this.exchange);
+
+        } catch (IOException e)
+        {
+            logger.error("Failed to read request body", e);
+        }
+    }
+
+    private static void extractFormParameters(final HttpServerExchange exchange, final FormData formData)
     {
 
         if (formData != null)
@@ -820,48 +934,50 @@ public class ServerRequest {
         }
     }
 
-    private void parseEncodedForm() throws IOException
+    private static void parseEncodedForm(final HttpServerExchange exchange) throws IOException
     {
 
-        try (BlockingHttpExchange blockingHttpExchange = this.exchange.startBlocking())
+        try (BlockingHttpExchange blockingHttpExchange = exchange.startBlocking())
         {
-            try (FormDataParser formDataParser = new FormEncodedDataDefinition().setDefaultEncoding(this.exchange.getRequestCharset()).create(exchange))
+            try (FormDataParser formDataParser = new FormEncodedDataDefinition().setDefaultEncoding(exchange.getRequestCharset()).create(exchange))
             {
                 if (formDataParser != null)
                 {
                     final FormData formData = formDataParser.parseBlocking();
-                    extractFormParameters(formData);
+                    extractFormParameters(exchange, formData);
                 }
             }
         }
     }
 
-    private void parseMultipartForm() throws IOException
+    private static void parseMultipartForm(final HttpServerExchange exchange) throws IOException
     {
 
-        final String charset = exchange.getRequestCharset();
-
-       this.exchange.startBlocking();
-
+       exchange.startBlocking();
 
-        final MultiPartParserDefinition multiPartParserDefinition = new MultiPartParserDefinition()
-                .setTempFileLocation(Path.of(TMP_DIR)).setDefaultEncoding(charset);
-
-        final long thresholdSize = exchange.getConnection().getUndertowOptions().get(UndertowOptions.MAX_BUFFERED_REQUEST_SIZE, 0);
-
-        multiPartParserDefinition.setFileSizeThreshold(thresholdSize);
-
-        final FormDataParser formDataParser = multiPartParserDefinition.create(this.exchange);
+        final FormDataParser formDataParser = multipartFormParser(exchange);
 
         if(formDataParser != null)
         {
             final FormData formData = formDataParser.parseBlocking();
-            extractFormParameters(formData);
+            extractFormParameters(exchange, formData);
 
         }
+    }
+
+    private static FormDataParser multipartFormParser(final HttpServerExchange exchange)
+    {
+
+        final String charset = exchange.getRequestCharset();
 
+        final MultiPartParserDefinition multiPartParserDefinition = new MultiPartParserDefinition()
+                .setTempFileLocation(UPLOAD_STORAGE != null ? UPLOAD_STORAGE.getDirectory() : Path.of(TMP_DIR)).setDefaultEncoding(charset);
 
+        final long thresholdSize = exchange.getConnection().getUndertowOptions().get(UndertowOptions.MAX_BUFFERED_REQUEST_SIZE, 0);
+
+        multiPartParserDefinition.setFileSizeThreshold(thresholdSize);
 
+        return multiPartParserDefinition.create(exchange);
     }
 
 }
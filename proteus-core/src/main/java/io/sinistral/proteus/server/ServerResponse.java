@@ -1,6 +1,8 @@
 
 package io.sinistral.proteus.server;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
@@ -30,7 +32,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * @author jbauer
@@ -72,6 +77,7 @@ public class ServerResponse<T>
     protected boolean processJson = false;
     protected boolean preprocessed = false;
     protected String location = null;
+    protected EntityWriter entityWriter = null;
 
     public ServerResponse()
     {
@@ -213,6 +219,17 @@ public class ServerResponse<T>
         return this;
     }
 
+    /**
+     * Serialize a JSON entity with a writer resolved for the declared entity type of the endpoint
+     *
+     * @param entityWriter the writer, used only when it {@link EntityWriter#accepts(Object) accepts} the entity
+     */
+    public ServerResponse<T> entityWriter(EntityWriter entityWriter)
+    {
+        this.entityWriter = entityWriter;
+        return this;
+    }
+
     public ServerResponse<T> method(HttpString method)
     {
         this.method = method;
@@ -671,26 +688,8 @@ public class ServerResponse<T>
             }
         } else if (hasEntity) {
 
-
-
             try {
-                if (this.processXml) {
-                    exchange.getResponseSender().send(ByteBuffer.wrap(XML_MAPPER.writeValueAsBytes(this.entity)));
-                } else {
-
-                    final Class jsonViewClass = exchange.getAttachment(JsonViewWrapper.JSON_VIEW_KEY);
-
-                    if(jsonViewClass != null)
-                    {
-                        ObjectWriter writer = WRITER_CACHE.computeIfAbsent(jsonViewClass, (view) -> OBJECT_MAPPER.writerWithView(view));
-                        exchange.getResponseSender().send(ByteBuffer.wrap(writer.writeValueAsBytes(this.entity)));
-                    }
-                    else
-                    {
-                        exchange.getResponseSender().send(ByteBuffer.wrap(OBJECT_MAPPER.writeValueAsBytes(this.entity)));
-                    }
-
-                 }
+                EntityOutputStream.write(exchange, entityWriter(exchange), this.entity);
 
             } catch (Exception e) {
 
@@ -717,6 +716,28 @@ public class ServerResponse<T>
 
     }
 
+    private ObjectWriter entityWriter(final HttpServerExchange exchange)
+    {
+
+        if (this.processXml)
+        {
+            return XML_MAPPER.writer();
+        }
+
+        final Class jsonViewClass = exchange.getAttachment(JsonViewWrapper.JSON_VIEW_KEY);
+
+        if (jsonViewClass != null)
+        {
+            return WRITER_CACHE.computeIfAbsent(jsonViewClass, (view) -> OBJECT_MAPPER.writerWithView(view));
+        }
+        else if (this.entityWriter != null && this.entityWriter.accepts(this.entity))
+        {
+            return this.entityWriter.writer;
+        }
+
+        return OBJECT_MAPPER.writer();
+    }
+
     /**
      * Creates builder to build {@link ServerResponse}.
      *
@@ -749,4 +770,94 @@ public class ServerResponse<T>
         return new ServerResponse();
     }
 
+    /**
+     * Resolve a JSON writer for the declared entity type of an endpoint. Handlers create these once so the serializer
+     * for the type is looked up before the first request rather than on every response.
+     *
+     * @param type the declared entity type
+     * @return the writer
+     */
+    public static EntityWriter entityWriter(TypeReference<?> type)
+    {
+        final JavaType javaType = OBJECT_MAPPER.getTypeFactory().constructType(type);
+
+        return new EntityWriter(OBJECT_MAPPER.writerFor(javaType), javaType.getRawClass(), javaType.isContainerType() || javaType.isReferenceType());
+    }
+
+    /**
+     * Respond with the result of a future returned by an endpoint. A {@link CompletableFuture} that is already complete is
+     * handled at once on the calling thread. Otherwise the exchange is only marked as dispatched, without handing it to
+     * another thread, and the response is sent from the thread that completes the future. Blocking exchanges write to the blocking response
+     * stream, which may only be used from a worker thread, so their response is always sent from a worker. A request body
+     * published to the endpoint continues to be read once the exchange has been dispatched.
+     *
+     * @param exchange the exchange to respond to
+     * @param stage    the future
+     * @param action   sends the response for the result or failure of the future
+     */
+    public static <T> void whenComplete(HttpServerExchange exchange, CompletionStage<T> stage, BiConsumer<? super T, ? super Throwable> action)
+    {
+        final boolean blocking = exchange.isBlocking();
+
+        // toCompletableFuture is optional for other stages, e.g. CompletableFuture.minimalCompletionStage()
+        if ((!blocking || !exchange.isInIoThread()) && stage instanceof CompletableFuture && ((CompletableFuture<?>) stage).isDone())
+        {
+            stage.whenComplete(action);
+            return;
+        }
+
+        if (blocking)
+        {
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+
+                RequestBodyPublisher.resume(exchange);
+
+                stage.whenCompleteAsync(action, exchange.getConnection().getWorker());
+            });
+        }
+        else
+        {
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+
+                RequestBodyPublisher.resume(exchange);
+
+                stage.whenComplete(action);
+            });
+        }
+    }
+
+    /**
+     * An {@link ObjectWriter} bound to a declared entity type.
+     * <p>
+     * A writer for a declared type serializes with that type's serializer, so it is only used for entities whose class is
+     * exactly the declared class. Collections, maps, arrays and reference types look up the serializers of their contents
+     * at runtime and accept any instance of the declared class.
+     */
+    public static final class EntityWriter
+    {
+
+        private final ObjectWriter writer;
+
+        private final Class<?> type;
+
+        private final boolean container;
+
+        EntityWriter(ObjectWriter writer, Class<?> type, boolean container)
+        {
+            this.writer = writer;
+            this.type = type;
+            this.container = container;
+        }
+
+        public boolean accepts(Object entity)
+        {
+            return entity != null && (container ? type.isInstance(entity) : entity.getClass() == type);
+        }
+
+        public ObjectWriter getWriter()
+        {
+            return writer;
+        }
+    }
+
 }
@@ -0,0 +1,62 @@
+package io.sinistral.proteus.server;
+
+/**
+ * An event of a server-sent event stream.
+ * <p>
+ * Publishers of server-sent event routes emit these to name an event or give it an id, which clients send back in the
+ * <code>Last-Event-ID</code> header when they reconnect. Any other element is sent as the data of an unnamed event.
+ */
+public class ServerSentEvent<T>
+{
+
+    private final T data;
+
+    private String id;
+
+    private String event;
+
+    public ServerSentEvent(T data)
+    {
+
+        this.data = data;
+    }
+
+    public static <T> ServerSentEvent<T> of(T data)
+    {
+
+        return new ServerSentEvent<>(data);
+    }
+
+    public ServerSentEvent<T> id(String id)
+    {
+
+        this.id = id;
+        return this;
+    }
+
+    public ServerSentEvent<T> event(String event)
+    {
+
+        this.event = event;
+        return this;
+    }
+
+    public T getData()
+    {
+
+        return data;
+    }
+
+    public String getId()
+    {
+
+        return id;
+    }
+
+    public String getEvent()
+    {
+
+        return event;
+    }
+
+}
@@ -0,0 +1,207 @@
+package io.sinistral.proteus.server;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.typesafe.config.Config;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+
+import java.io.IOException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Sends the elements of a {@link Flow.Publisher} as server-sent events over an Undertow {@link ServerSentEventHandler}
+ * connection.
+ * <p>
+ * Text is sent as it is and any other data is serialized with Jackson. Elements wrapped in a {@link ServerSentEvent} carry
+ * an event name and id, routes resume a stream from the <code>Last-Event-ID</code> header a reconnecting client sends.
+ * Idle connections are kept open with comments sent every <code>application.sse.keepAliveTime</code>. The publisher is
+ * asked for at most <code>application.sse.maxPendingEvents</code> events that have not been written to the client yet, so
+ * a slow client holds back its own publisher instead of buffering events in the server. The stream ends when the
+ * publisher completes, a publisher error closes the connection and a closed connection cancels the subscription.
+ */
+public class ServerSentEventResponse
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ServerSentEventResponse.class.getCanonicalName());
+
+    private static long keepAliveTime = TimeUnit.SECONDS.toMillis(15);
+
+    private static int maxPendingEvents = 16;
+
+    private ServerSentEventResponse()
+    {
+
+    }
+
+    @Inject
+    static void configure(@Named("application.sse") Config config)
+    {
+
+        keepAliveTime = config.getDuration("keepAliveTime", TimeUnit.MILLISECONDS);
+        maxPendingEvents = Math.max(1, config.getInt("maxPendingEvents"));
+    }
+
+    /**
+     * Send the elements of a publisher as server-sent events
+     *
+     * @param exchange   the exchange to respond to
+     * @param publisher  the events
+     * @param dataWriter the writer for the declared type of the event data, may be null
+     */
+    public static void send(HttpServerExchange exchange, Flow.Publisher<?> publisher, ServerResponse.EntityWriter dataWriter) throws Exception
+    {
+
+        final Function<Object, ObjectWriter> writers = StreamingResponse.writers(exchange, dataWriter);
+
+        new ServerSentEventHandler((connection, lastEventId) -> {
+
+            if (keepAliveTime > 0)
+            {
+                connection.setKeepAliveTime(keepAliveTime);
+            }
+
+            publisher.subscribe(new EventSubscriber(connection, writers));
+
+        }).handleRequest(exchange);
+    }
+
+    private static final class EventSubscriber implements Flow.Subscriber<Object>, ServerSentEventConnection.EventCallback
+    {
+
+        private final ServerSentEventConnection connection;
+
+        private final Function<Object, ObjectWriter> writers;
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private volatile Flow.Subscription subscription;
+
+        private EventSubscriber(ServerSentEventConnection connection, Function<Object, ObjectWriter> writers)
+        {
+
+            this.connection = connection;
+            this.writers = writers;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+
+            if (this.subscription != null)
+            {
+                subscription.cancel();
+                return;
+            }
+
+            this.subscription = subscription;
+
+            connection.addCloseTask(c -> {
+
+                if (done.compareAndSet(false, true))
+                {
+                    subscription.cancel();
+                }
+            });
+
+            subscription.request(maxPendingEvents);
+        }
+
+        @Override
+        public void onNext(Object element)
+        {
+
+            if (done.get())
+            {
+                return;
+            }
+
+            String id = null;
+            String event = null;
+            Object data = element;
+
+            if (element instanceof ServerSentEvent)
+            {
+                final ServerSentEvent<?> serverSentEvent = (ServerSentEvent<?>) element;
+
+                id = serverSentEvent.getId();
+                event = serverSentEvent.getEvent();
+                data = serverSentEvent.getData();
+            }
+
+            try
+            {
+                final String serialized = data instanceof CharSequence ? data.toString() : writers.apply(data).writeValueAsString(data);
+
+                connection.send(serialized, event, id, this);
+
+            } catch (IOException | RuntimeException e)
+            {
+                log.error("Failed to send event {}", element, e);
+
+                close();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+
+            if (done.compareAndSet(false, true))
+            {
+                log.error("Server-sent event publisher failed", throwable);
+
+                IoUtils.safeClose(connection);
+            }
+        }
+
+        @Override
+        public void onComplete()
+        {
+
+            if (done.compareAndSet(false, true))
+            {
+                connection.shutdown();
+            }
+        }
+
+        @Override
+        public void done(ServerSentEventConnection connection, String data, String event, String id)
+        {
+
+            if (!done.get())
+            {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void failed(ServerSentEventConnection connection, String data, String event, String id, IOException e)
+        {
+
+            log.debug("Failed to send event {}", id, e);
+
+            close();
+        }
+
+        private void close()
+        {
+
+            if (done.compareAndSet(false, true))
+            {
+                subscription.cancel();
+
+                IoUtils.safeClose(connection);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,544 @@
+package io.sinistral.proteus.server;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.sinistral.proteus.protocol.MediaType;
+import io.sinistral.proteus.server.predicates.ParsedMediaType;
+import io.sinistral.proteus.utilities.AsyncByteOutputStream;
+import io.sinistral.proteus.wrappers.JsonViewWrapper;
+import io.undertow.io.UndertowOutputStream;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ExceptionHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.ChannelListener;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSinkChannel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Sends the elements of a {@link Stream}, {@link Iterator} or {@link Flow.Publisher} returned by an endpoint as they are
+ * produced, as a JSON array or, when the endpoint produces <code>application/x-ndjson</code> and the client accepts it, as
+ * newline delimited JSON.
+ * <p>
+ * Streams and iterators may block while producing elements, so they are drained on a worker thread into the blocking
+ * response stream, which sends a pooled buffer whenever it fills up and waits while the socket is not writable.
+ * Publishers are written from the IO thread without blocking, one element is requested at a time and the next one only
+ * once the previous element has been written to the socket. Either way only a bounded amount of the response is held in
+ * memory. A failure before anything was sent is reported as an error response, a failure after that closes the
+ * connection, as the status of the response can no longer be changed.
+ */
+public class StreamingResponse
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingResponse.class.getCanonicalName());
+
+    private static final String NDJSON = MediaType.APPLICATION_X_NDJSON.contentType();
+
+    private static final String JSON = MediaType.APPLICATION_JSON.contentType();
+
+    private StreamingResponse()
+    {
+
+    }
+
+    /**
+     * Send the elements of a stream, which is closed once it has been sent
+     *
+     * @param exchange            the exchange to respond to
+     * @param stream              the elements
+     * @param elementWriter       the writer for the declared element type, may be null
+     * @param producesContentType the media types the endpoint produces
+     */
+    public static void send(HttpServerExchange exchange, Stream<?> stream, ServerResponse.EntityWriter elementWriter, String producesContentType)
+    {
+
+        send(exchange, stream.iterator(), stream, elementWriter, producesContentType);
+    }
+
+    /**
+     * Send the elements of an iterator
+     *
+     * @param exchange            the exchange to respond to
+     * @param iterator            the elements
+     * @param elementWriter       the writer for the declared element type, may be null
+     * @param producesContentType the media types the endpoint produces
+     */
+    public static void send(HttpServerExchange exchange, Iterator<?> iterator, ServerResponse.EntityWriter elementWriter, String producesContentType)
+    {
+
+        send(exchange, iterator, null, elementWriter, producesContentType);
+    }
+
+    /**
+     * Send the elements of a publisher
+     *
+     * @param exchange            the exchange to respond to
+     * @param publisher           the elements
+     * @param elementWriter       the writer for the declared element type, may be null
+     * @param producesContentType the media types the endpoint produces
+     */
+    public static void send(HttpServerExchange exchange, Flow.Publisher<?> publisher, ServerResponse.EntityWriter elementWriter, String producesContentType)
+    {
+
+        final boolean ndjson = isNdjson(exchange, producesContentType);
+
+        final ElementSubscriber subscriber = new ElementSubscriber(exchange, writers(exchange, elementWriter), ndjson);
+
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, ndjson ? NDJSON : JSON);
+
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+
+            RequestBodyPublisher.resume(exchange);
+
+            publisher.subscribe(subscriber);
+        });
+    }
+
+    private static void send(HttpServerExchange exchange, Iterator<?> iterator, AutoCloseable resource, ServerResponse.EntityWriter elementWriter, String producesContentType)
+    {
+
+        if (exchange.isInIoThread())
+        {
+            exchange.dispatch(exchange.getConnection().getWorker(), () -> {
+
+                RequestBodyPublisher.resume(exchange);
+
+                send(exchange, iterator, resource, elementWriter, producesContentType);
+            });
+            return;
+        }
+
+        if (!exchange.isBlocking())
+        {
+            exchange.startBlocking();
+        }
+
+        final boolean ndjson = isNdjson(exchange, producesContentType);
+
+        final Function<Object, ObjectWriter> writers = writers(exchange, elementWriter);
+
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, ndjson ? NDJSON : JSON);
+
+        final OutputStream outputStream = exchange.getOutputStream();
+
+        final OutputStream elementStream = new ElementOutputStream(outputStream);
+
+        try
+        {
+            boolean first = true;
+
+            if (!ndjson)
+            {
+                outputStream.write('[');
+            }
+
+            while (iterator.hasNext())
+            {
+                final Object element = iterator.next();
+
+                if (!ndjson && !first)
+                {
+                    outputStream.write(',');
+                }
+
+                writers.apply(element).writeValue(elementStream, element);
+
+                if (ndjson)
+                {
+                    outputStream.write('\n');
+                }
+
+                first = false;
+            }
+
+            if (!ndjson)
+            {
+                outputStream.write(']');
+            }
+
+            outputStream.close();
+
+        } catch (Exception e)
+        {
+            if (!exchange.isResponseStarted() && outputStream instanceof UndertowOutputStream)
+            {
+                ((UndertowOutputStream) outputStream).resetBuffer();
+            }
+
+            fail(exchange, e, exchange.isResponseStarted());
+
+        } finally
+        {
+            if (resource != null)
+            {
+                try
+                {
+                    resource.close();
+
+                } catch (Exception e)
+                {
+                    log.error("Failed to close streamed response source", e);
+                }
+            }
+        }
+    }
+
+    private static boolean isNdjson(HttpServerExchange exchange, String producesContentType)
+    {
+
+        if (producesContentType == null || !producesContentType.contains(NDJSON))
+        {
+            return false;
+        }
+
+        if (!producesContentType.contains(JSON))
+        {
+            return true;
+        }
+
+        final String accept = ParsedMediaType.accept(exchange).value();
+
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    /**
+     * @return the writer for each element, the writer of the active json view, the declared element type or the element's own class
+     */
+    static Function<Object, ObjectWriter> writers(HttpServerExchange exchange, ServerResponse.EntityWriter elementWriter)
+    {
+
+        final Class<?> jsonViewClass = exchange.getAttachment(JsonViewWrapper.JSON_VIEW_KEY);
+
+        if (jsonViewClass != null)
+        {
+            final ObjectWriter viewWriter = ServerResponse.WRITER_CACHE.computeIfAbsent(jsonViewClass, (view) -> ServerResponse.OBJECT_MAPPER.writerWithView(view));
+
+            return element -> viewWriter;
+        }
+
+        final ObjectWriter writer = ServerResponse.OBJECT_MAPPER.writer();
+
+        if (elementWriter == null)
+        {
+            return element -> writer;
+        }
+
+        return element -> elementWriter.accepts(element) ? elementWriter.getWriter() : writer;
+    }
+
+    private static void fail(HttpServerExchange exchange, Throwable t, boolean started)
+    {
+
+        log.error("Failed to stream response", t);
+
+        if (started)
+        {
+            IoUtils.safeClose(exchange.getConnection());
+            return;
+        }
+
+        exchange.putAttachment(ExceptionHandler.THROWABLE, t);
+        exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+        exchange.endExchange();
+    }
+
+    /**
+     * Passes elements to the response stream, serializers close and flush their target after every element
+     */
+    private static final class ElementOutputStream extends OutputStream
+    {
+
+        private final OutputStream outputStream;
+
+        private ElementOutputStream(OutputStream outputStream)
+        {
+
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+
+            outputStream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+
+            outputStream.write(b, off, len);
+        }
+
+        @Override
+        public void flush()
+        {
+
+        }
+
+        @Override
+        public void close()
+        {
+
+        }
+    }
+
+    /**
+     * Writes the elements of a publisher, all state is only accessed from the IO thread of the exchange
+     */
+    private static final class ElementSubscriber implements Flow.Subscriber<Object>, ChannelListener<StreamSinkChannel>
+    {
+
+        private final HttpServerExchange exchange;
+
+        private final Function<Object, ObjectWriter> writers;
+
+        private final boolean ndjson;
+
+        private final AsyncByteOutputStream buffer = new AsyncByteOutputStream(1024);
+
+        private Flow.Subscription subscription;
+
+        private StreamSinkChannel channel;
+
+        private ByteBuffer pending;
+
+        private int count;
+
+        private boolean completed;
+
+        private boolean closed;
+
+        private volatile boolean done;
+
+        private ElementSubscriber(HttpServerExchange exchange, Function<Object, ObjectWriter> writers, boolean ndjson)
+        {
+
+            this.exchange = exchange;
+            this.writers = writers;
+            this.ndjson = ndjson;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+
+            execute(() -> {
+
+                if (this.subscription != null || done)
+                {
+                    subscription.cancel();
+                    return;
+                }
+
+                this.subscription = subscription;
+
+                exchange.addExchangeCompleteListener((ex, next) -> {
+
+                    if (!done)
+                    {
+                        done = true;
+
+                        subscription.cancel();
+                    }
+
+                    next.proceed();
+                });
+
+                subscription.request(1);
+            });
+        }
+
+        @Override
+        public void onNext(Object element)
+        {
+
+            execute(() -> {
+
+                if (done)
+                {
+                    return;
+                }
+
+                try
+                {
+                    buffer.reset();
+
+                    if (!ndjson)
+                    {
+                        buffer.write(count == 0 ? '[' : ',');
+                    }
+
+                    writers.apply(element).writeValue(buffer, element);
+
+                    if (ndjson)
+                    {
+                        buffer.write('\n');
+                    }
+
+                    count++;
+
+                    pending = buffer.toByteBuffer();
+
+                    write();
+
+                } catch (IOException | RuntimeException e)
+                {
+                    failed(e);
+                }
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+
+            execute(() -> failed(throwable));
+        }
+
+        @Override
+        public void onComplete()
+        {
+
+            execute(() -> {
+
+                if (done)
+                {
+                    return;
+                }
+
+                completed = true;
+
+                if (pending == null)
+                {
+                    try
+                    {
+                        finish();
+
+                    } catch (IOException e)
+                    {
+                        failed(e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void handleEvent(StreamSinkChannel channel)
+        {
+
+            channel.suspendWrites();
+
+            try
+            {
+                write();
+
+            } catch (IOException e)
+            {
+                failed(e);
+            }
+        }
+
+        /**
+         * Write the pending element and request the next one once it has been written
+         */
+        private void write() throws IOException
+        {
+
+            if (done)
+            {
+                return;
+            }
+
+            if (channel == null)
+            {
+                // the channel is only taken when the first element is written, so a failure before that can still be sent as an error response
+                channel = exchange.getResponseChannel();
+
+                channel.getWriteSetter().set(this);
+            }
+
+            while (pending.hasRemaining())
+            {
+                if (channel.write(pending) == 0)
+                {
+                    channel.resumeWrites();
+                    return;
+                }
+            }
+
+            pending = null;
+
+            if (completed)
+            {
+                finish();
+            }
+            else
+            {
+                subscription.request(1);
+            }
+        }
+
+        private void finish() throws IOException
+        {
+
+            if (!ndjson && !closed)
+            {
+                closed = true;
+
+                buffer.reset();
+
+                if (count == 0)
+                {
+                    buffer.write('[');
+                }
+
+                buffer.write(']');
+
+                pending = buffer.toByteBuffer();
+
+                write();
+                return;
+            }
+
+            done = true;
+
+            exchange.endExchange();
+        }
+
+        private void failed(Throwable t)
+        {
+
+            if (done)
+            {
+                return;
+            }
+
+            done = true;
+
+            if (subscription != null)
+            {
+                subscription.cancel();
+            }
+
+            fail(exchange, t, channel != null);
+        }
+
+        private void execute(Runnable task)
+        {
+
+            exchange.getIoThread().execute(task);
+        }
+    }
+
+}
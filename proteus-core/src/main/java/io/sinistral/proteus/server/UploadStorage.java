@@ -0,0 +1,139 @@
+package io.sinistral.proteus.server;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import io.sinistral.proteus.utilities.DataUtilities;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.form.FormData;
+import io.undertow.util.AttachmentKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Where uploaded files are stored and how they are handed to endpoints.
+ * <p>
+ * Multipart uploads that exceed the buffered request size are written to the configured directory by the form parser,
+ * which deletes them when the exchange completes. Uploads kept in memory are only written to a file in the same
+ * directory when a parameter asks for a {@link Path} or {@link java.io.File}, once per exchange, and that file is also
+ * deleted when the exchange completes. Uploads are bound to {@link ByteBuffer} parameters as heap buffers. With a
+ * mapped threshold, disk backed uploads of at least that size are bound as read-only memory mapped views instead, which
+ * do not support {@link ByteBuffer#array()}.
+ */
+@Singleton
+public class UploadStorage
+{
+
+    private static final Logger log = LoggerFactory.getLogger(UploadStorage.class.getCanonicalName());
+
+    private static final AttachmentKey<Map<FormData.FileItem, Path>> FILES_KEY = AttachmentKey.create(Map.class);
+
+    private final Path directory;
+
+    private final long mappedThreshold;
+
+    @Inject
+    public UploadStorage(@Named("application.uploads.path") String path, @Named("application.uploads.mappedThreshold") long mappedThreshold) throws IOException
+    {
+
+        this.directory = Files.createDirectories(Path.of(path));
+        this.mappedThreshold = mappedThreshold;
+    }
+
+    /**
+     * @return the directory uploads are stored in
+     */
+    public Path getDirectory()
+    {
+
+        return directory;
+    }
+
+    /**
+     * @param exchange the exchange the item was uploaded with
+     * @param fileItem an uploaded item
+     * @return the file of the item, valid until the exchange completes
+     * @throws IOException if an item kept in memory could not be written to a file
+     */
+    public Path path(HttpServerExchange exchange, FormData.FileItem fileItem) throws IOException
+    {
+
+        if (!fileItem.isInMemory())
+        {
+            return fileItem.getFile();
+        }
+
+        Map<FormData.FileItem, Path> files = exchange.getAttachment(FILES_KEY);
+
+        if (files == null)
+        {
+            final Map<FormData.FileItem, Path> created = new IdentityHashMap<>();
+
+            exchange.putAttachment(FILES_KEY, created);
+
+            exchange.addExchangeCompleteListener((ex, next) -> {
+
+                created.values().forEach(UploadStorage::delete);
+
+                next.proceed();
+            });
+
+            files = created;
+        }
+
+        Path path = files.get(fileItem);
+
+        if (path == null)
+        {
+            path = Files.createTempFile(directory, "upload", null);
+
+            files.put(fileItem, path);
+
+            DataUtilities.writeStreamToPath(fileItem.getInputStream(), path);
+        }
+
+        return path;
+    }
+
+    /**
+     * @param fileItem an uploaded item
+     * @return the content of the item, a read-only mapped view for disk backed items of at least the mapped threshold
+     * @throws IOException if the item could not be read
+     */
+    public ByteBuffer buffer(FormData.FileItem fileItem) throws IOException
+    {
+
+        if (fileItem.isInMemory())
+        {
+            return ByteBuffer.wrap(fileItem.getInputStream().readAllBytes());
+        }
+
+        if (mappedThreshold > 0 && fileItem.getFileSize() >= mappedThreshold)
+        {
+            return DataUtilities.mapFile(fileItem.getFile());
+        }
+
+        return DataUtilities.readAllBytes(fileItem.getFile());
+    }
+
+    private static void delete(Path path)
+    {
+
+        try
+        {
+            Files.deleteIfExists(path);
+
+        } catch (IOException e)
+        {
+            log.warn("Failed to delete upload {}", path, e);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.sinistral.proteus.server.ServerRequest;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.form.FormDataParser;
+
+/**
+ * Parses URL-encoded and multipart form bodies with {@link FormDataParser#parse(HttpHandler)} before the endpoint handler
+ * runs, so no worker thread is held while a form is received.
+ * <p>
+ * The parser reads the body as it arrives and invokes the next handler once the form is complete, with its fields added
+ * to the query parameters as {@link ServerRequest#readBody(HttpServerExchange)} would. Requests without a form body, or
+ * exchanges that are already blocking, are passed on unchanged.
+ */
+public class FormBodyHandler implements HttpHandler
+{
+
+    private final HttpHandler next;
+
+    public FormBodyHandler(HttpHandler next)
+    {
+
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception
+    {
+
+        final FormDataParser parser = exchange.isBlocking() || exchange.isRequestComplete() ? null : ServerRequest.createFormParser(exchange);
+
+        if (parser == null)
+        {
+            next.handleRequest(exchange);
+            return;
+        }
+
+        parser.parse(ex -> {
+
+            ServerRequest.formParsed(ex, ex.getAttachment(FormDataParser.FORM_DATA));
+
+            next.handleRequest(ex);
+        });
+    }
+
+}
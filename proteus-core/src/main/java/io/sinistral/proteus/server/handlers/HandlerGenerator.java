@@ -4,6 +4,7 @@
 package io.sinistral.proteus.server.handlers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.reflect.Invokable;
 import com.google.common.reflect.TypeToken;
 import com.google.inject.Inject;
@@ -20,9 +21,14 @@ import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import io.sinistral.proteus.annotations.Blocking;
 import io.sinistral.proteus.annotations.Debug;
+import io.sinistral.proteus.annotations.MaxBodySize;
+import io.sinistral.proteus.annotations.SSE;
 import io.sinistral.proteus.server.Extractors;
 import io.sinistral.proteus.server.ServerRequest;
 import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerSentEvent;
+import io.sinistral.proteus.server.ServerSentEventResponse;
+import io.sinistral.proteus.server.StreamingResponse;
 import io.sinistral.proteus.server.endpoints.EndpointInfo;
 import io.sinistral.proteus.utilities.ClassUtilities;
 import io.undertow.server.HandlerWrapper;
@@ -33,7 +39,6 @@ import io.undertow.server.handlers.form.FormEncodedDataDefinition;
 import io.undertow.server.handlers.form.MultiPartParserDefinition;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
-import net.openhft.compiler.CachedCompiler;
 import org.apache.commons.lang3.StringUtils;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
@@ -48,6 +53,7 @@ import javax.ws.rs.core.MediaType;
 import java.io.File;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
@@ -58,15 +64,20 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
@@ -114,6 +125,10 @@ public class HandlerGenerator {
 
     protected String sourceString;
 
+    @Inject
+    @Named("application.handlers.streamingJson")
+    protected boolean streamingJson;
+
     @Inject
     @Named("registeredEndpoints")
     protected Set<EndpointInfo> registeredEndpoints;
@@ -155,6 +170,56 @@ public class HandlerGenerator {
         return canonicalName;
     }
 
+    /**
+     * Describes the endpoints of the controller without generating or registering handlers
+     *
+     * @return the endpoint of every method annotated with {@link javax.ws.rs.Path}
+     */
+    public List<EndpointInfo> generateEndpointInfo()
+    {
+
+        return Arrays.stream(this.controllerClass.getDeclaredMethods())
+                     .filter(m -> m.getAnnotation(javax.ws.rs.Path.class) != null)
+                     .sorted(Comparator.comparing(Method::getName).thenComparing(Method::toGenericString))
+                     .map(this::endpointInfo)
+                     .filter(Objects::nonNull)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @param m a controller method annotated with {@link javax.ws.rs.Path}
+     * @return the endpoint for the method or null if its path cannot be parsed
+     */
+    protected EndpointInfo endpointInfo(Method m)
+    {
+
+        EndpointInfo endpointInfo = new EndpointInfo();
+
+        javax.ws.rs.Produces producesAnnotation = Optional.ofNullable(m.getAnnotation(javax.ws.rs.Produces.class)).orElse(controllerClass.getAnnotation(javax.ws.rs.Produces.class));
+
+        javax.ws.rs.Consumes consumesAnnotation = Optional.ofNullable(m.getAnnotation(javax.ws.rs.Consumes.class)).orElse(controllerClass.getAnnotation(javax.ws.rs.Consumes.class));
+
+        String methodPath;
+
+        try
+        {
+            methodPath = Extractors.pathTemplateFromMethod.apply(m).replaceAll("\\/\\/", "\\/");
+        } catch (Exception e)
+        {
+            log.error("Error parsing method path for {}", m.getName(), e);
+            return null;
+        }
+
+        endpointInfo.setControllerName(controllerClass.getSimpleName());
+        endpointInfo.setControllerMethod(m.getName());
+        endpointInfo.setProduces(producesAnnotation != null ? Arrays.stream(producesAnnotation.value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.joining(",")) : "*/*");
+        endpointInfo.setConsumes(consumesAnnotation != null ? Arrays.stream(consumesAnnotation.value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.joining(",")) : "*/*");
+        endpointInfo.setMethod(Extractors.httpMethodFromMethod.apply(m));
+        endpointInfo.setPathTemplate(applicationPath + methodPath);
+
+        return endpointInfo;
+    }
+
     /**
      * Generates the routing Java source code
      */
@@ -232,9 +297,14 @@ public class HandlerGenerator {
         HashSet<String> handlerNameSet = new HashSet<>();
 
         MethodSpec.Builder initBuilder = MethodSpec.methodBuilder("get").addModifiers(Modifier.PUBLIC).returns(RoutingHandler.class)
-                                                   .addStatement("final $T router = new $T()", io.undertow.server.RoutingHandler.class, io.undertow.server.RoutingHandler.class);
+                                                   .addStatement("final $T router = new $T()", io.undertow.server.RoutingHandler.class, ProteusRoutingHandler.class);
 
-        final Map<Type, String> parameterizedLiteralsNameMap = Arrays.stream(clazz.getDeclaredMethods())
+        // declared methods are returned in no particular order, sort them so the generated source is reproducible
+        final Method[] declaredMethods = Arrays.stream(clazz.getDeclaredMethods())
+                                               .sorted(Comparator.comparing(Method::getName).thenComparing(Method::toGenericString))
+                                               .toArray(Method[]::new);
+
+        final Map<Type, String> parameterizedLiteralsNameMap = Arrays.stream(declaredMethods)
                                                                      .filter(m -> m.getAnnotation(Path.class) != null)
                                                                      .flatMap(
                                                                              m -> Arrays.stream(m.getParameters()).map(Parameter::getParameterizedType)
@@ -245,11 +315,11 @@ public class HandlerGenerator {
                     TypeHandler handler = TypeHandler.forType(t);
                     return (handler.equals(TypeHandler.ModelType) || handler.equals(TypeHandler.OptionalModelType) || handler.equals(TypeHandler.NamedModelType) || handler.equals(TypeHandler.OptionalNamedModelType));
 
-                }).collect(Collectors.toMap(java.util.function.Function.identity(), ClassUtilities::typeReferenceNameForParameterizedType));
+                }).collect(Collectors.toMap(java.util.function.Function.identity(), ClassUtilities::typeReferenceNameForParameterizedType, (t1, t2) -> t1, LinkedHashMap::new));
 
         java.util.regex.Pattern internalTypesPattern = java.util.regex.Pattern.compile("concurrent|<");
 
-        final Map<String, TypeToken<?>> googleParameterTypeTokens = Arrays.stream(clazz.getDeclaredMethods())
+        final Map<String, TypeToken<?>> googleParameterTypeTokens = Arrays.stream(declaredMethods)
                                                                           .filter(m -> m.getAnnotation(Path.class) != null)
                                                                           .flatMap(
                                                                                   m -> Invokable.from(m).getParameters().stream())
@@ -257,7 +327,7 @@ public class HandlerGenerator {
                                                                           .distinct().collect(Collectors.toMap(p -> p.getType().toString(), com.google.common.reflect.Parameter::getType, (p1, p2) -> p1));
 
 //log.info("googleParameterTypeTokens: {}",googleParameterTypeTokens);
-        Arrays.stream(clazz.getDeclaredMethods())
+        Arrays.stream(declaredMethods)
               .filter(m -> m.getAnnotation(Path.class) != null)
               .forEach(m -> {
                   Invokable<?, Object> invokable = Invokable.from(m);
@@ -278,7 +348,7 @@ public class HandlerGenerator {
                   // typeTokenMap.put(m.getReturnType().getTypeName(),invokable.getReturnType());
               });
 
-        Arrays.stream(clazz.getDeclaredMethods())
+        Arrays.stream(declaredMethods)
               .filter(m -> m.getAnnotation(Path.class) != null)
               .flatMap(m -> Arrays.stream(m.getParameters()))
               .forEach(p ->
@@ -306,7 +376,7 @@ public class HandlerGenerator {
 
               });
 
-        final Map<Type, String> literalsNameMap = Arrays.stream(clazz.getDeclaredMethods())
+        final Map<Type, String> literalsNameMap = Arrays.stream(declaredMethods)
                                                         .filter(m -> m.getAnnotation(Path.class) != null)
                                                         .flatMap(m -> Arrays.stream(m.getParameters())
                                                                             .map(Parameter::getParameterizedType)).filter(t ->
@@ -356,7 +426,7 @@ public class HandlerGenerator {
 
                 })
                                                         .distinct()
-                                                        .collect(Collectors.toMap(java.util.function.Function.identity(), HandlerGenerator::typeReferenceNameForType));
+                                                        .collect(Collectors.toMap(java.util.function.Function.identity(), HandlerGenerator::typeReferenceNameForType, (t1, t2) -> t1, LinkedHashMap::new));
 
         parameterizedLiteralsNameMap
                 .forEach((t, n) -> initBuilder.addStatement("final $T<$L> $LTypeReference = new $T<$L>(){}", TypeReference.class, t, n.replaceAll("[<>]+", ""), TypeReference.class, t));
@@ -390,8 +460,6 @@ public class HandlerGenerator {
 
         initBuilder.addCode("$L", "\n");
 
-        List<String> consumesContentTypes;
-        List<String> producesContentTypes;
 
         /*
          * Controller Level Authorization
@@ -428,7 +496,7 @@ public class HandlerGenerator {
 
         int nameIndex = 1;
 
-        for (Method m : clazz.getDeclaredMethods())
+        for (Method m : declaredMethods)
         {
 
             if (!Optional.ofNullable(m.getAnnotation(javax.ws.rs.Path.class)).isPresent())
@@ -438,10 +506,18 @@ public class HandlerGenerator {
 
             //   log.debug("\n\nScanning method: {}\n", m.getName());
 
-            EndpointInfo endpointInfo = new EndpointInfo();
+            EndpointInfo endpointInfo = endpointInfo(m);
+
+            if (endpointInfo == null)
+            {
+                continue;
+            }
+
+            String producesContentType = endpointInfo.getProduces();
 
-            String producesContentType = "*/*";
-            String consumesContentType = "*/*";
+            String methodPath = endpointInfo.getPathTemplate();
+
+            HttpString httpMethod = endpointInfo.getMethod();
 
             boolean isBlocking = false;
             boolean isDebug = false;
@@ -460,72 +536,6 @@ public class HandlerGenerator {
                 isDebug = debugAnnotation.get().value();
             }
 
-            Optional<javax.ws.rs.Produces> producesAnnotation = Optional.ofNullable(m.getAnnotation(javax.ws.rs.Produces.class));
-
-            if (producesAnnotation.isEmpty())
-            {
-                producesAnnotation = Optional.ofNullable(clazz.getAnnotation(javax.ws.rs.Produces.class));
-
-                if (producesAnnotation.isPresent())
-                {
-
-                    producesContentTypes = Arrays.stream(producesAnnotation.get().value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.toList());
-
-                    producesContentType = String.join(",", producesContentTypes);
-                }
-
-            }
-            else
-            {
-
-                producesContentTypes = Arrays.stream(producesAnnotation.get().value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.toList());
-
-                producesContentType = producesContentTypes.stream().collect(Collectors.joining(","));
-            }
-
-            endpointInfo.setProduces(producesContentType);
-
-            Optional<javax.ws.rs.Consumes> consumesAnnotation = Optional.ofNullable(m.getAnnotation(javax.ws.rs.Consumes.class));
-
-            if (consumesAnnotation.isEmpty())
-            {
-                consumesAnnotation = Optional.ofNullable(clazz.getAnnotation(javax.ws.rs.Consumes.class));
-
-                if (consumesAnnotation.isPresent())
-                {
-                    consumesContentTypes = Arrays.stream(consumesAnnotation.get().value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.toList());
-
-                    consumesContentType = String.join(",", consumesContentTypes);
-                }
-            }
-            else
-            {
-                consumesContentTypes = Arrays.stream(consumesAnnotation.get().value()).flatMap(v -> Arrays.stream((v.split(",")))).collect(Collectors.toList());
-
-                consumesContentType = String.join(",", consumesContentTypes);
-            }
-
-            endpointInfo.setControllerName(clazz.getSimpleName());
-
-            String methodPath;
-
-            try
-            {
-                methodPath = Extractors.pathTemplateFromMethod.apply(m).replaceAll("\\/\\/", "\\/");
-            } catch (Exception e)
-            {
-                log.error("Error parsing method path for {}", m.getName(), e);
-                continue;
-            }
-
-            methodPath = applicationPath + methodPath;
-
-            HttpString httpMethod = Extractors.httpMethodFromMethod.apply(m);
-
-            endpointInfo.setMethod(httpMethod);
-
-            endpointInfo.setConsumes(consumesContentType);
-
             //The handler for these two inputs types is blocking, so we set the flag
             if (endpointInfo.getConsumes().contains(FormEncodedDataDefinition.APPLICATION_X_WWW_FORM_URLENCODED)
                     || endpointInfo.getConsumes().contains(MultiPartParserDefinition.MULTIPART_FORM_DATA))
@@ -533,10 +543,6 @@ public class HandlerGenerator {
                 isBlocking = true;
             }
 
-            endpointInfo.setPathTemplate(methodPath);
-
-            endpointInfo.setControllerMethod(m.getName());
-
             String handlerName = String.format("%c%s%sHandler_%s", Character.toLowerCase(clazz.getSimpleName().charAt(0)), clazz.getSimpleName()
                                                                                                                                 .substring(1), StringUtils.capitalize(m.getName()), String.valueOf(nameIndex++));
 
@@ -615,6 +621,11 @@ public class HandlerGenerator {
 
             }
 
+            if (readsBody(m))
+            {
+                methodBuilder.addStatement("$T.readBody(exchange)", ServerRequest.class);
+            }
+
             List<Parameter> parameters = Arrays.stream(m.getParameters()).collect(Collectors.toList());
 
             //   log.debug("parameterizedLiteralsNameMap: " + parameterizedLiteralsNameMap);
@@ -762,13 +773,18 @@ public class HandlerGenerator {
 
                                     String pTypeName = type.getTypeName() + ".class";
 
-                                    methodBuilder.addStatement(t.statement, type.getTypeName(), p.getName(), io.sinistral.proteus.server.Extractors.Optional.class, pTypeName);
+                                    String readerName = addModelReader(initBuilder, handlerName, p, pTypeName);
+
+                                    methodBuilder.addStatement(t.statement, type.getTypeName(), p.getName(), io.sinistral.proteus.server.Extractors.Optional.class, pTypeName, readerName);
 
                                 }
                                 else
                                 {
                                     String pType = interfaceType != null ? interfaceType + "TypeReference" : typeName + ".class";
-                                    methodBuilder.addStatement(t.statement, type, p.getName(), pType);
+
+                                    String readerName = addModelReader(initBuilder, handlerName, p, pType);
+
+                                    methodBuilder.addStatement(t.statement, type, p.getName(), pType, readerName);
                                 }
 
                             }
@@ -801,7 +817,9 @@ public class HandlerGenerator {
 
                                 String pType = interfaceType != null ? interfaceType + "TypeReference" : typeName + ".class";
 
-                                methodBuilder.addStatement(t.statement, type, p.getName(), pType);
+                                String readerName = addModelReader(initBuilder, handlerName, p, pType);
+
+                                methodBuilder.addStatement(t.statement, type, p.getName(), pType, readerName);
 
                             }
                             else if (t.equals(TypeHandler.OptionalFromStringType) || t.equals(TypeHandler.OptionalValueOfType))
@@ -891,21 +909,33 @@ public class HandlerGenerator {
 
                 methodBuilder.addCode("$L", "\n");
 
-                if (m.getReturnType().equals(ServerResponse.class))
+                String writerName = addEntityWriter(initBuilder, handlerName, m);
+
+                if (sendsEvents(m, producesContentType))
+                {
+                    methodBuilder.addStatement("$T.send($L, $L, $L)", ServerSentEventResponse.class, "exchange", "response", writerName);
+                }
+                else if (streamsResponse(m))
+                {
+                    methodBuilder.addStatement("$T.send($L, $L, $L, $S)", StreamingResponse.class, "exchange", "response", writerName, producesContentType);
+                }
+                else if (m.getReturnType().equals(ServerResponse.class))
                 {
-                    methodBuilder.addStatement("$L.send($L)", "response", "exchange");
+                    if (writerName != null)
+                    {
+                        methodBuilder.addStatement("$L.entityWriter($L).send($L)", "response", writerName, "exchange");
+                    }
+                    else
+                    {
+                        methodBuilder.addStatement("$L.send($L)", "response", "exchange");
+                    }
 
                 }
                 else if ((m.getGenericReturnType().toString().contains("java.util.concurrent.CompletionStage") && m.getGenericReturnType().toString().contains("ServerResponse"))
                         || (m.getGenericReturnType().toString().contains("java.util.concurrent.CompletableFuture") && m.getGenericReturnType().toString().contains("ServerResponse")))
 
                 {
-                    methodBuilder.addCode("exchange.dispatch( exchange.getConnection().getWorker(), () -> ");
-                    methodBuilder.beginControlFlow("", "");
-
-                    methodBuilder.addCode(
-                            "$L.whenComplete( (r,ex) -> ",
-                            "response");
+                    methodBuilder.addCode("$T.whenComplete($L, $L, (r,ex) -> ", ServerResponse.class, "exchange", "response");
                     methodBuilder.beginControlFlow("", "");
 
                     methodBuilder.beginControlFlow("if(ex != null)");
@@ -913,10 +943,16 @@ public class HandlerGenerator {
                     methodBuilder.addCode("\t\texchange.setResponseCode(500);\n\t");
                     methodBuilder.addCode("\t\texchange.endExchange();\n\t");
                     methodBuilder.nextControlFlow("else");
-                    methodBuilder.addCode("\t\tr.send($L);", "exchange");
+                    if (writerName != null)
+                    {
+                        methodBuilder.addCode("\t\tr.entityWriter($L).send($L);", writerName, "exchange");
+                    }
+                    else
+                    {
+                        methodBuilder.addCode("\t\tr.send($L);", "exchange");
+                    }
                     methodBuilder.endControlFlow();
                     methodBuilder.endControlFlow(")", "");
-                    methodBuilder.endControlFlow(")", "");
 
                 }
                 else if (m.getReturnType().getTypeName().contains("java.util.concurrent.CompletionStage")
@@ -949,12 +985,7 @@ public class HandlerGenerator {
                         }
                     }
 
-                    methodBuilder.addCode("exchange.dispatch( exchange.getConnection().getWorker(), () -> ");
-                    methodBuilder.beginControlFlow("", "");
-
-                    methodBuilder.addCode(
-                            "$L.whenComplete( (r,ex) -> ",
-                            "response");
+                    methodBuilder.addCode("$T.whenComplete($L, $L, (r,ex) -> ", ServerResponse.class, "exchange", "response");
                     methodBuilder.beginControlFlow("", "");
 
                     methodBuilder.beginControlFlow("if(ex != null)");
@@ -962,12 +993,17 @@ public class HandlerGenerator {
                     methodBuilder.addCode("\texchange.setResponseCode(500);\n");
                     methodBuilder.addCode("\texchange.endExchange();\n");
                     methodBuilder.nextControlFlow("else");
-                    methodBuilder.addCode("\t\tio.sinistral.proteus.server.ServerResponse.response(r)" + postProcess + "send($L);", "exchange");
+                    if (writerName != null)
+                    {
+                        methodBuilder.addCode("\t\tio.sinistral.proteus.server.ServerResponse.response(r)" + postProcess + "entityWriter($L).send($L);", writerName, "exchange");
+                    }
+                    else
+                    {
+                        methodBuilder.addCode("\t\tio.sinistral.proteus.server.ServerResponse.response(r)" + postProcess + "send($L);", "exchange");
+                    }
                     methodBuilder.endControlFlow();
                     methodBuilder.endControlFlow(")", "");
 
-                    methodBuilder.endControlFlow(")", "");
-
                 }
                 else
                 {
@@ -1052,13 +1088,39 @@ public class HandlerGenerator {
                 securityDefinitions.addAll(typeLevelSecurityDefinitions);
             }
 
+            String bodyHandlerName = streamingJson && JsonBodyHandler.supports(m) ? "new io.sinistral.proteus.server.handlers.JsonBodyHandler(" + handlerName + ")" : "new io.undertow.server.handlers.RequestBufferingHandler.Wrapper(8).wrap(" + handlerName + ")";
+
+            if (readsBody(m))
+            {
+                bodyHandlerName = "new io.sinistral.proteus.server.handlers.FormBodyHandler(" + bodyHandlerName + ")";
+            }
+
+            if (streamsBody(m))
+            {
+                bodyHandlerName = handlerName;
+            }
+
+            final long maxBodySize = maxBodySize(m);
+
+            if (maxBodySize > 0 || (readsBody(m) || streamsBody(m)) && MaxBodySizeHandler.hasConfiguredLimits())
+            {
+                if (isBlocking)
+                {
+                    bodyHandlerName = "new io.sinistral.proteus.server.handlers.MaxBodySizeHandler(" + bodyHandlerName + ", " + maxBodySize + "L)";
+                }
+                else
+                {
+                    handlerName = "new io.sinistral.proteus.server.handlers.MaxBodySizeHandler(" + handlerName + ", " + maxBodySize + "L)";
+                }
+            }
+
             if (isBlocking && isDebug)
             {
-                handlerName = "new io.undertow.server.handlers.RequestDumpingHandler(new io.undertow.server.handlers.RequestBufferingHandler.Wrapper(8).wrap(" + handlerName + "))";
+                handlerName = "new io.undertow.server.handlers.RequestDumpingHandler(" + bodyHandlerName + ")";
             }
             else if (isBlocking)
             {
-                handlerName = "new io.undertow.server.handlers.RequestBufferingHandler.Wrapper(8).wrap(" + handlerName + ")";
+                handlerName = bodyHandlerName;
 
             }
             else if (isDebug)
@@ -1342,85 +1404,243 @@ public class HandlerGenerator {
         return m.find();
     }
 
-    protected static void generateTypeReference(MethodSpec.Builder builder, Type type, String name)
+    /**
+     * @return true if a parameter of the method is bound from the request body, otherwise its handler never reads the body
+     */
+    protected static boolean readsBody(Method method)
     {
 
-        builder.addCode(
-                CodeBlock
-                        .of("\n\ncom.fasterxml.jackson.core.type.TypeReference<$T> $L = new com.fasterxml.jackson.core.type.TypeReference<$L>(){};\n\n", type, name, type));
+        if (streamsBody(method))
+        {
+            return false;
+        }
+
+        for (Parameter p : method.getParameters())
+        {
+            if (p.getType().equals(ServerRequest.class) || p.getType().equals(HttpServerExchange.class) || p.getType().equals(HttpHandler.class))
+            {
+                continue;
+            }
+
+            if (p.isAnnotationPresent(FormParam.class) || p.isAnnotationPresent(BeanParam.class) || TypeHandler.forType(p.getParameterizedType(), false).isBlocking())
+            {
+                return true;
+            }
+        }
 
+        return false;
     }
 
-    protected static void generateParameterReference(MethodSpec.Builder builder, Class<?> clazz)
+    /**
+     * @return true if a parameter of the method streams the request body, then the body is neither buffered nor parsed before the handler runs
+     */
+    protected static boolean streamsBody(Method method)
     {
 
-        builder.addCode(CodeBlock.of("\n\nType $LType = $T.", clazz, clazz));
+        for (Parameter p : method.getParameters())
+        {
+            if (p.getType().equals(ServerRequest.class) || p.getType().equals(HttpServerExchange.class) || p.getType().equals(HttpHandler.class))
+            {
+                continue;
+            }
+
+            if (TypeHandler.forType(p.getParameterizedType(), p.getAnnotation(BeanParam.class) != null).isStreaming())
+            {
+                return true;
+            }
+        }
 
+        return false;
     }
 
-    protected static java.nio.file.Path generateSourcePath(Class<?> clazz) {
+    /**
+     * @return true if the method returns a {@link Stream}, {@link Iterator} or {@link Flow.Publisher} whose elements are sent as they are produced
+     */
+    protected static boolean streamsResponse(Method method)
+    {
 
-        return java.nio.file.Paths.get(clazz.getPackageName().replaceAll("[.$]", "/"));
+        Class<?> returnType = method.getReturnType();
+
+        return Stream.class.isAssignableFrom(returnType) || Iterator.class.isAssignableFrom(returnType) || Flow.Publisher.class.isAssignableFrom(returnType);
+    }
+
+    /**
+     * @return true if the method returns a {@link Flow.Publisher} whose elements are sent as server-sent events
+     */
+    protected static boolean sendsEvents(Method method, String producesContentType)
+    {
 
+        return Flow.Publisher.class.isAssignableFrom(method.getReturnType()) && (method.isAnnotationPresent(SSE.class) || (producesContentType != null && producesContentType.contains(MediaType.SERVER_SENT_EVENTS)));
     }
 
-    protected java.nio.file.Path getPackageSourcePath() {
+    /**
+     * @return the limit of the {@link MaxBodySize} annotation of the method or its class, 0 if neither has one
+     */
+    protected static long maxBodySize(Method method)
+    {
 
-        return java.nio.file.Paths.get(getPackageName().replaceAll("[.$]", "/"));
+        final MaxBodySize maxBodySize = Optional.ofNullable(method.getAnnotation(MaxBodySize.class)).orElse(method.getDeclaringClass().getAnnotation(MaxBodySize.class));
 
+        return maxBodySize != null ? maxBodySize.value() : 0;
     }
 
-    protected CachedCompiler getCachedCompiler() {
+    /**
+     * Declare a JSON reader for a model parameter of a handler
+     *
+     * @return the name of the reader
+     */
+    protected static String addModelReader(MethodSpec.Builder builder, String handlerName, Parameter parameter, String typeLiteral)
+    {
+
+        String readerName = handlerName + StringUtils.capitalize(parameter.getName()) + "Reader";
 
-        java.nio.file.Path rootPath = Paths.get(System.getProperty("user.dir"));
+        builder.addStatement("final $T $L = $T.jsonReader($L)", ObjectReader.class, readerName, Extractors.class, typeLiteral);
 
-        if (!rootPath.resolve("src").toFile().exists())
+        return readerName;
+    }
+
+    /**
+     * Declare a JSON writer for the response entity of a handler
+     *
+     * @return the name of the writer or null if the method's responses are not written with a typed writer
+     */
+    protected static String addEntityWriter(MethodSpec.Builder builder, String handlerName, Method method)
+    {
+
+        Type entityType = responseEntityType(method);
+
+        if (entityType == null)
         {
-            return new CachedCompiler(null, null);
+            return null;
         }
 
-        try
-        {
+        String writerName = handlerName + "Writer";
 
-            java.nio.file.Path targetPath = rootPath.resolve("target");
+        builder.addStatement("final $T $L = $T.entityWriter(new $T<$T>(){})", ServerResponse.EntityWriter.class, writerName, ServerResponse.class, TypeReference.class, entityType);
 
-            if (!targetPath.toFile().exists())
-            {
-                File file = targetPath.toFile();
-                file.mkdir();
-            }
+        return writerName;
+    }
+
+    /**
+     * @return the declared entity type of a method's {@link ServerResponse}, of the value its future completes with or of the
+     * elements it streams, or null if it is unknown or not serialized as a model
+     */
+    public static Type responseEntityType(Method method)
+    {
+
+        Type type = method.getGenericReturnType();
+
+        boolean isFuture = CompletionStage.class.isAssignableFrom(method.getReturnType());
 
-            java.nio.file.Path sourcePath = targetPath.resolve("generated-sources");
+        boolean isElements = streamsResponse(method);
 
-            if (!sourcePath.toFile().exists())
+        if (isFuture || isElements)
+        {
+            if (!(type instanceof ParameterizedType))
             {
-                File file = sourcePath.toFile();
-                file.mkdir();
+                return null;
             }
 
-            java.nio.file.Path classPath = targetPath.resolve("generated-classes");
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
 
-            if (!classPath.toFile().exists())
-            {
-                File file = classPath.toFile();
-                file.mkdir();
+        Class<?> rawType = rawType(type);
 
+        if (ServerResponse.class.equals(rawType) && !isElements)
+        {
+            if (!(type instanceof ParameterizedType))
+            {
+                return null;
             }
 
-            java.nio.file.Path packagePath = getPackageSourcePath();
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        else if (!isFuture && !isElements)
+        {
+            return null;
+        }
+
+        rawType = rawType(type);
 
-            if (!packagePath.toFile().exists())
+        if (isElements && ServerSentEvent.class.equals(rawType))
+        {
+            if (!(type instanceof ParameterizedType))
             {
-                packagePath.toFile().mkdirs();
+                return null;
             }
 
-            return new CachedCompiler(sourcePath.toFile(), classPath.toFile());
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
 
-        } catch (Exception e)
+        rawType = rawType(type);
+
+        if (rawType == null || !isResolvedType(type) || rawType.equals(Object.class) || rawType.equals(Void.class) || CharSequence.class.isAssignableFrom(rawType) || java.nio.ByteBuffer.class.isAssignableFrom(rawType))
+        {
+            return null;
+        }
+
+        if (java.lang.reflect.Modifier.isAbstract(rawType.getModifiers()) && !Collection.class.isAssignableFrom(rawType) && !Map.class.isAssignableFrom(rawType) && !Optional.class.equals(rawType))
+        {
+            return null;
+        }
+
+        return type;
+    }
+
+    private static Class<?> rawType(Type type)
+    {
+
+        if (type instanceof Class)
+        {
+            return (Class<?>) type;
+        }
+        else if (type instanceof ParameterizedType)
         {
-            return new CachedCompiler(null, null);
+            return rawType(((ParameterizedType) type).getRawType());
         }
 
+        return null;
+    }
+
+    private static boolean isResolvedType(Type type)
+    {
+
+        if (type instanceof Class)
+        {
+            return true;
+        }
+        else if (type instanceof ParameterizedType)
+        {
+            return Arrays.stream(((ParameterizedType) type).getActualTypeArguments()).allMatch(HandlerGenerator::isResolvedType);
+        }
+        else if (type instanceof GenericArrayType)
+        {
+            return isResolvedType(((GenericArrayType) type).getGenericComponentType());
+        }
+
+        return false;
+    }
+
+    protected static void generateTypeReference(MethodSpec.Builder builder, Type type, String name)
+    {
+
+        builder.addCode(
+                CodeBlock
+                        .of("\n\ncom.fasterxml.jackson.core.type.TypeReference<$T> $L = new com.fasterxml.jackson.core.type.TypeReference<$L>(){};\n\n", type, name, type));
+
+    }
+
+    protected static void generateParameterReference(MethodSpec.Builder builder, Class<?> clazz)
+    {
+
+        builder.addCode(CodeBlock.of("\n\nType $LType = $T.", clazz, clazz));
+
+    }
+
+    protected static java.nio.file.Path generateSourcePath(Class<?> clazz) {
+
+        return java.nio.file.Paths.get(clazz.getPackageName().replaceAll("[.$]", "/"));
+
     }
 
     protected static boolean hasValueOfMethod(Class<?> clazz)
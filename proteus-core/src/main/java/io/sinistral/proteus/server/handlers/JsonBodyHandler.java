@@ -0,0 +1,176 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.inject.Inject;
+import io.sinistral.proteus.server.ServerRequest;
+import io.sinistral.proteus.server.predicates.ServerPredicates;
+import io.undertow.io.Receiver;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ExceptionHandler;
+import io.undertow.util.SameThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.BeanParam;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Parses JSON request bodies on the IO thread while they are received, instead of buffering the whole body before the
+ * endpoint handler is dispatched.
+ * <p>
+ * Every chunk read from the request channel is fed to Jackson's non-blocking parser and its tokens are copied into a
+ * {@link TokenBuffer}, so the body is never held as a single byte array. Once the last chunk has been parsed the tokens
+ * are attached as {@link ServerRequest#JSON_TOKENS_KEY} and the next handler is dispatched, the
+ * {@link io.sinistral.proteus.server.Extractors} bind models from them. Requests without a JSON body are passed on
+ * unchanged.
+ */
+public class JsonBodyHandler implements HttpHandler
+{
+
+    private static final Logger log = LoggerFactory.getLogger(JsonBodyHandler.class.getCanonicalName());
+
+    private static final Set<TypeHandler> JSON_BODY_TYPES = EnumSet.of(TypeHandler.ModelType, TypeHandler.OptionalModelType, TypeHandler.BeanListValueOfType, TypeHandler.BeanListFromStringType, TypeHandler.JsonNodeType, TypeHandler.OptionalJsonNodeType, TypeHandler.AnyType, TypeHandler.OptionalAnyType);
+
+    private static final Set<TypeHandler> RAW_BODY_TYPES = EnumSet.of(TypeHandler.ByteBufferType, TypeHandler.OptionalByteBufferType);
+
+    @Inject
+    private static ObjectMapper OBJECT_MAPPER;
+
+    private final HttpHandler next;
+
+    public JsonBodyHandler(HttpHandler next)
+    {
+
+        this.next = next;
+    }
+
+    /**
+     * @param method an endpoint method
+     * @return true if the method binds the request body as JSON and does not need the raw body
+     */
+    public static boolean supports(Method method)
+    {
+
+        boolean bindsJson = false;
+
+        for (Parameter p : method.getParameters())
+        {
+            if (p.getType().equals(ServerRequest.class) || p.getType().equals(HttpServerExchange.class) || p.getType().equals(HttpHandler.class))
+            {
+                continue;
+            }
+
+            final TypeHandler handler = TypeHandler.forType(p.getParameterizedType(), p.getAnnotation(BeanParam.class) != null);
+
+            if (RAW_BODY_TYPES.contains(handler))
+            {
+                return false;
+            }
+
+            bindsJson = bindsJson || JSON_BODY_TYPES.contains(handler);
+        }
+
+        return bindsJson;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception
+    {
+
+        if (exchange.isRequestComplete() || exchange.getRequestContentLength() == 0 || !ServerPredicates.JSON_PREDICATE.resolve(exchange))
+        {
+            next.handleRequest(exchange);
+            return;
+        }
+
+        exchange.getRequestReceiver().receivePartialBytes(new JsonBodyReceiver(OBJECT_MAPPER.getFactory().createNonBlockingByteArrayParser()), (ex, e) -> {
+
+            ex.putAttachment(ExceptionHandler.THROWABLE, e);
+            ex.endExchange();
+        });
+    }
+
+    private final class JsonBodyReceiver implements Receiver.PartialBytesCallback
+    {
+
+        private final JsonParser parser;
+
+        private final ByteArrayFeeder feeder;
+
+        private TokenBuffer tokens;
+
+        private JsonBodyReceiver(JsonParser parser)
+        {
+
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.tokens = new TokenBuffer(parser);
+        }
+
+        @Override
+        public void handle(HttpServerExchange exchange, byte[] bytes, boolean last)
+        {
+
+            if (!parser.isClosed())
+            {
+                try
+                {
+                    feeder.feedInput(bytes, 0, bytes.length);
+
+                    if (last)
+                    {
+                        feeder.endOfInput();
+                    }
+
+                    JsonToken token;
+
+                    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+                    {
+                        tokens.copyCurrentEvent(parser);
+                    }
+
+                } catch (IOException e)
+                {
+                    log.error("Failed to parse JSON body", e);
+
+                    close(parser);
+
+                    // the remaining chunks are discarded, an empty buffer binds like an unparseable body
+                    tokens = new TokenBuffer(parser);
+                }
+            }
+
+            if (last)
+            {
+                close(parser);
+
+                exchange.putAttachment(ServerRequest.JSON_TOKENS_KEY, tokens);
+
+                exchange.dispatch(SameThreadExecutor.INSTANCE, next);
+            }
+        }
+    }
+
+    private static void close(JsonParser parser)
+    {
+
+        try
+        {
+            parser.close();
+
+        } catch (IOException e)
+        {
+            log.debug("Failed to close JSON parser", e);
+        }
+    }
+
+}
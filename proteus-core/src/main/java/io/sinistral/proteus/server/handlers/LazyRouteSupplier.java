@@ -0,0 +1,261 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.server.handlers.ExceptionHandler;
+import io.undertow.predicate.Predicate;
+import io.undertow.util.HttpString;
+import io.undertow.util.SameThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A {@code Supplier<RoutingHandler>} for a controller whose handlers are created on demand.
+ * <p>
+ * The supplied router contains a placeholder route for every endpoint of the controller. The first request to any of them,
+ * or a call to {@link #initialize()}, creates the real route supplier on the provided executor. Requests that arrive before
+ * it is ready are parked until it completes and are then passed to the real handler of their endpoint, which the placeholder
+ * is bound to from then on. The request has already been routed, so it is not matched again. Creation happens once, unless
+ * it fails, in which case the parked requests fail and the next request tries again.
+ */
+public class LazyRouteSupplier implements Supplier<RoutingHandler>
+{
+
+    private static final Logger log = LoggerFactory.getLogger(LazyRouteSupplier.class.getCanonicalName());
+
+    private final Class<?> controllerClass;
+
+    private final List<EndpointInfo> endpoints;
+
+    private final Supplier<Supplier<RoutingHandler>> routeSupplierFactory;
+
+    private final Executor executor;
+
+    private final AtomicReference<CompletableFuture<Map<String, HttpHandler>>> handlerFuture = new AtomicReference<>();
+
+    private volatile Map<String, HttpHandler> handlers;
+
+    /**
+     * @param controllerClass      the controller
+     * @param endpoints            the endpoints placeholder routes are registered for
+     * @param routeSupplierFactory creates the real route supplier for the controller
+     * @param executor             executor the route supplier is created on
+     */
+    public LazyRouteSupplier(Class<?> controllerClass, List<EndpointInfo> endpoints, Supplier<Supplier<RoutingHandler>> routeSupplierFactory, Executor executor)
+    {
+
+        this.controllerClass = controllerClass;
+        this.endpoints = endpoints;
+        this.routeSupplierFactory = routeSupplierFactory;
+        this.executor = executor;
+    }
+
+    @Override
+    public RoutingHandler get()
+    {
+
+        final RoutingHandler router = new ProteusRoutingHandler();
+
+        for (EndpointInfo endpoint : endpoints)
+        {
+            final String key = key(endpoint.getMethod(), endpoint.getPathTemplate());
+
+            router.add(endpoint.getMethod(), endpoint.getPathTemplate(), exchange -> handleRequest(exchange, key));
+        }
+
+        return router;
+    }
+
+    /**
+     * Start creating the controller's handlers if that has not already begun
+     *
+     * @return a future completed with the controller's handlers by endpoint
+     */
+    public CompletableFuture<Map<String, HttpHandler>> initialize()
+    {
+
+        CompletableFuture<Map<String, HttpHandler>> future = handlerFuture.get();
+
+        if (future != null)
+        {
+            return future;
+        }
+
+        final CompletableFuture<Map<String, HttpHandler>> created = new CompletableFuture<>();
+
+        if (!handlerFuture.compareAndSet(null, created))
+        {
+            return handlerFuture.get();
+        }
+
+        executor.execute(() -> {
+
+            try
+            {
+                log.debug("Creating handlers for {}", controllerClass.getName());
+
+                final Map<String, HttpHandler> endpointHandlers = endpointHandlers(routeSupplierFactory.get().get());
+
+                handlers = endpointHandlers;
+
+                created.complete(endpointHandlers);
+
+            } catch (Throwable t)
+            {
+                log.error("Exception creating handlers for {}", controllerClass.getName(), t);
+
+                handlerFuture.compareAndSet(created, null);
+
+                created.completeExceptionally(t);
+            }
+        });
+
+        return created;
+    }
+
+    /**
+     * @return true once the controller's handlers have been created
+     */
+    public boolean isInitialized()
+    {
+
+        return handlers != null;
+    }
+
+    public Class<?> getControllerClass()
+    {
+
+        return controllerClass;
+    }
+
+    protected void handleRequest(final HttpServerExchange exchange, final String key) throws Exception
+    {
+
+        final Map<String, HttpHandler> currentHandlers = handlers;
+
+        if (currentHandlers != null)
+        {
+            currentHandlers.get(key).handleRequest(exchange);
+            return;
+        }
+
+        final CompletableFuture<Map<String, HttpHandler>> future = initialize();
+
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> future.whenComplete((h, t) -> {
+
+            if (t != null)
+            {
+                exchange.putAttachment(ExceptionHandler.THROWABLE, t);
+                exchange.setStatusCode(500);
+                exchange.endExchange();
+            }
+            else
+            {
+                exchange.dispatch(exchange.getIoThread(), h.get(key));
+            }
+        }));
+    }
+
+    /**
+     * Bind every endpoint to the handlers the created router holds for its method and template. Predicated handlers are
+     * tried in the order they were added before the handler without a predicate, as {@link RoutingHandler} does.
+     */
+    private Map<String, HttpHandler> endpointHandlers(RoutingHandler router)
+    {
+
+        final Map<String, List<RadixTreeRouter.RouteDefinition>> routes = new LinkedHashMap<>();
+
+        if (router instanceof ProteusRoutingHandler)
+        {
+            for (RadixTreeRouter.RouteDefinition route : ((ProteusRoutingHandler) router).getRoutes())
+            {
+                routes.computeIfAbsent(key(route.getMethod(), route.getTemplate()), k -> new ArrayList<>()).add(route);
+            }
+        }
+
+        final Map<String, HttpHandler> endpointHandlers = new HashMap<>();
+
+        for (EndpointInfo endpoint : endpoints)
+        {
+            final String key = key(endpoint.getMethod(), endpoint.getPathTemplate());
+
+            final List<RadixTreeRouter.RouteDefinition> endpointRoutes = routes.get(key);
+
+            if (endpointRoutes == null)
+            {
+                log.warn("No handler was created for {}, it is routed by the router of {}", key, controllerClass.getName());
+
+                endpointHandlers.put(key, router);
+            }
+            else
+            {
+                endpointHandlers.put(key, endpointHandler(endpointRoutes, router.getFallbackHandler()));
+            }
+        }
+
+        return endpointHandlers;
+    }
+
+    private static HttpHandler endpointHandler(List<RadixTreeRouter.RouteDefinition> routes, HttpHandler fallbackHandler)
+    {
+
+        final List<Predicate> predicates = new ArrayList<>();
+
+        final List<HttpHandler> predicatedHandlers = new ArrayList<>();
+
+        HttpHandler defaultHandler = null;
+
+        for (RadixTreeRouter.RouteDefinition route : routes)
+        {
+            if (route.getPredicate() == null)
+            {
+                defaultHandler = route.getHandler();
+            }
+            else
+            {
+                predicates.add(route.getPredicate());
+                predicatedHandlers.add(route.getHandler());
+            }
+        }
+
+        if (predicates.isEmpty() && defaultHandler != null)
+        {
+            return defaultHandler;
+        }
+
+        final HttpHandler handler = defaultHandler != null ? defaultHandler : fallbackHandler;
+
+        return exchange -> {
+
+            for (int i = 0; i < predicates.size(); i++)
+            {
+                if (predicates.get(i).resolve(exchange))
+                {
+                    predicatedHandlers.get(i).handleRequest(exchange);
+                    return;
+                }
+            }
+
+            handler.handleRequest(exchange);
+        };
+    }
+
+    private static String key(HttpString method, String template)
+    {
+
+        return method + " " + template;
+    }
+
+}
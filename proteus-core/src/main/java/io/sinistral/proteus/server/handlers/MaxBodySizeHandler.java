@@ -0,0 +1,114 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigUtil;
+import io.sinistral.proteus.protocol.MediaType;
+import io.sinistral.proteus.server.predicates.ParsedMediaType;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rejects requests whose body exceeds the limit of their endpoint with 413 before the body is read.
+ * <p>
+ * The limit is the value of {@link io.sinistral.proteus.annotations.MaxBodySize} or otherwise the configured limit for
+ * the request content type, then the configured default. A declared content length over the limit is rejected at once,
+ * without reading the body, and the connection is closed instead of draining it. Bodies of unknown length are limited
+ * by {@link HttpServerExchange#setMaxEntitySize(long)}, which counts bytes as they are read and fails the read that
+ * exceeds the limit with a {@link io.undertow.server.RequestTooBigException}.
+ */
+public class MaxBodySizeHandler implements HttpHandler
+{
+
+    private static long defaultLimit;
+
+    private static Map<String, Long> contentTypeLimits = Map.of();
+
+    private final HttpHandler next;
+
+    private final long limit;
+
+    /**
+     * @param next  the next handler
+     * @param limit the limit of the endpoint, 0 for the configured limits
+     */
+    public MaxBodySizeHandler(HttpHandler next, long limit)
+    {
+
+        this.next = next;
+        this.limit = limit;
+    }
+
+    @Inject
+    static void configure(@Named("application.maxBodySize") Config config)
+    {
+
+        final Map<String, Long> limits = new HashMap<>();
+
+        final Config contentTypes = config.getConfig("contentTypes");
+
+        for (String contentType : contentTypes.root().keySet())
+        {
+            limits.put(contentType.toLowerCase(Locale.ENGLISH), contentTypes.getMemorySize(ConfigUtil.joinPath(contentType)).toBytes());
+        }
+
+        defaultLimit = config.getMemorySize("default").toBytes();
+        contentTypeLimits = limits;
+    }
+
+    /**
+     * @return true if a limit is configured for endpoints without their own
+     */
+    public static boolean hasConfiguredLimits()
+    {
+
+        return defaultLimit > 0 || !contentTypeLimits.isEmpty();
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception
+    {
+
+        final long maxBodySize = limit > 0 ? limit : configuredLimit(exchange);
+
+        if (maxBodySize > 0 && !exchange.isRequestComplete())
+        {
+            if (exchange.getRequestContentLength() > maxBodySize)
+            {
+                exchange.setPersistent(false);
+                exchange.setStatusCode(StatusCodes.REQUEST_ENTITY_TOO_LARGE);
+                exchange.endExchange();
+                return;
+            }
+
+            exchange.setMaxEntitySize(maxBodySize);
+        }
+
+        next.handleRequest(exchange);
+    }
+
+    private static long configuredLimit(HttpServerExchange exchange)
+    {
+
+        final MediaType contentType = ParsedMediaType.contentType(exchange).mediaType();
+
+        if (contentType != null && !contentTypeLimits.isEmpty())
+        {
+            final Long contentTypeLimit = contentTypeLimits.get(contentType.contentType());
+
+            if (contentTypeLimit != null)
+            {
+                return contentTypeLimit;
+            }
+        }
+
+        return defaultLimit;
+    }
+
+}
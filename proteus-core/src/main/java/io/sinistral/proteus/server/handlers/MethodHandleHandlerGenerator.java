@@ -0,0 +1,1101 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import io.sinistral.proteus.annotations.Blocking;
+import io.sinistral.proteus.annotations.Chain;
+import io.sinistral.proteus.annotations.Debug;
+import io.sinistral.proteus.server.Extractors;
+import io.sinistral.proteus.server.ServerRequest;
+import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerSentEventResponse;
+import io.sinistral.proteus.server.StreamingResponse;
+import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.sinistral.proteus.server.exceptions.ServerException;
+import io.undertow.server.HandlerWrapper;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.server.handlers.ExceptionHandler;
+import io.undertow.server.handlers.RequestBufferingHandler;
+import io.undertow.server.handlers.RequestDumpingHandler;
+import io.undertow.server.handlers.form.FormEncodedDataDefinition;
+import io.undertow.server.handlers.form.MultiPartParserDefinition;
+import io.undertow.util.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.ws.rs.BeanParam;
+import javax.ws.rs.CookieParam;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Builds a <code>Supplier<RoutingHandler></code> for a controller at runtime from method handles instead of
+ * generating and compiling source, so neither the JDK compiler nor a class file cache is required.
+ * <p>
+ * Every endpoint gets a handler holding a single method handle that extracts each parameter and invokes the controller
+ * method, and a writer for its return type. The extractors mirror the statements {@link HandlerGenerator} emits for the
+ * same {@link TypeHandler}, so both backends behave identically.
+ * <p>
+ * The extractors are folded into the arguments of the controller method's handle rather than collected into an array
+ * and spread, so a request allocates no argument array and primitive parameters are passed without boxing.
+ */
+public class MethodHandleHandlerGenerator extends HandlerGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(MethodHandleHandlerGenerator.class.getCanonicalName());
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodHandle EXTRACT;
+
+    private static final MethodHandle CHECK_BOUNDS;
+
+    private static final MethodHandle CHECK_PRIMITIVE_BOUNDS;
+
+    static
+    {
+        try
+        {
+            EXTRACT = LOOKUP.findVirtual(ParameterExtractor.class, "extract", MethodType.methodType(Object.class, HttpServerExchange.class, HttpHandler.class));
+
+            CHECK_BOUNDS = LOOKUP.findStatic(MethodHandleHandlerGenerator.class, "checkBounds", MethodType.methodType(Object.class, Object.class, Min.class, Max.class, String.class, String.class));
+
+            CHECK_PRIMITIVE_BOUNDS = LOOKUP.findStatic(MethodHandleHandlerGenerator.class, "checkBounds", MethodType.methodType(void.class, double.class, Min.class, Max.class, String.class, String.class));
+
+        } catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Inject
+    protected Injector injector;
+
+    /**
+     * @param packageName     package name of the equivalent generated class, only used for naming
+     * @param controllerClass the class handlers will be created from
+     */
+    public MethodHandleHandlerGenerator(String packageName, Class<?> controllerClass)
+    {
+
+        super(packageName, controllerClass);
+    }
+
+    /**
+     * Resolves the handlers for every endpoint of the controller and registers their {@link EndpointInfo}
+     *
+     * @return a supplier that binds the handlers to a controller instance obtained from the injector
+     */
+    public Supplier<RoutingHandler> generateRouteSupplier() throws Exception
+    {
+
+        final List<Endpoint> endpoints = new ArrayList<>();
+
+        final Map<Class<? extends HandlerWrapper>, Boolean> typeLevelWrappers = new LinkedHashMap<>();
+
+        Optional.ofNullable(controllerClass.getAnnotation(Chain.class)).ifPresent(c -> Arrays.stream(c.value()).forEach(w -> typeLevelWrappers.put(w, true)));
+
+        List<String> typeLevelSecurityDefinitions = new ArrayList<>();
+
+        if (controllerClass.getAnnotation(Path.class) != null)
+        {
+            securityRequirementName(controllerClass).ifPresent(typeLevelSecurityDefinitions::add);
+        }
+
+        final Method[] declaredMethods = Arrays.stream(controllerClass.getDeclaredMethods())
+                                               .filter(m -> m.getAnnotation(Path.class) != null)
+                                               .sorted(java.util.Comparator.comparing(Method::getName).thenComparing(Method::toGenericString))
+                                               .toArray(Method[]::new);
+
+        for (Method m : declaredMethods)
+        {
+            Endpoint endpoint;
+
+            try
+            {
+                endpoint = endpoint(m, typeLevelSecurityDefinitions);
+
+            } catch (Exception e)
+            {
+                log.error("Failed to create handler for method {}", m.getName(), e);
+                throw e;
+            }
+
+            if (endpoint == null)
+            {
+                continue;
+            }
+
+            endpoints.add(endpoint);
+
+            try
+            {
+                registeredEndpoints.add(endpoint.endpointInfo);
+            } catch (Exception e)
+            {
+                log.error("Failed to register endpoint {}", endpoint.endpointInfo, e);
+                throw e;
+            }
+        }
+
+        return () -> {
+
+            final Object controller = injector.getInstance(controllerClass);
+
+            final RoutingHandler router = new ProteusRoutingHandler();
+
+            final Map<Class<? extends HandlerWrapper>, HandlerWrapper> typeLevelWrapperInstances = new LinkedHashMap<>();
+
+            typeLevelWrappers.keySet().forEach(w -> typeLevelWrapperInstances.put(w, injector.getInstance(w)));
+
+            for (Endpoint endpoint : endpoints)
+            {
+                HttpHandler handler = new EndpointHandler(endpoint.invoker.bindTo(controller), endpoint.writer, endpoint.isBlocking, endpoint.readsBody);
+
+                if (endpoint.isBlocking && !endpoint.streamsBody)
+                {
+                    handler = endpoint.isStreamingJson ? new JsonBodyHandler(handler) : new RequestBufferingHandler.Wrapper(8).wrap(handler);
+
+                    if (endpoint.readsBody)
+                    {
+                        handler = new FormBodyHandler(handler);
+                    }
+                }
+
+                if (endpoint.maxBodySize > 0 || (endpoint.readsBody || endpoint.streamsBody) && MaxBodySizeHandler.hasConfiguredLimits())
+                {
+                    handler = new MaxBodySizeHandler(handler, endpoint.maxBodySize);
+                }
+
+                if (endpoint.isDebug)
+                {
+                    handler = new RequestDumpingHandler(handler);
+                }
+
+                for (Class<? extends HandlerWrapper> wrapperClass : endpoint.wrappers)
+                {
+                    HandlerWrapper wrapper = typeLevelWrapperInstances.get(wrapperClass);
+
+                    if (wrapper == null)
+                    {
+                        wrapper = injector.getInstance(wrapperClass);
+                    }
+
+                    handler = wrapper.wrap(handler);
+                }
+
+                for (HandlerWrapper wrapper : typeLevelWrapperInstances.values())
+                {
+                    handler = wrapper.wrap(handler);
+                }
+
+                for (String securityDefinitionName : endpoint.securityDefinitions)
+                {
+                    handler = registeredHandlerWrappers.get(securityDefinitionName).wrap(handler);
+                }
+
+                router.add(endpoint.endpointInfo.getMethod(), endpoint.endpointInfo.getPathTemplate(), handler);
+            }
+
+            return router;
+        };
+    }
+
+    protected Endpoint endpoint(Method m, List<String> typeLevelSecurityDefinitions) throws Exception
+    {
+
+        EndpointInfo endpointInfo = endpointInfo(m);
+
+        if (endpointInfo == null)
+        {
+            return null;
+        }
+
+        final String producesContentType = endpointInfo.getProduces();
+        final String consumesContentType = endpointInfo.getConsumes();
+
+        boolean isBlocking = Optional.ofNullable(m.getAnnotation(Blocking.class)).map(Blocking::value).orElse(false);
+        boolean isDebug = Optional.ofNullable(m.getAnnotation(Debug.class)).map(Debug::value).orElse(false);
+
+        //The handler for these two inputs types is blocking, so we set the flag
+        if (consumesContentType.contains(FormEncodedDataDefinition.APPLICATION_X_WWW_FORM_URLENCODED)
+                || consumesContentType.contains(MultiPartParserDefinition.MULTIPART_FORM_DATA))
+        {
+            isBlocking = true;
+        }
+
+        Parameter[] parameters = m.getParameters();
+
+        MethodHandle[] extractors = new MethodHandle[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++)
+        {
+            Parameter p = parameters[i];
+
+            if (!p.getType().equals(ServerRequest.class) && !p.getType().equals(HttpServerExchange.class) && !p.getType().equals(HttpHandler.class))
+            {
+                isBlocking = isBlocking || TypeHandler.forType(p.getParameterizedType(), p.getAnnotation(BeanParam.class) != null).isBlocking();
+            }
+
+            try
+            {
+                extractors[i] = parameterExtractor(p);
+
+            } catch (Exception e)
+            {
+                log.error("Failed to create extractor for parameter {} of method {}", p.getName(), m.getName(), e);
+                throw e;
+            }
+        }
+
+        List<String> securityDefinitions = new ArrayList<>();
+
+        securityRequirementName(controllerClass).ifPresent(securityDefinitions::add);
+
+        if (securityDefinitions.isEmpty())
+        {
+            securityDefinitions.addAll(typeLevelSecurityDefinitions);
+        }
+
+        List<Class<? extends HandlerWrapper>> wrappers = Optional.ofNullable(m.getAnnotation(Chain.class)).map(c -> Arrays.asList(c.value())).orElse(List.of());
+
+        final MethodHandle invoker = invoker(m, extractors);
+
+        final boolean isStreamingJson = isBlocking && streamingJson && JsonBodyHandler.supports(m);
+
+        return new Endpoint(endpointInfo, invoker, responseWriter(m, producesContentType), isBlocking, readsBody(m), streamsBody(m), maxBodySize(m), isStreamingJson, isDebug, wrappers, securityDefinitions);
+    }
+
+    /**
+     * Combine the extractors with the controller method into one handle that takes the controller, the exchange and the
+     * endpoint's handler
+     * <p>
+     * Each extractor replaces the parameter it produces, which leaves an exchange and handler pair per parameter that
+     * are then merged into one.
+     *
+     * @param extractors a handle of type {@code (HttpServerExchange, HttpHandler)} returning the parameter's type for each parameter
+     * @return a handle of type {@code (Object, HttpServerExchange, HttpHandler)Object}
+     */
+    protected static MethodHandle invoker(Method m, MethodHandle[] extractors) throws IllegalAccessException
+    {
+
+        MethodHandle invoker = LOOKUP.unreflect(m);
+
+        if (Modifier.isStatic(m.getModifiers()))
+        {
+            invoker = MethodHandles.dropArguments(invoker, 0, Object.class);
+        }
+
+        invoker = invoker.asType(invoker.type().changeParameterType(0, Object.class));
+
+        for (int i = 0; i < extractors.length; i++)
+        {
+            invoker = MethodHandles.collectArguments(invoker, 1 + i * 2, extractors[i]);
+        }
+
+        final int[] reorder = new int[1 + extractors.length * 2];
+
+        for (int i = 0; i < extractors.length; i++)
+        {
+            reorder[1 + i * 2] = 1;
+            reorder[2 + i * 2] = 2;
+        }
+
+        final MethodType invokerType = MethodType.methodType(invoker.type().returnType(), Object.class, HttpServerExchange.class, HttpHandler.class);
+
+        invoker = MethodHandles.permuteArguments(invoker, invokerType, reorder);
+
+        return invoker.asType(invokerType.changeReturnType(Object.class));
+    }
+
+    /**
+     * Resolve the extractor for a controller method parameter, following the same {@link TypeHandler} selection as the source generator
+     *
+     * @return a handle of type {@code (HttpServerExchange, HttpHandler)} returning the parameter's type
+     */
+    protected MethodHandle parameterExtractor(Parameter p) throws Exception
+    {
+
+        Type type = p.getParameterizedType();
+
+        if (p.getType().equals(ServerRequest.class))
+        {
+            return extractorHandle((exchange, handler) -> new ServerRequest(exchange), ServerRequest.class);
+        }
+        else if (p.getType().equals(HttpHandler.class))
+        {
+            return MethodHandles.dropArguments(MethodHandles.identity(HttpHandler.class), 0, HttpServerExchange.class);
+        }
+        else if (p.getType().equals(HttpServerExchange.class))
+        {
+            return MethodHandles.dropArguments(MethodHandles.identity(HttpServerExchange.class), 1, HttpHandler.class);
+        }
+
+        TypeHandler t;
+
+        if (p.isAnnotationPresent(HeaderParam.class))
+        {
+            switch (TypeHandler.forType(type))
+            {
+                case OptionalStringType:
+                    t = TypeHandler.OptionalHeaderStringType;
+                    break;
+                case OptionalValueOfType:
+                    t = TypeHandler.OptionalHeaderValueOfType;
+                    break;
+                case OptionalFromStringType:
+                    t = TypeHandler.OptionalHeaderFromStringType;
+                    break;
+                case ValueOfType:
+                    t = TypeHandler.HeaderValueOfType;
+                    break;
+                case FromStringType:
+                    t = TypeHandler.HeaderFromStringType;
+                    break;
+                default:
+                    t = TypeHandler.HeaderStringType;
+                    break;
+            }
+        }
+        else
+        {
+            t = TypeHandler.forType(type, p.getAnnotation(BeanParam.class) != null);
+
+            if (p.getAnnotation(FormParam.class) != null)
+            {
+                switch (t)
+                {
+                    case ModelType:
+                        t = TypeHandler.NamedModelType;
+                        break;
+                    case JsonNodeType:
+                        t = TypeHandler.NamedJsonNodeType;
+                        break;
+                    case ByteBufferType:
+                        t = TypeHandler.NamedByteBufferType;
+                        break;
+                    case OptionalModelType:
+                        t = TypeHandler.OptionalNamedModelType;
+                        break;
+                    case OptionalJsonNodeType:
+                        t = TypeHandler.OptionalNamedJsonNodeType;
+                        break;
+                    case OptionalByteBufferType:
+                        t = TypeHandler.OptionalNamedByteBufferType;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        return validated(p, extractorHandle(p, t));
+    }
+
+    /**
+     * @return a handle of type {@code (HttpServerExchange, HttpHandler)} returning the parameter's type, primitive
+     * parameters are extracted without boxing
+     */
+    protected MethodHandle extractorHandle(Parameter p, TypeHandler t) throws Exception
+    {
+
+        switch (t)
+        {
+            case PrimitiveLongType:
+                return primitiveExtractor("longValue", long.class, parameterName(p));
+            case PrimitiveIntegerType:
+                return primitiveExtractor("intValue", int.class, parameterName(p));
+            case PrimitiveShortType:
+                return primitiveExtractor("shortValue", short.class, parameterName(p));
+            case PrimitiveFloatType:
+                return primitiveExtractor("floatValue", float.class, parameterName(p));
+            case PrimitiveDoubleType:
+                return primitiveExtractor("doubleValue", double.class, parameterName(p));
+            case PrimitiveBooleanType:
+                return primitiveExtractor("booleanValue", boolean.class, parameterName(p));
+            default:
+                return extractorHandle(parameterExtractor(p, t), p.getType());
+        }
+    }
+
+    /**
+     * @return a handle of type {@code (HttpServerExchange, HttpHandler)} returning a primitive from {@link Extractors.Primitive}
+     */
+    protected static MethodHandle primitiveExtractor(String methodName, Class<?> type, String name) throws Exception
+    {
+
+        final MethodHandle extractor = LOOKUP.findStatic(Extractors.Primitive.class, methodName, MethodType.methodType(type, HttpServerExchange.class, String.class));
+
+        return MethodHandles.dropArguments(MethodHandles.insertArguments(extractor, 1, name), 1, HttpHandler.class);
+    }
+
+    /**
+     * @return a handle of type {@code (HttpServerExchange, HttpHandler)} returning type that calls the extractor
+     */
+    protected static MethodHandle extractorHandle(ParameterExtractor extractor, Class<?> type)
+    {
+
+        return EXTRACT.bindTo(extractor).asType(MethodType.methodType(type, HttpServerExchange.class, HttpHandler.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ParameterExtractor parameterExtractor(Parameter p, TypeHandler t) throws Exception
+    {
+
+        final String name = parameterName(p);
+        final Type type = p.getParameterizedType();
+
+        switch (t)
+        {
+            case LongType:
+                return (exchange, handler) -> Extractors.longValue(exchange, name);
+            case IntegerType:
+                return (exchange, handler) -> Extractors.integerValue(exchange, name);
+            case StringType:
+                return (exchange, handler) -> Extractors.string(exchange, name);
+            case BooleanType:
+                return (exchange, handler) -> Extractors.booleanValue(exchange, name);
+            case FloatType:
+                return (exchange, handler) -> Extractors.floatValue(exchange, name);
+            case DoubleType:
+                return (exchange, handler) -> Extractors.doubleValue(exchange, name);
+            case BigDecimalType:
+                return (exchange, handler) -> Extractors.bigDecimalValue(exchange, name);
+            case DateType:
+                return (exchange, handler) -> Extractors.date(exchange, name);
+            case ZonedDateTimeType:
+                return (exchange, handler) -> Extractors.zonedDateTime(exchange, name);
+            case OffsetDateTimeType:
+                return (exchange, handler) -> Extractors.offsetDateTime(exchange, name);
+            case InstantType:
+                return (exchange, handler) -> Extractors.instant(exchange, name);
+            case FilePathType:
+                return (exchange, handler) -> Extractors.filePath(exchange, name);
+            case FileType:
+                return (exchange, handler) -> Extractors.file(exchange, name);
+            case AnyType:
+                return (exchange, handler) -> Extractors.any(exchange);
+            case JsonNodeType:
+                return (exchange, handler) -> Extractors.jsonNode(exchange);
+            case NamedJsonNodeType:
+                return (exchange, handler) -> Extractors.namedJsonNode(exchange, name);
+            case ByteBufferType:
+                return (exchange, handler) -> Extractors.byteBuffer(exchange);
+            case NamedByteBufferType:
+                return (exchange, handler) -> Extractors.namedByteBuffer(exchange, name);
+            case InputStreamType:
+                return (exchange, handler) -> Extractors.inputStream(exchange);
+            case ReadableByteChannelType:
+                return (exchange, handler) -> Extractors.channel(exchange);
+            case PublisherType:
+                return (exchange, handler) -> Extractors.publisher(exchange);
+            case FileListType:
+                return (exchange, handler) -> Extractors.fileList(exchange, name);
+            case PathListType:
+                return (exchange, handler) -> Extractors.pathList(exchange, name);
+            case FileMapType:
+            case OptionalFileMapType:
+                return (exchange, handler) -> Extractors.fileMap(exchange, name);
+            case PathMapType:
+            case OptionalPathMapType:
+                return (exchange, handler) -> Extractors.pathMap(exchange, name);
+            case ModelType:
+            case BeanListValueOfType:
+            case BeanListFromStringType:
+            {
+                if (type instanceof Class)
+                {
+                    final Class<Object> modelClass = (Class<Object>) type;
+                    final ObjectReader reader = Extractors.jsonReader(modelClass);
+                    return (exchange, handler) -> Extractors.model(exchange, modelClass, reader);
+                }
+
+                final TypeReference<Object> typeReference = typeReference(type);
+                final ObjectReader reader = Extractors.jsonReader(typeReference);
+                return (exchange, handler) -> Extractors.model(exchange, typeReference, reader);
+            }
+            case NamedModelType:
+            {
+                final String parameterName = p.getName();
+
+                if (type instanceof Class)
+                {
+                    final Class<Object> modelClass = (Class<Object>) type;
+                    return (exchange, handler) -> Extractors.namedModel(exchange, modelClass, parameterName);
+                }
+
+                final TypeReference<Object> typeReference = typeReference(type);
+                return (exchange, handler) -> Extractors.namedModel(exchange, typeReference, parameterName);
+            }
+            case ValueOfType:
+            {
+                final Function<String, Object> function = stringFunction((Class<?>) type, "valueOf");
+                return (exchange, handler) -> function.apply(Extractors.string(exchange, name));
+            }
+            case FromStringType:
+            {
+                final Function<String, Object> function = stringFunction((Class<?>) type, "fromString");
+                return (exchange, handler) -> function.apply(Extractors.string(exchange, name));
+            }
+            case HeaderValueOfType:
+            {
+                final Function<String, Object> function = stringFunction((Class<?>) type, "valueOf");
+                return (exchange, handler) -> function.apply(Extractors.Header.string(exchange, name));
+            }
+            case HeaderFromStringType:
+            {
+                final Function<String, Object> function = stringFunction((Class<?>) type, "fromString");
+                return (exchange, handler) -> function.apply(Extractors.Header.string(exchange, name));
+            }
+            case HeaderStringType:
+                return (exchange, handler) -> Extractors.Header.string(exchange, name);
+            case OptionalHeaderValueOfType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), "valueOf");
+                return (exchange, handler) -> Extractors.Header.Optional.extractWithFunction(exchange, name, function);
+            }
+            case OptionalHeaderFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), "fromString");
+                return (exchange, handler) -> Extractors.Header.Optional.extractWithFunction(exchange, name, function);
+            }
+            case OptionalHeaderStringType:
+                return (exchange, handler) -> Extractors.Header.Optional.string(exchange, name);
+            case QueryListValueOfType:
+            case QueryListFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), t == TypeHandler.QueryListValueOfType ? "valueOf" : "fromString");
+                return (exchange, handler) -> Extractors.queryList(exchange, name, function);
+            }
+            case QuerySetValueOfType:
+            case QuerySetFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), t == TypeHandler.QuerySetValueOfType ? "valueOf" : "fromString");
+                return (exchange, handler) -> Extractors.querySet(exchange, name, function);
+            }
+            case QueryOptionalListValueOfType:
+            case QueryOptionalListFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), t == TypeHandler.QueryOptionalListValueOfType ? "valueOf" : "fromString");
+                return (exchange, handler) -> Extractors.Optional.queryList(exchange, name, function);
+            }
+            case QueryOptionalSetValueOfType:
+            case QueryOptionalSetFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), t == TypeHandler.QueryOptionalSetValueOfType ? "valueOf" : "fromString");
+                return (exchange, handler) -> Extractors.Optional.querySet(exchange, name, function);
+            }
+            case OptionalModelType:
+            case OptionalBeanListValueOfType:
+            case OptionalBeanListFromStringType:
+            {
+                final Type modelType = ((ParameterizedType) type).getActualTypeArguments()[0];
+
+                if (modelType instanceof Class)
+                {
+                    final Class<Object> modelClass = (Class<Object>) modelType;
+                    final ObjectReader reader = Extractors.jsonReader(modelClass);
+                    return (exchange, handler) -> Extractors.Optional.model(exchange, modelClass, reader);
+                }
+
+                final TypeReference<Object> typeReference = typeReference(modelType);
+                final ObjectReader reader = Extractors.jsonReader(typeReference);
+                return (exchange, handler) -> Extractors.Optional.model(exchange, typeReference, reader);
+            }
+            case OptionalNamedModelType:
+            {
+                final Type modelType = ((ParameterizedType) type).getActualTypeArguments()[0];
+                final String parameterName = p.getName();
+
+                if (modelType instanceof Class)
+                {
+                    final Class<Object> modelClass = (Class<Object>) modelType;
+                    return (exchange, handler) -> Extractors.Optional.namedModel(exchange, modelClass, parameterName);
+                }
+
+                final TypeReference<Object> typeReference = typeReference(modelType);
+                return (exchange, handler) -> Extractors.Optional.namedModel(exchange, typeReference, parameterName);
+            }
+            case OptionalJsonNodeType:
+            case OptionalAnyType:
+                return (exchange, handler) -> Extractors.Optional.jsonModel(exchange, JsonNode.class);
+            case OptionalNamedJsonNodeType:
+                return (exchange, handler) -> Extractors.Optional.namedJsonNode(exchange, name);
+            case OptionalStringType:
+                return (exchange, handler) -> Extractors.Optional.string(exchange, name);
+            case OptionalLongType:
+                return (exchange, handler) -> Extractors.Optional.longValue(exchange, name);
+            case OptionalIntegerType:
+                return (exchange, handler) -> Extractors.Optional.integerValue(exchange, name);
+            case OptionalBooleanType:
+                return (exchange, handler) -> Extractors.Optional.booleanValue(exchange, name);
+            case OptionalFloatType:
+                return (exchange, handler) -> Extractors.Optional.floatValue(exchange, name);
+            case OptionalDoubleType:
+                return (exchange, handler) -> Extractors.Optional.doubleValue(exchange, name);
+            case OptionalBigDecimalType:
+                return (exchange, handler) -> Extractors.Optional.bigDecimalValue(exchange, name);
+            case OptionalDateType:
+                return (exchange, handler) -> Extractors.Optional.date(exchange, name);
+            case OptionalInstantType:
+                return (exchange, handler) -> Extractors.Optional.instant(exchange, name);
+            case OptionalZonedDateTimeType:
+                return (exchange, handler) -> Extractors.Optional.zonedDateTime(exchange, name);
+            case OptionalOffsetDateTimeType:
+                return (exchange, handler) -> Extractors.Optional.offsetDateTime(exchange, name);
+            case OptionalFilePathType:
+                return (exchange, handler) -> Extractors.Optional.filePath(exchange, name);
+            case OptionalFileType:
+                return (exchange, handler) -> Extractors.Optional.file(exchange, name);
+            case OptionalByteBufferType:
+                return (exchange, handler) -> Extractors.Optional.byteBuffer(exchange);
+            case OptionalNamedByteBufferType:
+                return (exchange, handler) -> Extractors.Optional.namedByteBuffer(exchange, name);
+            case OptionalValueOfType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), "valueOf");
+                return (exchange, handler) -> Extractors.Optional.extractWithFunction(exchange, name, function);
+            }
+            case OptionalFromStringType:
+            {
+                final Function<String, Object> function = stringFunction(typeArgument(type), "fromString");
+                return (exchange, handler) -> Extractors.Optional.extractWithFunction(exchange, name, function);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported parameter type " + type + " for " + p.getName());
+        }
+    }
+
+    /**
+     * Apply the {@link Min} and {@link Max} constraints of a parameter to its extracted value
+     */
+    protected MethodHandle validated(Parameter p, MethodHandle extractor)
+    {
+
+        final Max max = p.isAnnotationPresent(Max.class) ? p.getAnnotationsByType(Max.class)[0] : null;
+        final Min min = p.isAnnotationPresent(Min.class) ? p.getAnnotationsByType(Min.class)[0] : null;
+
+        final Class<?> type = extractor.type().returnType();
+
+        if (max == null && min == null || type == boolean.class)
+        {
+            return extractor;
+        }
+
+        final String maxMessage = max == null ? null : (max.message().equals("{javax.validation.constraints.Max.message}") ? "must be less than or equal to " + max.value() : max.message());
+        final String minMessage = min == null ? null : (min.message().equals("{javax.validation.constraints.Min.message}") ? "must be greater than or equal to " + min.value() : min.message());
+
+        if (type.isPrimitive())
+        {
+            final MethodHandle check = MethodHandles.insertArguments(CHECK_PRIMITIVE_BOUNDS, 1, min, max, minMessage, maxMessage).asType(MethodType.methodType(void.class, type));
+
+            return MethodHandles.filterReturnValue(extractor, MethodHandles.foldArguments(MethodHandles.identity(type), check));
+        }
+
+        final MethodHandle check = MethodHandles.insertArguments(CHECK_BOUNDS, 1, min, max, minMessage, maxMessage).asType(MethodType.methodType(type, type));
+
+        return MethodHandles.filterReturnValue(extractor, check);
+    }
+
+    private static Object checkBounds(Object value, Min min, Max max, String minMessage, String maxMessage)
+    {
+
+        if (value instanceof Number)
+        {
+            checkBounds(((Number) value).doubleValue(), min, max, minMessage, maxMessage);
+        }
+
+        return value;
+    }
+
+    private static void checkBounds(double value, Min min, Max max, String minMessage, String maxMessage)
+    {
+
+        if (min != null && value < min.value())
+        {
+            throw new ServerException(minMessage, Response.Status.BAD_REQUEST);
+        }
+        else if (max != null && value > max.value())
+        {
+            throw new ServerException(maxMessage, Response.Status.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Create the writer that sends a controller method's return value, following the same rules as the source generator
+     */
+    protected ResponseWriter responseWriter(Method m, String producesContentType)
+    {
+
+        final Class<?> returnType = m.getReturnType();
+        final Type genericReturnType = m.getGenericReturnType();
+
+        if (returnType.equals(void.class))
+        {
+            return null;
+        }
+
+        final Type writerType = responseEntityType(m);
+
+        final ServerResponse.EntityWriter entityWriter = writerType != null ? ServerResponse.entityWriter(typeReference(writerType)) : null;
+
+        if (sendsEvents(m, producesContentType))
+        {
+            return (exchange, response) -> ServerSentEventResponse.send(exchange, (Flow.Publisher<?>) response, entityWriter);
+        }
+
+        if (streamsResponse(m))
+        {
+            return (exchange, response) -> {
+
+                if (response instanceof Stream)
+                {
+                    StreamingResponse.send(exchange, (Stream<?>) response, entityWriter, producesContentType);
+                }
+                else if (response instanceof Iterator)
+                {
+                    StreamingResponse.send(exchange, (Iterator<?>) response, entityWriter, producesContentType);
+                }
+                else
+                {
+                    StreamingResponse.send(exchange, (Flow.Publisher<?>) response, entityWriter, producesContentType);
+                }
+            };
+        }
+
+        if (returnType.equals(ServerResponse.class))
+        {
+            return (exchange, response) -> ((ServerResponse<?>) response).entityWriter(entityWriter).send(exchange);
+        }
+
+        if (CompletionStage.class.isAssignableFrom(returnType))
+        {
+            final Function<Object, ServerResponse<?>> responseFunction;
+
+            if (genericReturnType.toString().contains("ServerResponse"))
+            {
+                responseFunction = r -> ((ServerResponse<?>) r).entityWriter(entityWriter);
+            }
+            else
+            {
+                final Type entityType = genericReturnType instanceof ParameterizedType ? ((ParameterizedType) genericReturnType).getActualTypeArguments()[0] : Object.class;
+
+                final Function<Object, ServerResponse<?>> entityFunction;
+
+                if (entityType.equals(String.class))
+                {
+                    entityFunction = r -> ServerResponse.response((String) r);
+                }
+                else if (entityType.equals(ByteBuffer.class))
+                {
+                    entityFunction = r -> ServerResponse.response((ByteBuffer) r);
+                }
+                else
+                {
+                    entityFunction = r -> ServerResponse.response(r).entityWriter(entityWriter);
+                }
+
+                if (producesContentType.contains(","))
+                {
+                    responseFunction = entityFunction;
+                }
+                else if (producesContentType.contains(MediaType.APPLICATION_JSON))
+                {
+                    responseFunction = r -> entityFunction.apply(r).applicationJson();
+                }
+                else if (producesContentType.contains(MediaType.APPLICATION_XML))
+                {
+                    responseFunction = r -> entityFunction.apply(r).applicationXml();
+                }
+                else if (producesContentType.contains(MediaType.TEXT_HTML))
+                {
+                    responseFunction = r -> entityFunction.apply(r).textHtml();
+                }
+                else
+                {
+                    responseFunction = r -> entityFunction.apply(r).contentType(producesContentType);
+                }
+            }
+
+            return (exchange, response) -> ServerResponse.whenComplete(exchange, (CompletionStage<?>) response, (r, ex) -> {
+
+                if (ex != null)
+                {
+                    exchange.putAttachment(ExceptionHandler.THROWABLE, ex);
+                    exchange.setResponseCode(500);
+                    exchange.endExchange();
+                }
+                else
+                {
+                    responseFunction.apply(r).send(exchange);
+                }
+            });
+        }
+
+        return (exchange, response) -> {
+
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, producesContentType);
+            exchange.getResponseSender().send(response.toString());
+        };
+    }
+
+    protected static String parameterName(Parameter parameter)
+    {
+
+        if (parameter.isAnnotationPresent(QueryParam.class))
+        {
+            return parameter.getAnnotation(QueryParam.class).value();
+        }
+        else if (parameter.isAnnotationPresent(HeaderParam.class))
+        {
+            return parameter.getAnnotation(HeaderParam.class).value();
+        }
+        else if (parameter.isAnnotationPresent(PathParam.class))
+        {
+            return parameter.getAnnotation(PathParam.class).value();
+        }
+        else if (parameter.isAnnotationPresent(CookieParam.class))
+        {
+            return parameter.getAnnotation(CookieParam.class).value();
+        }
+        else if (parameter.isAnnotationPresent(FormParam.class))
+        {
+            return parameter.getAnnotation(FormParam.class).value();
+        }
+
+        return parameter.getName();
+    }
+
+    protected static Optional<String> securityRequirementName(Class<?> clazz)
+    {
+
+        Annotation securityRequirementAnnotation = Arrays.stream(clazz.getAnnotations()).filter(a -> a.getClass().getName().contains("SecurityRequirement")).findFirst().orElse(null);
+
+        if (securityRequirementAnnotation != null)
+        {
+            try
+            {
+                Field nameField = securityRequirementAnnotation.getClass().getField("name");
+
+                return Optional.of(nameField.get(securityRequirementAnnotation).toString());
+
+            } catch (Exception e)
+            {
+                log.warn("No name field on security requirement");
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return the innermost type argument of a parameterized type, i.e. {@code UUID} for {@code Optional<List<UUID>>}
+     */
+    protected static Class<?> typeArgument(Type type)
+    {
+
+        while (type instanceof ParameterizedType)
+        {
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+
+        if (type instanceof Class)
+        {
+            return (Class<?>) type;
+        }
+
+        return (Class<?>) extractErasedType(type);
+    }
+
+    protected static <T> TypeReference<T> typeReference(final Type type)
+    {
+
+        return new TypeReference<T>() {
+
+            @Override
+            public Type getType()
+            {
+
+                return type;
+            }
+        };
+    }
+
+    /**
+     * @return a function that invokes the static {@code valueOf} or {@code fromString} method of a class
+     */
+    protected static Function<String, Object> stringFunction(Class<?> clazz, String methodName) throws Exception
+    {
+
+        Method method;
+
+        try
+        {
+            method = clazz.getMethod(methodName, String.class);
+
+        } catch (NoSuchMethodException e)
+        {
+            method = Arrays.stream(clazz.getMethods())
+                           .filter(candidate -> candidate.getName().equals(methodName) && Modifier.isStatic(candidate.getModifiers()))
+                           .filter(candidate -> candidate.getParameterCount() == 1 && candidate.getParameterTypes()[0].isAssignableFrom(String.class))
+                           .findFirst().orElseThrow(() -> new NoSuchMethodException(clazz.getName() + "." + methodName));
+        }
+
+        final MethodHandle methodHandle = LOOKUP.unreflect(method).asType(MethodType.methodType(Object.class, String.class));
+
+        return value -> {
+
+            try
+            {
+                return (Object) methodHandle.invokeExact(value);
+
+            } catch (RuntimeException | Error e)
+            {
+                throw e;
+
+            } catch (Throwable t)
+            {
+                throw new IllegalArgumentException(t);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    protected interface ParameterExtractor {
+
+        Object extract(HttpServerExchange exchange, HttpHandler handler) throws Exception;
+    }
+
+    @FunctionalInterface
+    protected interface ResponseWriter {
+
+        void write(HttpServerExchange exchange, Object response) throws Exception;
+    }
+
+    protected static class Endpoint {
+
+        final EndpointInfo endpointInfo;
+        final MethodHandle invoker;
+        final ResponseWriter writer;
+        final boolean isBlocking;
+        final boolean readsBody;
+        final boolean streamsBody;
+        final long maxBodySize;
+        final boolean isStreamingJson;
+        final boolean isDebug;
+        final List<Class<? extends HandlerWrapper>> wrappers;
+        final List<String> securityDefinitions;
+
+        Endpoint(EndpointInfo endpointInfo, MethodHandle invoker, ResponseWriter writer, boolean isBlocking, boolean readsBody, boolean streamsBody, long maxBodySize, boolean isStreamingJson, boolean isDebug, List<Class<? extends HandlerWrapper>> wrappers, List<String> securityDefinitions)
+        {
+
+            this.endpointInfo = endpointInfo;
+            this.invoker = invoker;
+            this.writer = writer;
+            this.isBlocking = isBlocking;
+            this.readsBody = readsBody;
+            this.streamsBody = streamsBody;
+            this.maxBodySize = maxBodySize;
+            this.isStreamingJson = isStreamingJson;
+            this.isDebug = isDebug;
+            this.wrappers = wrappers;
+            this.securityDefinitions = securityDefinitions;
+        }
+    }
+
+    protected static final class EndpointHandler implements HttpHandler {
+
+        private final MethodHandle invoker;
+        private final ResponseWriter writer;
+        private final boolean isBlocking;
+        private final boolean readsBody;
+
+        /**
+         * @param invoker a handle of type {@code (HttpServerExchange, HttpHandler)Object} that extracts the parameters and calls the controller
+         */
+        EndpointHandler(MethodHandle invoker, ResponseWriter writer, boolean isBlocking, boolean readsBody)
+        {
+
+            this.invoker = invoker;
+            this.writer = writer;
+            this.isBlocking = isBlocking;
+            this.readsBody = readsBody;
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception
+        {
+
+            if (isBlocking)
+            {
+                exchange.startBlocking();
+
+                if (exchange.isInIoThread())
+                {
+                    exchange.dispatch(this);
+                    return;
+                }
+            }
+
+            if (readsBody)
+            {
+                ServerRequest.readBody(exchange);
+            }
+
+            final Object response;
+
+            try
+            {
+                response = (Object) invoker.invokeExact(exchange, (HttpHandler) this);
+
+            } catch (Exception | Error e)
+            {
+                throw e;
+
+            } catch (Throwable t)
+            {
+                throw new RuntimeException(t);
+            }
+
+            if (writer != null)
+            {
+                writer.write(exchange, response);
+            }
+        }
+    }
+
+}
@@ -20,8 +20,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author jbauer
- *
+ * @deprecated Nothing routes with this handler, use {@link ProteusRoutingHandler}, which compiles its routes into a
+ * {@link RadixTreeRouter} that resolves templates without parameters from a perfect hash table, or Undertow's
+ * {@link io.undertow.server.RoutingHandler}.
  */
+@Deprecated
 public class ProteusHandler implements HttpHandler
 {
     private static final Logger log = LoggerFactory.getLogger(ProteusHandler.class.getName());
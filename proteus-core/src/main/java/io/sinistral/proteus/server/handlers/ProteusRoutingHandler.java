@@ -0,0 +1,435 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.HttpString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link RoutingHandler} that records its routes so they can be compiled into a {@link RadixTreeRouter}.
+ * <p>
+ * Until {@link #compile()} is called requests are routed by a {@link RoutingHandler} holding a copy of the routes.
+ * Afterwards they are routed by the compiled tree, an immutable snapshot that is rebuilt by the thread changing routes or
+ * handlers and then swapped in. Requests read the current router without locking and complete with it even if it is
+ * replaced meanwhile. Every change made outside of {@link #update(Consumer)} is published on its own, which after
+ * compilation means rebuilding the whole tree and its static table, so adding N routes one at a time costs O(N&sup2;).
+ * Several changes, e.g. the routes of a service, should be made in one {@link #update(Consumer)} or merged with
+ * {@link #addAll(RoutingHandler)} so they are published as one router. If a template can not
+ * be represented in the tree the routes are copied instead until they change. Routes merged from any other
+ * {@link RoutingHandler} can not be recorded, so once they are added requests are routed by this router itself and
+ * changes are applied in place.
+ */
+public class ProteusRoutingHandler extends RoutingHandler
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ProteusRoutingHandler.class.getCanonicalName());
+
+    private final List<RadixTreeRouter.RouteDefinition> routes = new ArrayList<>();
+
+    private final Set<String> disabledRoutes = new HashSet<>();
+
+    private final boolean rewriteQueryParameters;
+
+    private boolean compilable = true;
+
+    private boolean compileRequested;
+
+    private int updateDepth;
+
+    private volatile HttpHandler snapshot;
+
+    public ProteusRoutingHandler()
+    {
+
+        this(true);
+    }
+
+    /**
+     * @param rewriteQueryParameters whether path parameters are added to the query parameters
+     */
+    public ProteusRoutingHandler(boolean rewriteQueryParameters)
+    {
+
+        super(rewriteQueryParameters);
+
+        this.rewriteQueryParameters = rewriteQueryParameters;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception
+    {
+
+        final HttpHandler router = snapshot;
+
+        if (router != null)
+        {
+            router.handleRequest(exchange);
+        }
+        else
+        {
+            super.handleRequest(exchange);
+        }
+    }
+
+    /**
+     * Add a route and publish it. Once compiled the router is rebuilt for every route added this way, use
+     * {@link #update(Consumer)} to add several routes.
+     */
+    @Override
+    public synchronized RoutingHandler add(HttpString method, String template, HttpHandler handler)
+    {
+
+        if (!disabledRoutes.contains(key(method, template)))
+        {
+            super.add(method, template, handler);
+        }
+
+        added(new RadixTreeRouter.RouteDefinition(method, template, null, handler));
+
+        return this;
+    }
+
+    /**
+     * Add a route and publish it. Once compiled the router is rebuilt for every route added this way, use
+     * {@link #update(Consumer)} to add several routes.
+     */
+    @Override
+    public synchronized RoutingHandler add(HttpString method, String template, Predicate predicate, HttpHandler handler)
+    {
+
+        if (!disabledRoutes.contains(key(method, template)))
+        {
+            super.add(method, template, predicate, handler);
+        }
+
+        added(new RadixTreeRouter.RouteDefinition(method, template, predicate, handler));
+
+        return this;
+    }
+
+    @Override
+    public synchronized RoutingHandler addAll(RoutingHandler routingHandler)
+    {
+
+        super.addAll(routingHandler);
+
+        final List<RadixTreeRouter.RouteDefinition> addedRoutes;
+
+        if (routingHandler instanceof ProteusRoutingHandler)
+        {
+            final ProteusRoutingHandler proteusRoutingHandler = (ProteusRoutingHandler) routingHandler;
+
+            addedRoutes = proteusRoutingHandler.getRoutes();
+
+            compilable &= proteusRoutingHandler.compilable;
+        }
+        else
+        {
+            addedRoutes = null;
+
+            if (compilable)
+            {
+                log.warn("Routes added from a {} are not compiled, requests will be routed by {}", routingHandler.getClass().getName(), RoutingHandler.class.getName());
+
+                compilable = false;
+            }
+        }
+
+        if (addedRoutes != null)
+        {
+            for (RadixTreeRouter.RouteDefinition route : addedRoutes)
+            {
+                routes.add(route);
+
+                if (disabledRoutes.contains(key(route.getMethod(), route.getTemplate())))
+                {
+                    super.remove(route.getMethod(), route.getTemplate());
+                }
+            }
+        }
+
+        recompile();
+
+        return this;
+    }
+
+    @Override
+    public synchronized RoutingHandler remove(HttpString method, String path)
+    {
+
+        super.remove(method, path);
+
+        routes.removeIf(r -> r.getMethod().equals(method) && r.getTemplate().equals(path));
+
+        disabledRoutes.remove(key(method, path));
+
+        recompile();
+
+        return this;
+    }
+
+    @Override
+    public synchronized RoutingHandler remove(String path)
+    {
+
+        super.remove(path);
+
+        routes.removeIf(r -> r.getTemplate().equals(path));
+
+        disabledRoutes.removeIf(k -> k.endsWith(" " + path));
+
+        recompile();
+
+        return this;
+    }
+
+    @Override
+    public synchronized RoutingHandler setFallbackHandler(HttpHandler fallbackHandler)
+    {
+
+        super.setFallbackHandler(fallbackHandler);
+
+        recompile();
+
+        return this;
+    }
+
+    @Override
+    public synchronized RoutingHandler setInvalidMethodHandler(HttpHandler invalidMethodHandler)
+    {
+
+        super.setInvalidMethodHandler(invalidMethodHandler);
+
+        recompile();
+
+        return this;
+    }
+
+    /**
+     * Apply several changes and publish them as a single snapshot
+     *
+     * @param changes changes to this router, e.g. adding or removing routes
+     * @return this
+     */
+    public synchronized ProteusRoutingHandler update(Consumer<? super ProteusRoutingHandler> changes)
+    {
+
+        updateDepth++;
+
+        try
+        {
+            if (updateDepth == 1 && snapshot == null && compilable)
+            {
+                snapshot = copyRoutes();
+            }
+
+            changes.accept(this);
+
+        } finally
+        {
+            updateDepth--;
+
+            recompile();
+        }
+
+        return this;
+    }
+
+    /**
+     * Enable or disable the routes of a method and template, requests to a disabled route are handled as if it was never added
+     *
+     * @param method   the method
+     * @param template the path template
+     * @param enabled  whether the routes are enabled
+     * @return this
+     */
+    public synchronized ProteusRoutingHandler setEnabled(HttpString method, String template, boolean enabled)
+    {
+
+        final String key = key(method, template);
+
+        if (enabled ? !disabledRoutes.remove(key) : !disabledRoutes.add(key))
+        {
+            return this;
+        }
+
+        super.remove(method, template);
+
+        if (enabled)
+        {
+            for (RadixTreeRouter.RouteDefinition route : routes)
+            {
+                if (route.getMethod().equals(method) && route.getTemplate().equals(template))
+                {
+                    if (route.getPredicate() != null)
+                    {
+                        super.add(method, template, route.getPredicate(), route.getHandler());
+                    }
+                    else
+                    {
+                        super.add(method, template, route.getHandler());
+                    }
+                }
+            }
+        }
+
+        recompile();
+
+        return this;
+    }
+
+    /**
+     * @param method   the method
+     * @param template the path template
+     * @return false if the routes of the method and template are disabled
+     */
+    public synchronized boolean isEnabled(HttpString method, String template)
+    {
+
+        return !disabledRoutes.contains(key(method, template));
+    }
+
+    /**
+     * Compile the current routes into a {@link RadixTreeRouter} and route all further requests with it
+     *
+     * @return true if requests are now routed by the compiled router
+     */
+    public synchronized boolean compile()
+    {
+
+        compileRequested = true;
+
+        recompile();
+
+        return getCompiledRouter() != null;
+    }
+
+    /**
+     * @return the routes in the order they were added
+     */
+    public synchronized List<RadixTreeRouter.RouteDefinition> getRoutes()
+    {
+
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * @return the compiled router or null if requests are routed by {@link RoutingHandler}
+     */
+    public RadixTreeRouter getCompiledRouter()
+    {
+
+        final HttpHandler router = snapshot;
+
+        return router instanceof RadixTreeRouter ? (RadixTreeRouter) router : null;
+    }
+
+    private void added(RadixTreeRouter.RouteDefinition route)
+    {
+
+        routes.add(route);
+
+        final HttpHandler router = snapshot;
+
+        if (updateDepth == 0 && router instanceof RoutingHandler && !disabledRoutes.contains(key(route.getMethod(), route.getTemplate())))
+        {
+            // adding a route to the copy requests are routed by is as atomic as adding it to any RoutingHandler, and
+            // saves copying all routes for every route a supplier adds
+            add((RoutingHandler) router, route);
+        }
+        else
+        {
+            recompile();
+        }
+    }
+
+    /**
+     * Publish the routes after a change unless it is part of a batch, compiled if compilation was requested and otherwise
+     * copied to a {@link RoutingHandler}. Requests are only routed by this router itself once routes that can not be
+     * recorded were merged.
+     */
+    private void recompile()
+    {
+
+        if (updateDepth > 0)
+        {
+            return;
+        }
+
+        if (!compilable)
+        {
+            snapshot = null;
+            return;
+        }
+
+        if (compileRequested)
+        {
+            try
+            {
+                snapshot = RadixTreeRouter.compile(enabledRoutes(), getFallbackHandler(), getInvalidMethodHandler(), rewriteQueryParameters);
+                return;
+
+            } catch (IllegalArgumentException e)
+            {
+                log.warn("Failed to compile routes, requests will not be routed by a compiled router: {}", e.getMessage());
+            }
+        }
+
+        snapshot = copyRoutes();
+    }
+
+    /**
+     * @return a {@link RoutingHandler} holding the enabled routes
+     */
+    private RoutingHandler copyRoutes()
+    {
+
+        final RoutingHandler router = new RoutingHandler(rewriteQueryParameters);
+
+        for (RadixTreeRouter.RouteDefinition route : enabledRoutes())
+        {
+            add(router, route);
+        }
+
+        router.setFallbackHandler(getFallbackHandler());
+        router.setInvalidMethodHandler(getInvalidMethodHandler());
+
+        return router;
+    }
+
+    private static void add(RoutingHandler router, RadixTreeRouter.RouteDefinition route)
+    {
+
+        if (route.getPredicate() != null)
+        {
+            router.add(route.getMethod(), route.getTemplate(), route.getPredicate(), route.getHandler());
+        }
+        else
+        {
+            router.add(route.getMethod(), route.getTemplate(), route.getHandler());
+        }
+    }
+
+    private List<RadixTreeRouter.RouteDefinition> enabledRoutes()
+    {
+
+        return disabledRoutes.isEmpty() ? routes : routes.stream().filter(r -> !disabledRoutes.contains(key(r.getMethod(), r.getTemplate()))).collect(Collectors.toList());
+    }
+
+    private static String key(HttpString method, String template)
+    {
+
+        return method + " " + template;
+    }
+
+}
@@ -0,0 +1,891 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import io.undertow.util.PathTemplateMatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable router that compiles a set of path templates into a single radix tree.
+ * <p>
+ * Static segments of the templates are the edges of the tree, {@code {param}} segments and a trailing {@code *} are
+ * child nodes of their own, and every node that terminates a template holds a table of the routes registered for it by
+ * method. A request is matched with one walk of the tree that prefers static edges over parameters over wildcards,
+ * recording the bounds of captured parameters in a reusable per thread array. Parameter values are only materialized
+ * once a route has been selected.
+ * <p>
+ * Matching follows {@link io.undertow.server.RoutingHandler}: a path with a trailing slash matches a template with parameters
+ * that lacks it, parameters are added to the query parameters and attached as a {@link PathTemplateMatch}, a path that is only matched
+ * for other methods is sent to the invalid method handler and anything else to the fallback handler.
+ * <p>
+ * Templates without parameters, e.g. the health check or favicon, are also placed in a perfect hash table that is probed
+ * once before the tree is walked, including templates whose {@link String#hashCode()} collides. A path that misses the
+ * table goes straight to the tree.
+ *
+ * @see ProteusRoutingHandler
+ */
+public class RadixTreeRouter implements HttpHandler
+{
+
+    private static final String WILDCARD = "*";
+
+    private static final ThreadLocal<MatchState> MATCH_STATE = ThreadLocal.withInitial(MatchState::new);
+
+    private final Node root;
+
+    private final int maxParameters;
+
+    private final int routeCount;
+
+    private final HttpHandler fallbackHandler;
+
+    private final HttpHandler invalidMethodHandler;
+
+    private final boolean rewriteQueryParameters;
+
+    private final StaticTable staticRoutes;
+
+    private RadixTreeRouter(Node root, StaticTable staticRoutes, int maxParameters, int routeCount, HttpHandler fallbackHandler, HttpHandler invalidMethodHandler, boolean rewriteQueryParameters)
+    {
+
+        this.root = root;
+        this.staticRoutes = staticRoutes;
+        this.maxParameters = maxParameters;
+        this.routeCount = routeCount;
+        this.fallbackHandler = fallbackHandler;
+        this.invalidMethodHandler = invalidMethodHandler;
+        this.rewriteQueryParameters = rewriteQueryParameters;
+    }
+
+    /**
+     * Compile routes into a router
+     *
+     * @param routes                 routes in the order they were registered
+     * @param fallbackHandler        handler for requests that match no route
+     * @param invalidMethodHandler   handler for requests whose path only matches routes of other methods, may be null
+     * @param rewriteQueryParameters whether path parameters are added to the query parameters
+     * @return the router
+     * @throws IllegalArgumentException if a template can not be represented in the tree, e.g. a parameter that is only part of a segment
+     */
+    public static RadixTreeRouter compile(List<RouteDefinition> routes, HttpHandler fallbackHandler, HttpHandler invalidMethodHandler, boolean rewriteQueryParameters)
+    {
+
+        final Node root = new Node("");
+
+        final Map<String, Node> staticNodes = new LinkedHashMap<>();
+
+        int maxParameters = 0;
+
+        for (RouteDefinition route : routes)
+        {
+            List<String> parameterNames = new ArrayList<>();
+
+            Node node = root;
+
+            StringBuilder literal = new StringBuilder();
+
+            final String template = normalize(route.getTemplate());
+
+            int start = 1;
+
+            literal.append('/');
+
+            while (start <= template.length())
+            {
+                int end = template.indexOf('/', start);
+
+                if (end < 0)
+                {
+                    end = template.length();
+                }
+
+                final String segment = template.substring(start, end);
+
+                if (segment.length() > 1 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}' && segment.indexOf('{', 1) < 0)
+                {
+                    node = node.insertLiteral(literal.toString());
+                    literal.setLength(0);
+
+                    if (node.parameterChild == null)
+                    {
+                        node.parameterChild = new Node("");
+                    }
+
+                    node = node.parameterChild;
+
+                    parameterNames.add(segment.substring(1, segment.length() - 1));
+                }
+                else if (segment.equals(WILDCARD) && end == template.length())
+                {
+                    node = node.insertLiteral(literal.toString());
+                    literal.setLength(0);
+
+                    if (node.wildcardChild == null)
+                    {
+                        node.wildcardChild = new Node("");
+                    }
+
+                    node = node.wildcardChild;
+
+                    parameterNames.add(WILDCARD);
+                }
+                else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0 || segment.contains(WILDCARD))
+                {
+                    throw new IllegalArgumentException("Unsupported path template " + route.getTemplate());
+                }
+                else
+                {
+                    literal.append(segment);
+                }
+
+                if (end < template.length())
+                {
+                    literal.append('/');
+                }
+
+                start = end + 1;
+            }
+
+            node = node.insertLiteral(literal.toString());
+
+            node.addRoute(route, parameterNames.toArray(new String[0]));
+
+            if (parameterNames.isEmpty())
+            {
+                staticNodes.put(template, node);
+            }
+
+            maxParameters = Math.max(maxParameters, parameterNames.size());
+        }
+
+        return new RadixTreeRouter(root, new StaticTable(staticNodes), maxParameters, routes.size(), fallbackHandler, invalidMethodHandler, rewriteQueryParameters);
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception
+    {
+
+        final String path = normalize(exchange.getRelativePath());
+
+        final MatchState state = MATCH_STATE.get();
+
+        final HttpString method = exchange.getRequestMethod();
+
+        MethodRoute route = null;
+
+        final Node staticNode = staticRoutes.get(path);
+
+        if (staticNode != null)
+        {
+            route = staticNode.route(method);
+        }
+
+        if (route == null)
+        {
+            route = match(path, method, state);
+        }
+
+        if (route == null)
+        {
+            if (invalidMethodHandler != null && state.pathMatched)
+            {
+                invalidMethodHandler.handleRequest(exchange);
+            }
+            else
+            {
+                fallbackHandler.handleRequest(exchange);
+            }
+
+            return;
+        }
+
+        final String[] parameterNames = route.parameterNames;
+
+        if (parameterNames.length == 0)
+        {
+            exchange.putAttachment(PathTemplateMatch.ATTACHMENT_KEY, route.staticMatch);
+        }
+        else
+        {
+            final int[] bounds = state.bounds;
+
+            final Map<String, String> parameters = new LinkedHashMap<>(parameterNames.length * 2);
+
+            for (int i = 0; i < parameterNames.length; i++)
+            {
+                final String value = path.substring(bounds[i * 2], bounds[i * 2 + 1]);
+
+                parameters.put(parameterNames[i], value);
+
+                if (rewriteQueryParameters)
+                {
+                    exchange.addQueryParam(parameterNames[i], value);
+                }
+            }
+
+            exchange.putAttachment(PathTemplateMatch.ATTACHMENT_KEY, new PathTemplateMatch(route.template, parameters));
+        }
+
+        final Predicate[] predicates = route.predicates;
+
+        for (int i = 0; i < predicates.length; i++)
+        {
+            if (predicates[i].resolve(exchange))
+            {
+                route.predicatedHandlers[i].handleRequest(exchange);
+                return;
+            }
+        }
+
+        if (route.defaultHandler != null)
+        {
+            route.defaultHandler.handleRequest(exchange);
+        }
+        else
+        {
+            fallbackHandler.handleRequest(exchange);
+        }
+    }
+
+    /**
+     * @return the number of templates without parameters that are resolved by the perfect hash table
+     */
+    public int getStaticRouteCount()
+    {
+
+        return staticRoutes.size();
+    }
+
+    /**
+     * @return the number of routes the router was compiled from
+     */
+    public int getRouteCount()
+    {
+
+        return routeCount;
+    }
+
+    private MethodRoute match(String path, HttpString method, MatchState state)
+    {
+
+        state.reset(maxParameters);
+
+        MethodRoute route = find(root, path, 0, path.length(), method, state, 0, false);
+
+        if (route == null && path.length() > 1 && path.charAt(path.length() - 1) == '/')
+        {
+            route = find(root, path, 0, path.length() - 1, method, state, 0, true);
+        }
+
+        return route;
+    }
+
+    private static MethodRoute find(Node node, String path, int position, int limit, HttpString method, MatchState state, int depth, boolean trailingSlash)
+    {
+
+        // like PathTemplateMatcher only templates with parameters match a path with an extra trailing slash
+        if (position == limit && node.methods.length > 0 && (!trailingSlash || depth > 0))
+        {
+            state.pathMatched = true;
+
+            MethodRoute route = node.route(method);
+
+            if (route != null)
+            {
+                return route;
+            }
+        }
+
+        if (position < limit)
+        {
+            final Node child = node.child(path, position, limit);
+
+            if (child != null)
+            {
+                MethodRoute route = find(child, path, position + child.prefix.length(), limit, method, state, depth, trailingSlash);
+
+                if (route != null)
+                {
+                    return route;
+                }
+            }
+        }
+
+        if (node.parameterChild != null)
+        {
+            int end = path.indexOf('/', position);
+
+            if (end < 0 || end > limit)
+            {
+                end = limit;
+            }
+
+            state.bounds[depth * 2] = position;
+            state.bounds[depth * 2 + 1] = end;
+
+            MethodRoute route = find(node.parameterChild, path, end, limit, method, state, depth + 1, trailingSlash);
+
+            if (route != null)
+            {
+                return route;
+            }
+        }
+
+        if (node.wildcardChild != null && node.wildcardChild.methods.length > 0)
+        {
+            state.pathMatched = true;
+
+            MethodRoute route = node.wildcardChild.route(method);
+
+            if (route != null)
+            {
+                state.bounds[depth * 2] = position;
+                state.bounds[depth * 2 + 1] = limit;
+
+                return route;
+            }
+        }
+
+        return null;
+    }
+
+    private static String normalize(String path)
+    {
+
+        if (path.isEmpty())
+        {
+            return "/";
+        }
+
+        return path.charAt(0) == '/' ? path : "/" + path;
+    }
+
+    /**
+     * A route as registered with a {@link io.undertow.server.RoutingHandler}
+     */
+    public static final class RouteDefinition
+    {
+
+        private final HttpString method;
+
+        private final String template;
+
+        private final Predicate predicate;
+
+        private final HttpHandler handler;
+
+        public RouteDefinition(HttpString method, String template, Predicate predicate, HttpHandler handler)
+        {
+
+            this.method = method;
+            this.template = template;
+            this.predicate = predicate;
+            this.handler = handler;
+        }
+
+        public HttpString getMethod()
+        {
+
+            return method;
+        }
+
+        public String getTemplate()
+        {
+
+            return template;
+        }
+
+        public Predicate getPredicate()
+        {
+
+            return predicate;
+        }
+
+        public HttpHandler getHandler()
+        {
+
+            return handler;
+        }
+    }
+
+    /**
+     * The handlers of one method of a node
+     */
+    private static final class MethodRoute
+    {
+
+        private final String template;
+
+        private final String[] parameterNames;
+
+        private final PathTemplateMatch staticMatch;
+
+        private Predicate[] predicates = new Predicate[0];
+
+        private HttpHandler[] predicatedHandlers = new HttpHandler[0];
+
+        private HttpHandler defaultHandler;
+
+        MethodRoute(String template, String[] parameterNames)
+        {
+
+            this.template = template;
+            this.parameterNames = parameterNames;
+            this.staticMatch = parameterNames.length == 0 ? new PathTemplateMatch(template, Collections.emptyMap()) : null;
+        }
+
+        void add(Predicate predicate, HttpHandler handler)
+        {
+
+            if (predicate == null)
+            {
+                defaultHandler = handler;
+                return;
+            }
+
+            predicates = Arrays.copyOf(predicates, predicates.length + 1);
+            predicates[predicates.length - 1] = predicate;
+
+            predicatedHandlers = Arrays.copyOf(predicatedHandlers, predicatedHandlers.length + 1);
+            predicatedHandlers[predicatedHandlers.length - 1] = handler;
+        }
+    }
+
+    /**
+     * A node of the tree, only modified while the router is compiled
+     */
+    private static final class Node
+    {
+
+        private String prefix;
+
+        private char[] indices = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private Node parameterChild;
+
+        private Node wildcardChild;
+
+        private HttpString[] methods = new HttpString[0];
+
+        private MethodRoute[] routes = new MethodRoute[0];
+
+        Node(String prefix)
+        {
+
+            this.prefix = prefix;
+        }
+
+        Node child(String path, int position, int limit)
+        {
+
+            final char c = path.charAt(position);
+
+            for (int i = 0; i < indices.length; i++)
+            {
+                if (indices[i] == c)
+                {
+                    final Node child = children[i];
+
+                    final int length = child.prefix.length();
+
+                    return position + length <= limit && path.startsWith(child.prefix, position) ? child : null;
+                }
+            }
+
+            return null;
+        }
+
+        MethodRoute route(HttpString method)
+        {
+
+            for (int i = 0; i < methods.length; i++)
+            {
+                if (methods[i].equals(method))
+                {
+                    return routes[i];
+                }
+            }
+
+            return null;
+        }
+
+        void addRoute(RouteDefinition definition, String[] parameterNames)
+        {
+
+            MethodRoute route = route(definition.getMethod());
+
+            if (route == null)
+            {
+                route = new MethodRoute(definition.getTemplate(), parameterNames);
+
+                methods = Arrays.copyOf(methods, methods.length + 1);
+                methods[methods.length - 1] = definition.getMethod();
+
+                routes = Arrays.copyOf(routes, routes.length + 1);
+                routes[routes.length - 1] = route;
+            }
+
+            route.add(definition.getPredicate(), definition.getHandler());
+        }
+
+        Node insertLiteral(String literal)
+        {
+
+            Node node = this;
+
+            while (!literal.isEmpty())
+            {
+                final char c = literal.charAt(0);
+
+                int index = -1;
+
+                for (int i = 0; i < node.indices.length; i++)
+                {
+                    if (node.indices[i] == c)
+                    {
+                        index = i;
+                        break;
+                    }
+                }
+
+                if (index < 0)
+                {
+                    final Node child = new Node(literal);
+
+                    node.indices = Arrays.copyOf(node.indices, node.indices.length + 1);
+                    node.indices[node.indices.length - 1] = c;
+
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.children[node.children.length - 1] = child;
+
+                    return child;
+                }
+
+                Node child = node.children[index];
+
+                int common = 0;
+
+                final int max = Math.min(child.prefix.length(), literal.length());
+
+                while (common < max && child.prefix.charAt(common) == literal.charAt(common))
+                {
+                    common++;
+                }
+
+                if (common < child.prefix.length())
+                {
+                    final Node split = new Node(child.prefix.substring(0, common));
+
+                    child.prefix = child.prefix.substring(common);
+
+                    split.indices = new char[]{child.prefix.charAt(0)};
+                    split.children = new Node[]{child};
+
+                    node.children[index] = split;
+
+                    child = split;
+                }
+
+                literal = literal.substring(common);
+
+                node = child;
+            }
+
+            return node;
+        }
+    }
+
+    /**
+     * A perfect hash table of the nodes of templates without parameters
+     * <p>
+     * Built by hash and displace: the distinct hashes of the paths are grouped into buckets by one hash and every bucket,
+     * largest first, searches for a displacement that sends each of its hashes to a free slot of the table. A lookup is then
+     * one bucket read, one slot read and one comparison.
+     * <p>
+     * Slots are derived from {@link String#hashCode()}, so paths with equal hashes share a slot: the first is stored in the
+     * slot and the others in a short chain that is only read when the first does not match. All paths are left out if no
+     * placement is found before the table reaches {@link #MAX_GROWTH} times the bucket count, and are then resolved by the
+     * tree.
+     */
+    private static final class StaticTable
+    {
+
+        private static final int MAX_DISPLACEMENT = 1 << 16;
+
+        private static final int MAX_GROWTH = 16;
+
+        private final int[] displacements;
+
+        private final String[] paths;
+
+        private final Node[] nodes;
+
+        private final String[][] chainedPaths;
+
+        private final Node[][] chainedNodes;
+
+        private final int bucketMask;
+
+        private final int mask;
+
+        StaticTable(Map<String, Node> staticNodes)
+        {
+
+            final Map<Integer, List<String>> pathsByHash = new LinkedHashMap<>();
+
+            for (String path : staticNodes.keySet())
+            {
+                pathsByHash.computeIfAbsent(path.hashCode(), hash -> new ArrayList<>(1)).add(path);
+            }
+
+            final int bucketCount = Integer.highestOneBit(Math.max(1, pathsByHash.size() - 1)) << 1;
+
+            final List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+
+            for (int i = 0; i < bucketCount; i++)
+            {
+                buckets.add(new ArrayList<>());
+            }
+
+            for (int hash : pathsByHash.keySet())
+            {
+                buckets.get(bucket(hash, bucketCount - 1)).add(hash);
+            }
+
+            final List<Integer> order = new ArrayList<>(bucketCount);
+
+            for (int i = 0; i < bucketCount; i++)
+            {
+                order.add(i);
+            }
+
+            order.sort((a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+            int size = bucketCount * 2;
+
+            int[] bucketDisplacements;
+
+            Integer[] tableHashes;
+
+            while (true)
+            {
+                bucketDisplacements = new int[bucketCount];
+
+                tableHashes = new Integer[size];
+
+                if (place(buckets, order, bucketDisplacements, tableHashes))
+                {
+                    break;
+                }
+
+                size <<= 1;
+
+                if (size > bucketCount * MAX_GROWTH)
+                {
+                    bucketDisplacements = new int[bucketCount];
+
+                    tableHashes = new Integer[1];
+
+                    break;
+                }
+            }
+
+            this.displacements = bucketDisplacements;
+            this.paths = new String[tableHashes.length];
+            this.nodes = new Node[tableHashes.length];
+            this.chainedPaths = new String[tableHashes.length][];
+            this.chainedNodes = new Node[tableHashes.length][];
+            this.bucketMask = bucketCount - 1;
+            this.mask = tableHashes.length - 1;
+
+            for (int i = 0; i < tableHashes.length; i++)
+            {
+                if (tableHashes[i] == null)
+                {
+                    continue;
+                }
+
+                final List<String> slotPaths = pathsByHash.get(tableHashes[i]);
+
+                paths[i] = slotPaths.get(0);
+                nodes[i] = staticNodes.get(paths[i]);
+
+                if (slotPaths.size() > 1)
+                {
+                    chainedPaths[i] = slotPaths.subList(1, slotPaths.size()).toArray(new String[0]);
+                    chainedNodes[i] = new Node[chainedPaths[i].length];
+
+                    for (int j = 0; j < chainedPaths[i].length; j++)
+                    {
+                        chainedNodes[i][j] = staticNodes.get(chainedPaths[i][j]);
+                    }
+                }
+            }
+        }
+
+        Node get(String path)
+        {
+
+            final int hash = path.hashCode();
+
+            final int index = slot(hash, displacements[bucket(hash, bucketMask)], mask);
+
+            final String candidate = paths[index];
+
+            if (candidate == null)
+            {
+                return null;
+            }
+
+            if (candidate.equals(path))
+            {
+                return nodes[index];
+            }
+
+            final String[] chained = chainedPaths[index];
+
+            if (chained != null)
+            {
+                for (int i = 0; i < chained.length; i++)
+                {
+                    if (chained[i].equals(path))
+                    {
+                        return chainedNodes[index][i];
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        int size()
+        {
+
+            int size = 0;
+
+            for (int i = 0; i < paths.length; i++)
+            {
+                if (paths[i] != null)
+                {
+                    size += chainedPaths[i] == null ? 1 : chainedPaths[i].length + 1;
+                }
+            }
+
+            return size;
+        }
+
+        private static boolean place(List<List<Integer>> buckets, List<Integer> order, int[] displacements, Integer[] table)
+        {
+
+            final int mask = table.length - 1;
+
+            final int[] slots = new int[buckets.get(order.get(0)).size()];
+
+            for (int bucket : order)
+            {
+                final List<Integer> bucketHashes = buckets.get(bucket);
+
+                if (bucketHashes.isEmpty())
+                {
+                    break;
+                }
+
+                boolean placed = false;
+
+                for (int displacement = 0; displacement < MAX_DISPLACEMENT && !placed; displacement++)
+                {
+                    placed = true;
+
+                    for (int i = 0; i < bucketHashes.size() && placed; i++)
+                    {
+                        slots[i] = slot(bucketHashes.get(i), displacement, mask);
+
+                        if (table[slots[i]] != null)
+                        {
+                            placed = false;
+                        }
+
+                        for (int j = 0; j < i && placed; j++)
+                        {
+                            placed = slots[j] != slots[i];
+                        }
+                    }
+
+                    if (placed)
+                    {
+                        for (int i = 0; i < bucketHashes.size(); i++)
+                        {
+                            table[slots[i]] = bucketHashes.get(i);
+                        }
+
+                        displacements[bucket] = displacement;
+                    }
+                }
+
+                if (!placed)
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static int bucket(int hash, int bucketMask)
+        {
+
+            return mix(hash) & bucketMask;
+        }
+
+        private static int slot(int hash, int displacement, int mask)
+        {
+
+            return mix(hash ^ (displacement * 0x9E3779B9 + 0x7F4A7C15)) & mask;
+        }
+
+        private static int mix(int h)
+        {
+
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+
+            return h;
+        }
+    }
+
+    /**
+     * Per thread state reused by every match
+     */
+    private static final class MatchState
+    {
+
+        private int[] bounds = new int[0];
+
+        private boolean pathMatched;
+
+        void reset(int maxParameters)
+        {
+
+            if (bounds.length < maxParameters * 2)
+            {
+                bounds = new int[maxParameters * 2];
+            }
+
+            pathMatched = false;
+        }
+    }
+
+}
@@ -0,0 +1,507 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.sinistral.proteus.ProteusApplication;
+import io.sinistral.proteus.server.EntityOutputStream;
+import io.sinistral.proteus.server.Extractors;
+import io.sinistral.proteus.server.ServerRequest;
+import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerSentEventResponse;
+import io.sinistral.proteus.server.StreamingResponse;
+import io.undertow.server.RoutingHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content addressed cache of compiled {@code Supplier<RoutingHandler>} classes.
+ * <p>
+ * Entries are keyed by a hash of the Proteus version, the generator classes, the runtime classes generated handlers call,
+ * the controller's class file and the generated source (which includes the handler wrapper set and paths). When an entry exists its class files are
+ * defined directly and compilation is skipped.
+ * <p>
+ * The cache directory is created readable and writable by the owner only, and is not used if it is owned by another user.
+ * Every entry records the SHA-256 digest of each of its class files, an entry whose class files do not match is deleted
+ * instead of being defined. Entries are touched when they are loaded and the least recently used are deleted once there
+ * are more than the maximum number.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class RouteSupplierCache
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RouteSupplierCache.class.getCanonicalName());
+
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private static final String MANIFEST_FILE_NAME = "classes.sha256";
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * Staging directories of compilations that did not finish, e.g. because the process was killed, are deleted after this long
+     */
+    private static final long STAGING_DIRECTORY_MAX_AGE_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Classes whose code determines the generated handlers or that the handlers call, a change to any of them invalidates all entries
+     */
+    private static final List<Class<?>> VERSIONED_CLASSES = List.of(HandlerGenerator.class, TypeHandler.class, ProteusRoutingHandler.class, Extractors.class, ServerRequest.class,
+            ServerResponse.class, EntityOutputStream.class, StreamingResponse.class, ServerSentEventResponse.class);
+
+    private final Path directory;
+
+    private final int maxEntries;
+
+    private final String version;
+
+    /**
+     * @param directory  root directory of the cache, created if it does not exist
+     * @param maxEntries maximum number of entries kept, the least recently used are deleted beyond it
+     */
+    public RouteSupplierCache(Path directory, int maxEntries) throws IOException
+    {
+
+        this(directory, maxEntries, version());
+    }
+
+    RouteSupplierCache(Path directory, int maxEntries, String version) throws IOException
+    {
+
+        this.directory = createPrivateDirectory(directory);
+        this.maxEntries = maxEntries;
+        this.version = version;
+    }
+
+    public Path getDirectory()
+    {
+
+        return directory;
+    }
+
+    /**
+     * @param controllerClass the controller class
+     * @param source          the generated route supplier source
+     * @return the cache key for the controller's route supplier
+     */
+    public String key(Class<?> controllerClass, String source) throws IOException
+    {
+
+        return Hashing.sha256().newHasher()
+                      .putString(version, StandardCharsets.UTF_8)
+                      .putBytes(classBytes(controllerClass))
+                      .putString(source, StandardCharsets.UTF_8)
+                      .hash().toString();
+    }
+
+    /**
+     * Define the cached classes for an entry
+     *
+     * @param key             the cache key
+     * @param canonicalName   the generated route supplier class name
+     * @param controllerClass the controller class, whose class loader is used as the parent
+     * @return the route supplier class or null if there is no usable entry
+     */
+    @SuppressWarnings("unchecked")
+    public Class<? extends Supplier<RoutingHandler>> load(String key, String canonicalName, Class<?> controllerClass)
+    {
+
+        Path entryDirectory = directory.resolve(key);
+
+        if (!Files.isDirectory(entryDirectory))
+        {
+            return null;
+        }
+
+        try
+        {
+            Map<String, byte[]> classes = classFiles(entryDirectory);
+
+            Path manifestFile = entryDirectory.resolve(MANIFEST_FILE_NAME);
+
+            if (!Files.isRegularFile(manifestFile) || !manifest(classes).equals(Files.readString(manifestFile, StandardCharsets.UTF_8)))
+            {
+                log.warn("Cached route supplier {} in {} does not match its digests, the entry is deleted", canonicalName, entryDirectory);
+
+                delete(entryDirectory);
+
+                return null;
+            }
+
+            if (!classes.containsKey(canonicalName))
+            {
+                return null;
+            }
+
+            Files.setLastModifiedTime(entryDirectory, FileTime.from(Instant.now()));
+
+            return (Class<? extends Supplier<RoutingHandler>>) new CachedClassLoader(controllerClass.getClassLoader(), classes).loadClass(canonicalName);
+
+        } catch (Exception e)
+        {
+            log.warn("Failed to load cached route supplier {} from {}", canonicalName, entryDirectory, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @return a new directory the compiler can write class files into before they are committed with {@link #commit(String, Path)}
+     */
+    public Path stagingDirectory(String key) throws IOException
+    {
+
+        return Files.createTempDirectory(directory, key + ".");
+    }
+
+    /**
+     * Publish the class files in a staging directory as the entry for a key
+     *
+     * @param key              the cache key
+     * @param stagingDirectory directory returned from {@link #stagingDirectory(String)}
+     */
+    public void commit(String key, Path stagingDirectory)
+    {
+
+        Path entryDirectory = directory.resolve(key);
+
+        try
+        {
+            Files.writeString(stagingDirectory.resolve(MANIFEST_FILE_NAME), manifest(classFiles(stagingDirectory)), StandardCharsets.UTF_8);
+
+            try
+            {
+                Files.move(stagingDirectory, entryDirectory, StandardCopyOption.ATOMIC_MOVE);
+
+            } catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(stagingDirectory, entryDirectory);
+            }
+
+        } catch (FileAlreadyExistsException e)
+        {
+            log.debug("Cache entry {} was already committed", key);
+            delete(stagingDirectory);
+
+        } catch (Exception e)
+        {
+            log.warn("Failed to commit cache entry {}", key, e);
+            delete(stagingDirectory);
+        }
+
+        evict();
+    }
+
+    /**
+     * Write class files to a staging directory and publish them as the entry for a key
+     *
+     * @param key        the cache key
+     * @param classFiles class file bytes keyed by binary class name
+     */
+    public void store(String key, Map<String, byte[]> classFiles)
+    {
+
+        try
+        {
+            Path stagingDirectory = stagingDirectory(key);
+
+            for (Map.Entry<String, byte[]> classFile : classFiles.entrySet())
+            {
+                Path classFilePath = stagingDirectory.resolve(classFile.getKey().replace('.', File.separatorChar) + CLASS_FILE_EXTENSION);
+
+                Files.createDirectories(classFilePath.getParent());
+
+                Files.write(classFilePath, classFile.getValue());
+            }
+
+            commit(key, stagingDirectory);
+
+        } catch (Exception e)
+        {
+            log.warn("Failed to store cache entry {}", key, e);
+        }
+    }
+
+    /**
+     * Delete the least recently used entries beyond the maximum number and abandoned staging directories
+     */
+    private void evict()
+    {
+
+        try (Stream<Path> paths = Files.list(directory))
+        {
+            final long now = System.currentTimeMillis();
+
+            final List<Path> entries = new ArrayList<>();
+
+            for (Path path : paths.collect(Collectors.toList()))
+            {
+                final long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+                if (!path.getFileName().toString().contains("."))
+                {
+                    entries.add(path);
+                }
+                else if (now - lastModified > STAGING_DIRECTORY_MAX_AGE_MILLIS)
+                {
+                    delete(path);
+                }
+            }
+
+            if (entries.size() <= maxEntries)
+            {
+                return;
+            }
+
+            final Map<Path, FileTime> lastModifiedTimes = new HashMap<>();
+
+            for (Path entry : entries)
+            {
+                lastModifiedTimes.put(entry, Files.getLastModifiedTime(entry));
+            }
+
+            entries.sort(Comparator.comparing(lastModifiedTimes::get));
+
+            for (Path entry : entries.subList(0, entries.size() - maxEntries))
+            {
+                log.debug("Evicting cache entry {}", entry.getFileName());
+
+                delete(entry);
+            }
+
+        } catch (Exception e)
+        {
+            log.warn("Failed to evict cache entries from {}", directory, e);
+        }
+    }
+
+    /**
+     * @return the bytes of the class files in a directory keyed by binary class name
+     */
+    private static Map<String, byte[]> classFiles(Path entryDirectory) throws IOException
+    {
+
+        try (Stream<Path> paths = Files.walk(entryDirectory))
+        {
+            List<Path> classFiles = paths.filter(p -> p.toString().endsWith(CLASS_FILE_EXTENSION)).collect(Collectors.toList());
+
+            Map<String, byte[]> classes = new HashMap<>(classFiles.size());
+
+            for (Path classFile : classFiles)
+            {
+                String relativePath = entryDirectory.relativize(classFile).toString();
+
+                String className = relativePath.substring(0, relativePath.length() - CLASS_FILE_EXTENSION.length()).replace(File.separatorChar, '.');
+
+                classes.put(className, Files.readAllBytes(classFile));
+            }
+
+            return classes;
+        }
+    }
+
+    /**
+     * @return one line with the SHA-256 digest and binary name of each class, sorted by name
+     */
+    private static String manifest(Map<String, byte[]> classes)
+    {
+
+        final StringBuilder manifest = new StringBuilder();
+
+        for (Map.Entry<String, byte[]> classFile : new TreeMap<>(classes).entrySet())
+        {
+            manifest.append(Hashing.sha256().hashBytes(classFile.getValue())).append(' ').append(classFile.getKey()).append('\n');
+        }
+
+        return manifest.toString();
+    }
+
+    /**
+     * Create the cache directory so only its owner can access it, or check that an existing one is owned by the current user
+     */
+    private static Path createPrivateDirectory(Path directory) throws IOException
+    {
+
+        if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+        {
+            return Files.createDirectories(directory);
+        }
+
+        if (Files.notExists(directory, LinkOption.NOFOLLOW_LINKS))
+        {
+            if (directory.toAbsolutePath().getParent() != null)
+            {
+                Files.createDirectories(directory.toAbsolutePath().getParent());
+            }
+
+            try
+            {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+
+            } catch (FileAlreadyExistsException e)
+            {
+                log.debug("Cache directory {} was created concurrently", directory);
+            }
+        }
+
+        final PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+        if (!attributes.isDirectory())
+        {
+            throw new IOException(directory + " is not a directory");
+        }
+
+        final UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+
+        if (!attributes.owner().equals(user))
+        {
+            throw new IOException(directory + " is owned by " + attributes.owner().getName() + " instead of " + user.getName());
+        }
+
+        if (!attributes.permissions().equals(OWNER_ONLY))
+        {
+            Files.setPosixFilePermissions(directory, OWNER_ONLY);
+        }
+
+        return directory;
+    }
+
+    private static String version() throws IOException
+    {
+
+        Hasher hasher = Hashing.sha256().newHasher();
+
+        hasher.putString(String.valueOf(ProteusApplication.class.getPackage().getImplementationVersion()), StandardCharsets.UTF_8);
+
+        for (Class<?> versionedClass : VERSIONED_CLASSES)
+        {
+            putClassBytes(hasher, versionedClass);
+        }
+
+        return hasher.hash().toString();
+    }
+
+    private static void delete(Path path)
+    {
+
+        try (Stream<Path> paths = Files.walk(path))
+        {
+            paths.sorted((p1, p2) -> p2.compareTo(p1)).map(Path::toFile).forEach(File::delete);
+
+        } catch (Exception e)
+        {
+            log.debug("Failed to delete {}", path, e);
+        }
+    }
+
+    /**
+     * Hash a class and its nested classes, e.g. the extractors of {@link Extractors}
+     */
+    private static void putClassBytes(Hasher hasher, Class<?> clazz) throws IOException
+    {
+
+        hasher.putBytes(classBytes(clazz));
+
+        for (Class<?> nestedClass : clazz.getDeclaredClasses())
+        {
+            putClassBytes(hasher, nestedClass);
+        }
+    }
+
+    private static byte[] classBytes(Class<?> clazz) throws IOException
+    {
+
+        ClassLoader classLoader = clazz.getClassLoader() != null ? clazz.getClassLoader() : ClassLoader.getSystemClassLoader();
+
+        try (InputStream inputStream = classLoader.getResourceAsStream(clazz.getName().replace('.', '/') + CLASS_FILE_EXTENSION))
+        {
+            if (inputStream == null)
+            {
+                throw new IOException("The class file of " + clazz.getName() + " can not be read");
+            }
+
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static class CachedClassLoader extends ClassLoader
+    {
+
+        private final Map<String, byte[]> classes;
+
+        CachedClassLoader(ClassLoader parent, Map<String, byte[]> classes)
+        {
+
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException
+        {
+
+            byte[] bytes = classes.remove(name);
+
+            if (bytes == null)
+            {
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+
+            synchronized (getClassLoadingLock(name))
+            {
+                Class<?> clazz = findLoadedClass(name);
+
+                if (clazz == null && classes.containsKey(name))
+                {
+                    clazz = findClass(name);
+                }
+
+                if (clazz == null)
+                {
+                    return super.loadClass(name, resolve);
+                }
+
+                if (resolve)
+                {
+                    resolveClass(clazz);
+                }
+
+                return clazz;
+            }
+        }
+    }
+
+}
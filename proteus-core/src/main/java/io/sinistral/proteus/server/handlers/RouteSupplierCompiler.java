@@ -0,0 +1,516 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import io.undertow.server.RoutingHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the generated {@code Supplier<RoutingHandler>} sources of many controllers in a single javac task.
+ * <p>
+ * All sources share one file manager and one compilation pass. The resulting classes are defined by a single class loader,
+ * so an application with dozens of controllers pays for javac start up and symbol resolution once instead of once per controller.
+ * The elapsed time javac spends on each source is recorded and available through {@link Result#getCompilationNanos()}.
+ */
+public class RouteSupplierCompiler
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RouteSupplierCompiler.class.getCanonicalName());
+
+    private final ClassLoader parentClassLoader;
+
+    private final List<String> options;
+
+    /**
+     * @param parentClassLoader class loader the compiled classes delegate to, usually the one that loaded the controllers
+     */
+    public RouteSupplierCompiler(ClassLoader parentClassLoader)
+    {
+
+        this.parentClassLoader = parentClassLoader;
+
+        this.options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:none", "-g", "-nowarn");
+    }
+
+    /**
+     * Compile a batch of generated sources
+     * <p>
+     * Sources that fail to compile are left out of the result with their errors in {@link Result#getFailures()}, the other
+     * sources are compiled again without them. If an error can not be attributed to a source, the remaining sources are
+     * compiled one at a time.
+     *
+     * @param sources source code keyed by the canonical name of the class it declares
+     * @return the compiled classes and their class files
+     * @throws IllegalStateException if no system compiler is available
+     */
+    public Result compile(Map<String, String> sources)
+    {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null)
+        {
+            throw new IllegalStateException("No system java compiler is available, run on a JDK or set application.handlers.backend=methodHandle");
+        }
+
+        Map<String, String> remaining = new LinkedHashMap<>(sources);
+
+        Map<String, String> failures = new LinkedHashMap<>();
+
+        Map<String, ClassFile> classFiles = new ConcurrentHashMap<>();
+
+        Map<String, Long> compilationNanos = new ConcurrentHashMap<>();
+
+        while (!remaining.isEmpty())
+        {
+            Map<String, String> errors = new LinkedHashMap<>();
+
+            if (attempt(compiler, remaining, classFiles, compilationNanos, errors))
+            {
+                break;
+            }
+
+            if (!remaining.keySet().containsAll(errors.keySet()) || errors.isEmpty())
+            {
+                log.warn("Failed to compile route suppliers as a batch, compiling them one at a time");
+
+                compileEach(compiler, remaining, classFiles, compilationNanos, failures);
+
+                break;
+            }
+
+            for (Map.Entry<String, String> error : errors.entrySet())
+            {
+                remaining.remove(error.getKey());
+
+                failures.put(error.getKey(), error.getValue());
+            }
+
+            log.warn("Failed to compile route suppliers {}, compiling the {} others without them", errors.keySet(), remaining.size());
+        }
+
+        Map<String, byte[]> bytecode = classFiles.values().stream().collect(Collectors.toMap(ClassFile::getClassName, ClassFile::getBytes));
+
+        MemoryClassLoader classLoader = new MemoryClassLoader(parentClassLoader, bytecode);
+
+        Map<String, Class<? extends Supplier<RoutingHandler>>> classes = new LinkedHashMap<>();
+
+        Map<String, Map<String, byte[]>> classFilesBySource = new LinkedHashMap<>();
+
+        for (String canonicalName : sources.keySet())
+        {
+            if (failures.containsKey(canonicalName))
+            {
+                continue;
+            }
+
+            try
+            {
+                classes.put(canonicalName, loadSupplierClass(classLoader, canonicalName));
+
+            } catch (ClassNotFoundException e)
+            {
+                throw new IllegalStateException("Compiled route supplier " + canonicalName + " was not found", e);
+            }
+
+            Map<String, byte[]> sourceClassFiles = new HashMap<>();
+
+            bytecode.forEach((className, bytes) -> {
+
+                if (className.equals(canonicalName) || className.startsWith(canonicalName + "$"))
+                {
+                    sourceClassFiles.put(className, bytes);
+                }
+            });
+
+            classFilesBySource.put(canonicalName, sourceClassFiles);
+        }
+
+        log.debug("Compiled {} route suppliers into {} classes", classes.size(), bytecode.size());
+
+        return new Result(classes, classFilesBySource, compilationNanos, failures);
+    }
+
+    /**
+     * Compile each source in its own javac task, keeping the class files of those that compile
+     */
+    private void compileEach(JavaCompiler compiler, Map<String, String> sources, Map<String, ClassFile> classFiles, Map<String, Long> compilationNanos, Map<String, String> failures)
+    {
+
+        classFiles.clear();
+
+        compilationNanos.clear();
+
+        for (Map.Entry<String, String> source : sources.entrySet())
+        {
+            Map<String, ClassFile> sourceClassFiles = new ConcurrentHashMap<>();
+
+            Map<String, String> errors = new LinkedHashMap<>();
+
+            if (attempt(compiler, Map.of(source.getKey(), source.getValue()), sourceClassFiles, compilationNanos, errors))
+            {
+                classFiles.putAll(sourceClassFiles);
+            }
+            else
+            {
+                failures.put(source.getKey(), String.join("\n", errors.values()));
+            }
+        }
+    }
+
+    /**
+     * Run one javac task over the sources, replacing the contents of classFiles and compilationNanos
+     *
+     * @param errors receives error messages keyed by the canonical name of the source they were reported for, or by the
+     *               name of the file object for errors outside of the sources
+     * @return whether all sources compiled
+     */
+    private boolean attempt(JavaCompiler compiler, Map<String, String> sources, Map<String, ClassFile> classFiles, Map<String, Long> compilationNanos, Map<String, String> errors)
+    {
+
+        List<JavaFileObject> compilationUnits = sources.entrySet().stream().map(e -> new SourceFile(e.getKey(), e.getValue())).collect(Collectors.toList());
+
+        Map<URI, String> classNames = compilationUnits.stream().collect(Collectors.toMap(JavaFileObject::toUri, u -> ((SourceFile) u).className));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        classFiles.clear();
+
+        Map<String, Long> nanos = new HashMap<>();
+
+        try (StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+             MemoryFileManager fileManager = new MemoryFileManager(standardFileManager, classFiles))
+        {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits);
+
+            if (task instanceof JavacTask)
+            {
+                ((JavacTask) task).addTaskListener(new TimingTaskListener(classNames, nanos));
+            }
+
+            if (task.call())
+            {
+                compilationNanos.putAll(nanos);
+
+                return true;
+            }
+
+        } catch (Exception e)
+        {
+            log.error("Failed to compile route suppliers {}", sources.keySet(), e);
+
+            errors.put("", e.toString());
+
+            return false;
+        }
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+        {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR)
+            {
+                continue;
+            }
+
+            String source = diagnostic.getSource() != null ? classNames.getOrDefault(diagnostic.getSource().toUri(), diagnostic.getSource().getName()) : "";
+
+            String message = (diagnostic.getSource() != null ? diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": " : "") + diagnostic.getMessage(null);
+
+            errors.merge(source, message, (a, b) -> a + "\n" + b);
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Supplier<RoutingHandler>> loadSupplierClass(ClassLoader classLoader, String canonicalName) throws ClassNotFoundException
+    {
+
+        return (Class<? extends Supplier<RoutingHandler>>) classLoader.loadClass(canonicalName);
+    }
+
+    /**
+     * The outcome of a batch compilation
+     */
+    public static class Result
+    {
+
+        private final Map<String, Class<? extends Supplier<RoutingHandler>>> classes;
+
+        private final Map<String, Map<String, byte[]>> classFiles;
+
+        private final Map<String, Long> compilationNanos;
+
+        private final Map<String, String> failures;
+
+        Result(Map<String, Class<? extends Supplier<RoutingHandler>>> classes, Map<String, Map<String, byte[]>> classFiles, Map<String, Long> compilationNanos, Map<String, String> failures)
+        {
+
+            this.classes = classes;
+            this.classFiles = classFiles;
+            this.compilationNanos = compilationNanos;
+            this.failures = failures;
+        }
+
+        /**
+         * @return the compiled route supplier classes keyed by canonical name
+         */
+        public Map<String, Class<? extends Supplier<RoutingHandler>>> getClasses()
+        {
+
+            return classes;
+        }
+
+        /**
+         * @return class files, including nested classes, keyed by the canonical name of the source they were compiled from
+         */
+        public Map<String, Map<String, byte[]>> getClassFiles()
+        {
+
+            return classFiles;
+        }
+
+        /**
+         * @return time javac spent parsing, analyzing and generating each source keyed by canonical name
+         */
+        public Map<String, Long> getCompilationNanos()
+        {
+
+            return compilationNanos;
+        }
+
+        /**
+         * @return compiler errors of the sources that did not compile keyed by canonical name
+         */
+        public Map<String, String> getFailures()
+        {
+
+            return failures;
+        }
+    }
+
+    private static class TimingTaskListener implements TaskListener
+    {
+
+        private final Map<URI, String> classNames;
+
+        private final Map<String, Long> compilationNanos;
+
+        private final Map<String, Long> startNanos = new HashMap<>();
+
+        TimingTaskListener(Map<URI, String> classNames, Map<String, Long> compilationNanos)
+        {
+
+            this.classNames = classNames;
+            this.compilationNanos = compilationNanos;
+        }
+
+        /**
+         * javac wraps the file objects it was given, so sources are identified by URI
+         */
+        private String className(TaskEvent e)
+        {
+
+            return e.getSourceFile() != null ? classNames.get(e.getSourceFile().toUri()) : null;
+        }
+
+        @Override
+        public void started(TaskEvent e)
+        {
+
+            String className = className(e);
+
+            if (className != null)
+            {
+                startNanos.put(e.getKind() + ":" + className, System.nanoTime());
+            }
+        }
+
+        @Override
+        public void finished(TaskEvent e)
+        {
+
+            String className = className(e);
+
+            if (className != null)
+            {
+                Long start = startNanos.remove(e.getKind() + ":" + className);
+
+                if (start != null)
+                {
+                    compilationNanos.merge(className, System.nanoTime() - start, Long::sum);
+                }
+            }
+        }
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject
+    {
+
+        private final String className;
+
+        private final String source;
+
+        SourceFile(String className, String source)
+        {
+
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.className = className;
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject
+    {
+
+        private final String className;
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        ClassFile(String className)
+        {
+
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        String getClassName()
+        {
+
+            return className;
+        }
+
+        byte[] getBytes()
+        {
+
+            return outputStream.toByteArray();
+        }
+
+        @Override
+        public OutputStream openOutputStream()
+        {
+
+            return outputStream;
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager>
+    {
+
+        private final Map<String, ClassFile> classFiles;
+
+        MemoryFileManager(JavaFileManager fileManager, Map<String, ClassFile> classFiles)
+        {
+
+            super(fileManager);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling)
+        {
+
+            return classFiles.computeIfAbsent(className, ClassFile::new);
+        }
+    }
+
+    private static class MemoryClassLoader extends ClassLoader
+    {
+
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(ClassLoader parent, Map<String, byte[]> classes)
+        {
+
+            super(parent);
+            this.classes = new HashMap<>(classes);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException
+        {
+
+            byte[] bytes;
+
+            synchronized (classes)
+            {
+                bytes = classes.remove(name);
+            }
+
+            if (bytes == null)
+            {
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+
+            synchronized (getClassLoadingLock(name))
+            {
+                Class<?> clazz = findLoadedClass(name);
+
+                if (clazz == null)
+                {
+                    boolean local;
+
+                    synchronized (classes)
+                    {
+                        local = classes.containsKey(name);
+                    }
+
+                    if (local)
+                    {
+                        clazz = findClass(name);
+                    }
+                }
+
+                if (clazz == null)
+                {
+                    return super.loadClass(name, resolve);
+                }
+
+                if (resolve)
+                {
+                    resolveClass(clazz);
+                }
+
+                return clazz;
+            }
+        }
+    }
+
+}
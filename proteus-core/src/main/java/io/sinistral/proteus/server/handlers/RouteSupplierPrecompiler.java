@@ -0,0 +1,200 @@
+package io.sinistral.proteus.server.handlers;
+
+import com.google.common.hash.Hashing;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.sinistral.proteus.modules.ConfigModule;
+import io.undertow.server.RoutingHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Generates and compiles the {@code Supplier<RoutingHandler>} classes for a set of controllers at build time.
+ * <p>
+ * Along with each compiled class a digest of its generated source is written to
+ * {@code META-INF/proteus/handlers/<class name>.sha256}. At startup {@link io.sinistral.proteus.ProteusApplication}
+ * regenerates the source for every controller and only uses the precompiled class when the digests match,
+ * otherwise the handlers are compiled at runtime as before.
+ * <p>
+ * Usage: {@code java -cp <classpath> io.sinistral.proteus.server.handlers.RouteSupplierPrecompiler <classes directory> <controller class or package>...}
+ *
+ * @see #precompile(Injector, File, File, Collection)
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class RouteSupplierPrecompiler
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RouteSupplierPrecompiler.class.getCanonicalName());
+
+    public static final String GENERATED_PACKAGE_NAME = "io.sinistral.proteus.controllers.handlers";
+
+    public static final String DIGEST_RESOURCE_DIRECTORY = "META-INF/proteus/handlers/";
+
+    public static void main(String[] args) throws Exception
+    {
+
+        if (args.length < 2)
+        {
+            System.err.println("Usage: RouteSupplierPrecompiler <classes directory> <controller class or package>...");
+            System.exit(1);
+        }
+
+        File classesDirectory = new File(args[0]);
+
+        Set<Class<?>> controllers = new LinkedHashSet<>();
+
+        for (int i = 1; i < args.length; i++)
+        {
+            try
+            {
+                controllers.add(Class.forName(args[i]));
+
+            } catch (ClassNotFoundException e)
+            {
+                controllers.addAll(HandlerGenerator.getApiClasses(args[i], null));
+            }
+        }
+
+        Injector injector = Guice.createInjector(new ConfigModule());
+
+        List<String> classNames = precompile(injector, classesDirectory, null, controllers);
+
+        log.info("Precompiled {} route suppliers into {}", classNames.size(), classesDirectory);
+    }
+
+    /**
+     * Generate, compile and write the route supplier classes for the provided controllers
+     *
+     * @param injector          injector used to populate each {@link HandlerGenerator}
+     * @param classesDirectory  directory the class files and source digests are written to
+     * @param sourcesDirectory  optional directory the generated sources are written to
+     * @param controllers       controller classes
+     * @return the names of the generated classes
+     */
+    public static List<String> precompile(Injector injector, File classesDirectory, File sourcesDirectory, Collection<Class<?>> controllers) throws Exception
+    {
+
+        List<String> classNames = new ArrayList<>();
+
+        Path digestDirectory = classesDirectory.toPath().resolve(DIGEST_RESOURCE_DIRECTORY);
+
+        Files.createDirectories(digestDirectory);
+
+        Map<String, String> sources = new LinkedHashMap<>();
+
+        ClassLoader classLoader = RouteSupplierPrecompiler.class.getClassLoader();
+
+        for (Class<?> controllerClass : controllers)
+        {
+            HandlerGenerator generator = new HandlerGenerator(GENERATED_PACKAGE_NAME, controllerClass);
+
+            injector.injectMembers(generator);
+
+            sources.put(generator.getCanonicalName(), generator.generateClassSource());
+
+            classLoader = controllerClass.getClassLoader();
+        }
+
+        if (sources.isEmpty())
+        {
+            return classNames;
+        }
+
+        RouteSupplierCompiler.Result result = new RouteSupplierCompiler(classLoader).compile(sources);
+
+        if (!result.getFailures().isEmpty())
+        {
+            throw new IllegalStateException("Failed to compile route suppliers:\n" + String.join("\n", result.getFailures().values()));
+        }
+
+        for (Map.Entry<String, String> source : sources.entrySet())
+        {
+            String canonicalName = source.getKey();
+
+            for (Map.Entry<String, byte[]> classFile : result.getClassFiles().get(canonicalName).entrySet())
+            {
+                Path classFilePath = classesDirectory.toPath().resolve(classFile.getKey().replace('.', File.separatorChar) + ".class");
+
+                Files.createDirectories(classFilePath.getParent());
+
+                Files.write(classFilePath, classFile.getValue());
+            }
+
+            if (sourcesDirectory != null)
+            {
+                Path sourceFilePath = sourcesDirectory.toPath().resolve(canonicalName.replace('.', File.separatorChar) + ".java");
+
+                Files.createDirectories(sourceFilePath.getParent());
+
+                Files.write(sourceFilePath, source.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+
+            Files.write(digestDirectory.resolve(canonicalName + ".sha256"), digest(source.getValue()).getBytes(StandardCharsets.UTF_8));
+
+            classNames.add(canonicalName);
+
+            log.debug("Precompiled {}", canonicalName);
+        }
+
+        return classNames;
+    }
+
+    /**
+     * Load a precompiled route supplier for a controller if one exists and was generated from identical source
+     *
+     * @param controllerClass the controller class
+     * @param canonicalName   the generated class name
+     * @param source          the source generated for the current configuration
+     * @return the precompiled class or null if it is missing or stale
+     */
+    @SuppressWarnings("unchecked")
+    public static Class<? extends Supplier<RoutingHandler>> loadPrecompiled(Class<?> controllerClass, String canonicalName, String source)
+    {
+
+        ClassLoader classLoader = controllerClass.getClassLoader();
+
+        try (InputStream digestStream = classLoader.getResourceAsStream(DIGEST_RESOURCE_DIRECTORY + canonicalName + ".sha256"))
+        {
+            if (digestStream == null)
+            {
+                return null;
+            }
+
+            String expectedDigest = new String(digestStream.readAllBytes(), StandardCharsets.UTF_8).trim();
+
+            if (!expectedDigest.equals(digest(source)))
+            {
+                log.warn("Precompiled route supplier {} is stale and will be recompiled", canonicalName);
+                return null;
+            }
+
+            return (Class<? extends Supplier<RoutingHandler>>) Class.forName(canonicalName, true, classLoader);
+
+        } catch (Exception e)
+        {
+            log.warn("Unable to load precompiled route supplier {}", canonicalName, e);
+            return null;
+        }
+    }
+
+    public static String digest(String source)
+    {
+
+        return Hashing.sha256().hashString(source, StandardCharsets.UTF_8).toString();
+    }
+
+}
@@ -13,6 +13,7 @@ import io.sinistral.proteus.server.exceptions.ServerException;
 import io.sinistral.proteus.server.predicates.ServerPredicates;
 import io.undertow.server.DefaultResponseListener;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RequestTooBigException;
 import io.undertow.server.handlers.ExceptionHandler;
 import io.undertow.util.Headers;
 import io.undertow.util.StatusCodes;
@@ -82,6 +83,8 @@ public class ServerDefaultResponseListener implements DefaultResponseListener
 
             } else  if (throwable instanceof IllegalArgumentException) {
                 exchange.setStatusCode(StatusCodes.BAD_REQUEST);
+            } else if (throwable instanceof RequestTooBigException || throwable.getCause() instanceof RequestTooBigException) {
+                exchange.setStatusCode(StatusCodes.REQUEST_ENTITY_TOO_LARGE);
             }
 
             statusCode = exchange.getStatusCode();
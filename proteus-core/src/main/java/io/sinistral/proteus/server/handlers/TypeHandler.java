@@ -33,7 +33,7 @@ public enum TypeHandler {
     AnyType("$T $L = $T.any(exchange)", true, com.fasterxml.jackson.databind.JsonNode.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
     JsonNodeType("$T $L = $T.jsonNode(exchange)", true, com.fasterxml.jackson.databind.JsonNode.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
     NamedJsonNodeType("$T $L = $T.namedJsonNode(exchange,$S)", true, com.fasterxml.jackson.databind.JsonNode.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
-    ModelType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
+    ModelType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
     NamedModelType("$T $L = io.sinistral.proteus.server.Extractors.namedModel(exchange,$L,$S)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL, StatementParameterType.STRING),
 
     // EnumType("$T $L = $T.enumValue(exchange,$T.class,$S)", true,
@@ -46,6 +46,10 @@ public enum TypeHandler {
     ByteBufferType("$T $L =  $T.byteBuffer(exchange)", true, java.nio.ByteBuffer.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
     NamedByteBufferType("$T $L =  $T.namedByteBuffer(exchange,$S)", true, java.nio.ByteBuffer.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
 
+    InputStreamType("$T $L = $T.inputStream(exchange)", true, java.io.InputStream.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
+    ReadableByteChannelType("$T $L = $T.channel(exchange)", true, java.nio.channels.ReadableByteChannel.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
+    PublisherType("$T<$T> $L = $T.publisher(exchange)", false, java.util.concurrent.Flow.Publisher.class, java.nio.ByteBuffer.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class),
+
     DateType("$T $L =  $T.date(exchange,$S)", false, java.util.Date.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
     ZonedDateTimeType("$T $L = $T.zonedDateTime(exchange,$S)", false, java.time.ZonedDateTime.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
     OffsetDateTimeType("$T $L = $T.offsetDateTime(exchange,$S)", false, java.time.OffsetDateTime.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
@@ -56,14 +60,21 @@ public enum TypeHandler {
     DoubleType("Double $L = $T.doubleValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
     BigDecimalType("BigDecimal $L = $T.bigDecimalValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
 
+    PrimitiveLongType("long $L = $T.longValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+    PrimitiveIntegerType("int $L = $T.intValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+    PrimitiveShortType("short $L = $T.shortValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+    PrimitiveFloatType("float $L = $T.floatValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+    PrimitiveDoubleType("double $L = $T.doubleValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+    PrimitiveBooleanType("boolean $L = $T.booleanValue(exchange,$S)", false, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Primitive.class, StatementParameterType.STRING),
+
     ValueOfType("$T $L = $T.valueOf($T.string(exchange,$S))", false, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.TYPE, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
     FromStringType("$T $L = $T.fromString($T.string(exchange,$S))", false, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.TYPE, io.sinistral.proteus.server.Extractors.class, StatementParameterType.STRING),
 
-    QueryListValueOfType("$T<$T> $L = exchange.getQueryParameters().get($S).stream().map($T::valueOf).collect(java.util.stream.Collectors.toList())", false, java.util.List.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
-    QueryListFromStringType("$T<$T> $L = exchange.getQueryParameters().get($S).stream().map($T::fromString).collect(java.util.stream.Collectors.toList())", false, java.util.List.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryListValueOfType("$T<$T> $L = io.sinistral.proteus.server.Extractors.queryList(exchange,$S,$T::valueOf)", false, java.util.List.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryListFromStringType("$T<$T> $L = io.sinistral.proteus.server.Extractors.queryList(exchange,$S,$T::fromString)", false, java.util.List.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
 
-    QuerySetValueOfType("$T<$T> $L = exchange.getQueryParameters().get($S).stream().map($T::valueOf).collect(java.util.stream.Collectors.toSet())", false, java.util.Set.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
-    QuerySetFromStringType("$T<$T> $L = exchange.getQueryParameters().get($S).stream().map($T::fromString).collect(java.util.stream.Collectors.toSet())", false, java.util.Set.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QuerySetValueOfType("$T<$T> $L = io.sinistral.proteus.server.Extractors.querySet(exchange,$S,$T::valueOf)", false, java.util.Set.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QuerySetFromStringType("$T<$T> $L = io.sinistral.proteus.server.Extractors.querySet(exchange,$S,$T::fromString)", false, java.util.Set.class, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
 
     // BeanListValueOfType("$T<$T> $L =
     // $T.string(exchange,$S).map($T::valueOf).collect(java.util.stream.Collectors.toList())",
@@ -72,8 +83,8 @@ public enum TypeHandler {
     // io.sinistral.proteus.server.Extractors.class,
     // StatementParameterType.LITERAL, StatementParameterType.RAW),
 
-    BeanListValueOfType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
-    BeanListFromStringType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
+    BeanListValueOfType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
+    BeanListFromStringType("$T $L = io.sinistral.proteus.server.Extractors.model(exchange,$L,$L)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
 
     FileListType("$T $L = io.sinistral.proteus.server.Extractors.fileList(exchange,$S)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.STRING),
     PathListType("$T $L = io.sinistral.proteus.server.Extractors.pathList(exchange,$S)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.STRING),
@@ -85,15 +96,15 @@ public enum TypeHandler {
     HeaderFromStringType("$T $L = $T.fromString($T.string(exchange,$S))", false, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.TYPE, io.sinistral.proteus.server.Extractors.Header.class, StatementParameterType.STRING),
     HeaderStringType("$T $L = $T.string(exchange,$S)", false, String.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.class, StatementParameterType.STRING),
 
-    OptionalHeaderValueOfType("$T<$T> $L = $T.string(exchange,$S).map($T::valueOf)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
-    OptionalHeaderFromStringType("$T<$T> $L = $T.string(exchange,$S).map($T::fromString)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
+    OptionalHeaderValueOfType("$T<$T> $L = $T.extractWithFunction(exchange,$S,$T::valueOf)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
+    OptionalHeaderFromStringType("$T<$T> $L = $T.extractWithFunction(exchange,$S,$T::fromString)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
     OptionalHeaderStringType("$T<$T> $L = $T.string(exchange,$S)", false, Optional.class, String.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Header.Optional.class, StatementParameterType.STRING),
 
-    QueryOptionalListValueOfType("$T $L = java.util.Optional.ofNullable(exchange.getQueryParameters().get($S)).map(java.util.Deque::stream).map( p -> p.map($T::valueOf).collect(java.util.stream.Collectors.toList()))", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
-    QueryOptionalListFromStringType("$T $L = java.util.Optional.ofNullable(exchange.getQueryParameters().get($S)).map(java.util.Deque::stream).map( p -> p.map($T::fromString).collect(java.util.stream.Collectors.toList()))", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryOptionalListValueOfType("$T $L = io.sinistral.proteus.server.Extractors.Optional.queryList(exchange,$S,$T::valueOf)", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryOptionalListFromStringType("$T $L = io.sinistral.proteus.server.Extractors.Optional.queryList(exchange,$S,$T::fromString)", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
 
-    QueryOptionalSetValueOfType("$T $L = java.util.Optional.ofNullable(exchange.getQueryParameters().get($S)).map(java.util.Deque::stream).map( p -> p.map($T::valueOf).collect(java.util.stream.Collectors.toSet()))", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
-    QueryOptionalSetFromStringType("$T $L = java.util.Optional.ofNullable(exchange.getQueryParameters().get($S)).map(java.util.Deque::stream).map( p -> p.map($T::fromString).collect(java.util.stream.Collectors.toSet()))", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryOptionalSetValueOfType("$T $L = io.sinistral.proteus.server.Extractors.Optional.querySet(exchange,$S,$T::valueOf)", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
+    QueryOptionalSetFromStringType("$T $L = io.sinistral.proteus.server.Extractors.Optional.querySet(exchange,$S,$T::fromString)", false, StatementParameterType.RAW, StatementParameterType.LITERAL, StatementParameterType.STRING, StatementParameterType.RAW),
 
     OptionalBeanListValueOfType("java.util.Optional<$L> $L = $T.model(exchange,$L)", false, StatementParameterType.TYPE, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.LITERAL),
     OptionalBeanListFromStringType("java.util.Optional<$L> $L = $T.model(exchange,$L)", false, StatementParameterType.TYPE, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.LITERAL),
@@ -121,13 +132,13 @@ public enum TypeHandler {
     OptionalZonedDateTimeType("$T<$T> $L = $T.zonedDateTime(exchange,$S)", false, Optional.class, java.time.ZonedDateTime.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING),
     OptionalOffsetDateTimeType("$T<$T> $L = $T.offsetDateTime(exchange,$S)", false, Optional.class, java.time.OffsetDateTime.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING),
 
-    OptionalModelType("java.util.Optional<$L> $L = $T.model(exchange,$L)", false, StatementParameterType.LITERAL, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.LITERAL),
+    OptionalModelType("java.util.Optional<$L> $L = $T.model(exchange,$L,$L)", false, StatementParameterType.LITERAL, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.LITERAL, StatementParameterType.LITERAL),
 
     OptionalNamedJsonNodeType("$T<$T> $L = $T.namedJsonNode(exchange,$s)", true, Optional.class, com.fasterxml.jackson.databind.JsonNode.class, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING),
     OptionalNamedModelType("java.util.Optional<$L> $L = $T.namedModel(exchange,$L,$S)", false, StatementParameterType.LITERAL, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.LITERAL),
 
-    OptionalValueOfType("$T<$T> $L = $T.string(exchange,$S).map($T::valueOf)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
-    OptionalFromStringType("$T<$T> $L = $T.string(exchange,$S).map($T::fromString)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
+    OptionalValueOfType("$T<$T> $L = $T.extractWithFunction(exchange,$S,$T::valueOf)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
+    OptionalFromStringType("$T<$T> $L = $T.extractWithFunction(exchange,$S,$T::fromString)", false, Optional.class, StatementParameterType.RAW, StatementParameterType.LITERAL, io.sinistral.proteus.server.Extractors.Optional.class, StatementParameterType.STRING, StatementParameterType.RAW),
 
     OptionalFileMapType("$T $L = io.sinistral.proteus.server.Extractors.fileMap(exchange,$S)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.STRING),
     OptionalPathMapType("$T $L = io.sinistral.proteus.server.Extractors.pathMap(exchange,$S)", true, StatementParameterType.TYPE, StatementParameterType.LITERAL, StatementParameterType.STRING),
@@ -146,6 +157,15 @@ public enum TypeHandler {
         return this.isBlocking;
     }
 
+    /**
+     * @return true if the parameter reads the request body itself while the endpoint runs, so it must not be read before
+     */
+    public boolean isStreaming()
+    {
+
+        return this == InputStreamType || this == ReadableByteChannelType || this == PublisherType;
+    }
+
     public String statement()
     {
 
@@ -366,6 +386,42 @@ public enum TypeHandler {
         return forType(type, false);
     }
 
+    /**
+     * Lookup the <code>TypeHandler</code> for a primitive type
+     *
+     * @return the handler or null if the primitive type is not supported
+     */
+    public static TypeHandler forPrimitiveType(Class<?> type)
+    {
+
+        if (type.equals(long.class))
+        {
+            return PrimitiveLongType;
+        }
+        else if (type.equals(int.class))
+        {
+            return PrimitiveIntegerType;
+        }
+        else if (type.equals(short.class))
+        {
+            return PrimitiveShortType;
+        }
+        else if (type.equals(float.class))
+        {
+            return PrimitiveFloatType;
+        }
+        else if (type.equals(double.class))
+        {
+            return PrimitiveDoubleType;
+        }
+        else if (type.equals(boolean.class))
+        {
+            return PrimitiveBooleanType;
+        }
+
+        return null;
+    }
+
     /**
      * Lookup the <code>TypeHandler</code> for a {@link Type}
      */
@@ -380,6 +436,21 @@ public enum TypeHandler {
         boolean isMap = type.getTypeName().contains("java.util.Map");
         boolean isParameterized = type instanceof ParameterizedType;
 
+        if (type instanceof Class && ((Class<?>) type).isPrimitive())
+        {
+            TypeHandler primitiveHandler = forPrimitiveType((Class<?>) type);
+
+            if (primitiveHandler != null)
+            {
+                return primitiveHandler;
+            }
+        }
+
+        if (java.util.concurrent.Flow.Publisher.class.equals(isParameterized ? ((ParameterizedType) type).getRawType() : type))
+        {
+            return PublisherType;
+        }
+
         if (!isOptional && !isArray && !isSet && !isMap && !isParameterized)
         {
             try
@@ -658,6 +729,14 @@ public enum TypeHandler {
         {
             return ByteBufferType;
         }
+        else if (type.equals(java.io.InputStream.class))
+        {
+            return InputStreamType;
+        }
+        else if (type.equals(java.nio.channels.ReadableByteChannel.class))
+        {
+            return ReadableByteChannelType;
+        }
         else if (type.equals(Boolean.class))
         {
             return BooleanType;
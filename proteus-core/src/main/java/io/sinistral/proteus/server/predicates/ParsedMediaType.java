@@ -0,0 +1,315 @@
+package io.sinistral.proteus.server.predicates;
+
+import io.sinistral.proteus.protocol.MediaType;
+import io.undertow.attribute.ExchangeAttribute;
+import io.undertow.attribute.ExchangeAttributes;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.cache.LRUCache;
+import io.undertow.server.handlers.form.FormEncodedDataDefinition;
+import io.undertow.server.handlers.form.MultiPartParserDefinition;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A <code>Content-Type</code> or <code>Accept</code> header value classified once against the media types the server
+ * negotiates.
+ * <p>
+ * Values are matched with the same expressions as the regex predicates they replace and kept in a cache of the
+ * {@link #MAXIMUM_CACHE_SIZE} most recently added values, so negotiating a request costs a lookup instead of a regex run
+ * per media type. A multipart <code>boundary</code> differs on every request and is left out of the cache key, so uploads
+ * share one entry instead of evicting the values worth keeping. The values of an exchange are resolved at most once and
+ * kept as attachments.
+ */
+public final class ParsedMediaType
+{
+
+    public static final int MAXIMUM_CACHE_SIZE = 1024;
+
+    private static final AttachmentKey<ParsedMediaType> CONTENT_TYPE_KEY = AttachmentKey.create(ParsedMediaType.class);
+
+    private static final AttachmentKey<ParsedMediaType> ACCEPT_KEY = AttachmentKey.create(ParsedMediaType.class);
+
+    private static final ExchangeAttribute CONTENT_TYPE_ATTRIBUTE = ExchangeAttributes.requestHeader(Headers.CONTENT_TYPE);
+
+    private static final ExchangeAttribute ACCEPT_ATTRIBUTE = ExchangeAttributes.requestHeader(Headers.ACCEPT);
+
+    private static final Pattern JSON_PATTERN = Pattern.compile(ServerPredicates.JSON_REGEX);
+
+    private static final Pattern XML_PATTERN = Pattern.compile(ServerPredicates.XML_REGEX);
+
+    private static final Pattern HTML_PATTERN = Pattern.compile(ServerPredicates.HTML_REGEX);
+
+    private static final Pattern TEXT_PLAIN_PATTERN = Pattern.compile(ServerPredicates.TEXT_PLAIN_REGEX);
+
+    private static final int JSON = 1;
+    private static final int XML = 1 << 1;
+    private static final int HTML = 1 << 2;
+    private static final int TEXT_PLAIN = 1 << 3;
+    private static final int WILDCARD = 1 << 4;
+    private static final int OCTET_STREAM = 1 << 5;
+    private static final int MULTIPART_FORM = 1 << 6;
+    private static final int URL_ENCODED_FORM = 1 << 7;
+
+    private static final String BOUNDARY = "boundary=";
+
+    private static final LRUCache<String, ParsedMediaType> CACHE = new LRUCache<>(MAXIMUM_CACHE_SIZE, -1, true);
+
+    private static final Map<String, MediaType> KNOWN_TYPES = knownTypes();
+
+    /**
+     * The value of a missing header
+     */
+    public static final ParsedMediaType NONE = new ParsedMediaType(null, null, 0);
+
+    private final String value;
+
+    private final MediaType mediaType;
+
+    private final int flags;
+
+    private ParsedMediaType(String value, MediaType mediaType, int flags)
+    {
+
+        this.value = value;
+        this.mediaType = mediaType;
+        this.flags = flags;
+    }
+
+    /**
+     * @return the parsed <code>Content-Type</code> of the request
+     */
+    public static ParsedMediaType contentType(HttpServerExchange exchange)
+    {
+
+        return resolve(exchange, CONTENT_TYPE_KEY, CONTENT_TYPE_ATTRIBUTE);
+    }
+
+    /**
+     * @return the parsed <code>Accept</code> header of the request
+     */
+    public static ParsedMediaType accept(HttpServerExchange exchange)
+    {
+
+        return resolve(exchange, ACCEPT_KEY, ACCEPT_ATTRIBUTE);
+    }
+
+    /**
+     * @param value a header value, may be null
+     * @return the parsed value, shared by all equal values while it is cached
+     */
+    public static ParsedMediaType of(String value)
+    {
+
+        if (value == null)
+        {
+            return NONE;
+        }
+
+        final String key = withoutBoundary(value);
+
+        ParsedMediaType parsed = CACHE.get(key);
+
+        if (parsed == null)
+        {
+            parsed = parse(key);
+
+            CACHE.add(key, parsed);
+        }
+
+        return key == value ? parsed : new ParsedMediaType(value, parsed.mediaType, parsed.flags);
+    }
+
+    /**
+     * @return the value with the value of its <code>boundary</code> parameter removed, or the value itself if it has none
+     */
+    static String withoutBoundary(String value)
+    {
+
+        int parameter = value.indexOf(';');
+
+        while (parameter >= 0)
+        {
+            int start = parameter + 1;
+
+            while (start < value.length() && value.charAt(start) == ' ')
+            {
+                start++;
+            }
+
+            if (value.regionMatches(true, start, BOUNDARY, 0, BOUNDARY.length()))
+            {
+                final int boundary = start + BOUNDARY.length();
+
+                int end = boundary;
+
+                if (end < value.length() && value.charAt(end) == '"')
+                {
+                    end = value.indexOf('"', end + 1);
+                    end = end < 0 ? value.length() : end + 1;
+                }
+
+                while (end < value.length() && value.charAt(end) != ';' && value.charAt(end) != ',')
+                {
+                    end++;
+                }
+
+                return end == boundary ? value : value.substring(0, boundary) + value.substring(end);
+            }
+
+            parameter = value.indexOf(';', start);
+        }
+
+        return value;
+    }
+
+    private static ParsedMediaType resolve(HttpServerExchange exchange, AttachmentKey<ParsedMediaType> key, ExchangeAttribute attribute)
+    {
+
+        ParsedMediaType parsed = exchange.getAttachment(key);
+
+        if (parsed == null)
+        {
+            parsed = of(attribute.readAttribute(exchange));
+
+            exchange.putAttachment(key, parsed);
+        }
+
+        return parsed;
+    }
+
+    private static ParsedMediaType parse(String value)
+    {
+
+        int flags = 0;
+
+        flags |= JSON_PATTERN.matcher(value).find() ? JSON : 0;
+        flags |= XML_PATTERN.matcher(value).find() ? XML : 0;
+        flags |= HTML_PATTERN.matcher(value).find() ? HTML : 0;
+        flags |= TEXT_PLAIN_PATTERN.matcher(value).find() ? TEXT_PLAIN : 0;
+        flags |= value.contains(MediaType.ANY.contentType()) ? WILDCARD : 0;
+        flags |= value.contains(MediaType.APPLICATION_OCTET_STREAM.contentType()) ? OCTET_STREAM : 0;
+        flags |= value.contains(MultiPartParserDefinition.MULTIPART_FORM_DATA) ? MULTIPART_FORM : 0;
+        flags |= value.contains(FormEncodedDataDefinition.APPLICATION_X_WWW_FORM_URLENCODED) ? URL_ENCODED_FORM : 0;
+
+        return new ParsedMediaType(value, mediaType(value), flags);
+    }
+
+    /**
+     * @return the media type of the first value without its parameters, one of the constants of {@link MediaType} if known
+     */
+    private static MediaType mediaType(String value)
+    {
+
+        int end = value.length();
+
+        final int separator = value.indexOf(',');
+
+        if (separator >= 0)
+        {
+            end = separator;
+        }
+
+        final int parameters = value.indexOf(';');
+
+        if (parameters >= 0 && parameters < end)
+        {
+            end = parameters;
+        }
+
+        final String baseType = value.substring(0, end).trim().toLowerCase(Locale.ENGLISH);
+
+        final MediaType known = KNOWN_TYPES.get(baseType);
+
+        return known != null ? known : MediaType.of(baseType);
+    }
+
+    /**
+     * @return an immutable copy of the media types declared by {@link MediaType}, read without its lock per lookup
+     */
+    private static Map<String, MediaType> knownTypes()
+    {
+
+        synchronized (MediaType.class)
+        {
+            return Map.copyOf(MediaType.getTypeMap());
+        }
+    }
+
+    /**
+     * @return the header value or null if the header is missing
+     */
+    public String value()
+    {
+
+        return value;
+    }
+
+    /**
+     * @return the media type of the first value without its parameters, or null if the header is missing
+     */
+    public MediaType mediaType()
+    {
+
+        return mediaType;
+    }
+
+    public boolean isJson()
+    {
+
+        return (flags & JSON) != 0;
+    }
+
+    public boolean isXml()
+    {
+
+        return (flags & XML) != 0;
+    }
+
+    public boolean isHtml()
+    {
+
+        return (flags & HTML) != 0;
+    }
+
+    public boolean isTextPlain()
+    {
+
+        return (flags & TEXT_PLAIN) != 0;
+    }
+
+    public boolean hasWildcard()
+    {
+
+        return (flags & WILDCARD) != 0;
+    }
+
+    public boolean isOctetStream()
+    {
+
+        return (flags & OCTET_STREAM) != 0;
+    }
+
+    public boolean isMultipartForm()
+    {
+
+        return (flags & MULTIPART_FORM) != 0;
+    }
+
+    public boolean isUrlEncodedForm()
+    {
+
+        return (flags & URL_ENCODED_FORM) != 0;
+    }
+
+    @Override
+    public String toString()
+    {
+
+        return String.valueOf(value);
+    }
+
+}
@@ -0,0 +1,153 @@
+package io.sinistral.proteus.server.startup;
+
+import jdk.jfr.AnnotationElement;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventFactory;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import jdk.jfr.ValueDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Emits the {@code io.sinistral.proteus.StartupPhase} JFR event.
+ * <p>
+ * The event type is defined through {@link EventFactory} and driven with method handles, because {@code jdk.jfr.Event}
+ * cannot be referenced when compiling against the release 12 API and the {@code jdk.jfr} module may be absent from
+ * trimmed runtimes. When the event cannot be created every method is a no-op.
+ */
+final class StartupPhaseEvents
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StartupPhaseEvents.class.getCanonicalName());
+
+    private static final MethodHandle NEW_EVENT;
+    private static final MethodHandle BEGIN;
+    private static final MethodHandle END;
+    private static final MethodHandle SET;
+    private static final MethodHandle SHOULD_COMMIT;
+    private static final MethodHandle COMMIT;
+
+    static
+    {
+        MethodHandle newEvent = null;
+        MethodHandle begin = null;
+        MethodHandle end = null;
+        MethodHandle set = null;
+        MethodHandle shouldCommit = null;
+        MethodHandle commit = null;
+
+        try
+        {
+            EventFactory factory = EventFactory.create(
+                    List.of(new AnnotationElement(Name.class, "io.sinistral.proteus.StartupPhase"),
+                            new AnnotationElement(Label.class, "Startup Phase"),
+                            new AnnotationElement(Category.class, new String[]{"Proteus", "Startup"}),
+                            new AnnotationElement(Description.class, "A timed phase of application startup")),
+                    List.of(new ValueDescriptor(String.class, "phase", List.of(new AnnotationElement(Label.class, "Phase"))),
+                            new ValueDescriptor(String.class, "detail", List.of(new AnnotationElement(Label.class, "Detail"))),
+                            new ValueDescriptor(long.class, "phaseDuration", List.of(new AnnotationElement(Label.class, "Phase Duration"), new AnnotationElement(Timespan.class, Timespan.NANOSECONDS)))));
+
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+            newEvent = lookup.findVirtual(EventFactory.class, "newEvent", MethodType.methodType(eventClass)).bindTo(factory).asType(MethodType.methodType(Object.class));
+            begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+            end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+            set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class)).asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+            shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class)).asType(MethodType.methodType(boolean.class, Object.class));
+            commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+
+        } catch (Throwable t)
+        {
+            log.debug("JFR startup events are unavailable", t);
+
+            newEvent = null;
+        }
+
+        NEW_EVENT = newEvent;
+        BEGIN = begin;
+        END = end;
+        SET = set;
+        SHOULD_COMMIT = shouldCommit;
+        COMMIT = commit;
+    }
+
+    private StartupPhaseEvents()
+    {
+
+    }
+
+    /**
+     * @return a started event or null if JFR events are unavailable
+     */
+    static Object begin()
+    {
+
+        if (NEW_EVENT == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            Object event = (Object) NEW_EVENT.invokeExact();
+
+            BEGIN.invokeExact(event);
+
+            return event;
+
+        } catch (Throwable t)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * End and commit an event returned from {@link #begin()}, or commit an instant event when the event is null.
+     * <p>
+     * JFR events can not be given a start and end time after the fact, so the measured duration is also carried in the
+     * {@code phaseDuration} field, which is the only duration of phases recorded from a measurement taken elsewhere.
+     */
+    static void commit(Object event, String phase, String detail, long durationNanos)
+    {
+
+        if (NEW_EVENT == null)
+        {
+            return;
+        }
+
+        try
+        {
+            if (event == null)
+            {
+                event = (Object) NEW_EVENT.invokeExact();
+            }
+            else
+            {
+                END.invokeExact(event);
+            }
+
+            if ((boolean) SHOULD_COMMIT.invokeExact(event))
+            {
+                SET.invokeExact(event, 0, (Object) phase);
+                SET.invokeExact(event, 1, (Object) detail);
+                SET.invokeExact(event, 2, (Object) durationNanos);
+                COMMIT.invokeExact(event);
+            }
+
+        } catch (Throwable t)
+        {
+            log.debug("Failed to commit startup event for {}", phase, t);
+        }
+    }
+
+}
@@ -0,0 +1,261 @@
+package io.sinistral.proteus.server.startup;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.sinistral.proteus.utilities.TablePrinter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Timings of the phases of application startup.
+ * <p>
+ * Phases are opened with {@link #begin(String, String)} and recorded when closed, or recorded directly with
+ * {@link #record(String, String, long)} when the duration was measured elsewhere. Every phase is also emitted
+ * as an {@code io.sinistral.proteus.StartupPhase} JFR event when JFR is recording.
+ *
+ * @see io.sinistral.proteus.ProteusApplication#getStartupReport()
+ */
+public class StartupReport
+{
+
+    private final Instant startTime;
+
+    private final long startNanos;
+
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+    private volatile Duration totalDuration;
+
+    public StartupReport()
+    {
+
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start timing a phase
+     *
+     * @param name phase name, e.g. {@code handlers.generate}
+     * @return the phase, which is recorded when closed
+     */
+    public ActivePhase begin(String name)
+    {
+
+        return begin(name, null);
+    }
+
+    /**
+     * Start timing a phase
+     *
+     * @param name   phase name, e.g. {@code handlers.generate}
+     * @param detail what the phase applies to, e.g. a controller name
+     * @return the phase, which is recorded when closed
+     */
+    public ActivePhase begin(String name, String detail)
+    {
+
+        return new ActivePhase(name, detail);
+    }
+
+    /**
+     * Record a phase whose duration was measured elsewhere
+     *
+     * @param name          phase name
+     * @param detail        what the phase applies to
+     * @param durationNanos duration of the phase
+     */
+    public void record(String name, String detail, long durationNanos)
+    {
+
+        StartupPhaseEvents.commit(null, name, detail, durationNanos);
+
+        phases.add(new Phase(name, detail, null, TimeUnit.NANOSECONDS.toMicros(durationNanos) / 1000.0, Thread.currentThread().getName()));
+    }
+
+    /**
+     * Mark startup as complete
+     */
+    public void complete()
+    {
+
+        this.totalDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    @JsonIgnore
+    public Instant getStartTime()
+    {
+
+        return startTime;
+    }
+
+    /**
+     * @return the time from construction of the application until its services were healthy or null if startup has not completed
+     */
+    @JsonIgnore
+    public Duration getTotalDuration()
+    {
+
+        return totalDuration;
+    }
+
+    public Double getTotalMillis()
+    {
+
+        return totalDuration != null ? (double) totalDuration.toMillis() : null;
+    }
+
+    /**
+     * @return all recorded phases ordered by start time, phases without a start time last
+     */
+    public List<Phase> getPhases()
+    {
+
+        return phases.stream()
+                     .sorted(Comparator.comparing(Phase::getStartMillis, Comparator.nullsLast(Comparator.naturalOrder())))
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @param name phase name
+     * @return all recorded phases with the provided name
+     */
+    public List<Phase> getPhases(String name)
+    {
+
+        return getPhases().stream().filter(p -> p.getName().equals(name)).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString()
+    {
+
+        List<List<String>> rows = new ArrayList<>();
+
+        for (Phase phase : getPhases())
+        {
+            rows.add(Arrays.asList(phase.getName(), phase.getDetail() != null ? phase.getDetail() : "", phase.getStartMillis() != null ? String.format("%.1f", phase.getStartMillis()) : "", String.format("%.1f", phase.getDurationMillis())));
+        }
+
+        return new TablePrinter(Arrays.asList("Phase", "Detail", "Start (ms)", "Duration (ms)"), rows).toString();
+    }
+
+    /**
+     * A recorded phase
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Phase
+    {
+
+        private final String name;
+
+        private final String detail;
+
+        private final Double startMillis;
+
+        private final double durationMillis;
+
+        private final String thread;
+
+        Phase(String name, String detail, Double startMillis, double durationMillis, String thread)
+        {
+
+            this.name = name;
+            this.detail = detail;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.thread = thread;
+        }
+
+        public String getName()
+        {
+
+            return name;
+        }
+
+        public String getDetail()
+        {
+
+            return detail;
+        }
+
+        /**
+         * @return offset from application start or null if unknown
+         */
+        public Double getStartMillis()
+        {
+
+            return startMillis;
+        }
+
+        public double getDurationMillis()
+        {
+
+            return durationMillis;
+        }
+
+        public String getThread()
+        {
+
+            return thread;
+        }
+
+        @Override
+        public String toString()
+        {
+
+            return name + (detail != null ? "[" + detail + "]" : "") + "=" + durationMillis + "ms";
+        }
+    }
+
+    /**
+     * A phase being timed, recorded when closed
+     */
+    public class ActivePhase implements AutoCloseable
+    {
+
+        private final String name;
+
+        private final String detail;
+
+        private final long phaseStartNanos = System.nanoTime();
+
+        private final Object event = StartupPhaseEvents.begin();
+
+        private boolean closed;
+
+        ActivePhase(String name, String detail)
+        {
+
+            this.name = name;
+            this.detail = detail;
+        }
+
+        @Override
+        public void close()
+        {
+
+            if (closed)
+            {
+                return;
+            }
+
+            closed = true;
+
+            long endNanos = System.nanoTime();
+
+            StartupPhaseEvents.commit(event, name, detail, endNanos - phaseStartNanos);
+
+            phases.add(new Phase(name, detail, TimeUnit.NANOSECONDS.toMicros(phaseStartNanos - startNanos) / 1000.0, TimeUnit.NANOSECONDS.toMicros(endNanos - phaseStartNanos) / 1000.0, Thread.currentThread().getName()));
+        }
+    }
+
+}
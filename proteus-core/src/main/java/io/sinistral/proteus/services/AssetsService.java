@@ -5,6 +5,7 @@ import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.typesafe.config.Config;
 import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.sinistral.proteus.server.handlers.ProteusRoutingHandler;
 import io.undertow.predicate.TruePredicate;
 import io.undertow.server.RoutingHandler;
 import io.undertow.server.handlers.resource.FileResourceManager;
@@ -55,7 +56,7 @@ public class AssetsService extends DefaultService implements Supplier<RoutingHan
 
     public RoutingHandler get()
     {
-        RoutingHandler router = new RoutingHandler();
+        RoutingHandler router = new ProteusRoutingHandler();
         final String assetsPath = serviceConfig.getString("path");
         final String assetsDirectoryName = serviceConfig.getString("dir");
         final Integer assetsCacheTime = serviceConfig.getInt("cache.time");
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -169,6 +170,17 @@ public class AsyncByteOutputStream extends OutputStream {
         return slice;
     }
 
+    /**
+     * Wraps the valid contents of this output stream without copying them.
+     * The buffer is only valid until the stream is written to or reset.
+     *
+     * @return the current contents of this output stream, as a byte buffer.
+     */
+    public ByteBuffer toByteBuffer() {
+
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
     /**
      * Returns the current size of the buffer.
      *
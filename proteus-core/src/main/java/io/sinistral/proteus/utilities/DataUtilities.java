@@ -25,10 +25,16 @@ public class DataUtilities {
 
         try (ReadableByteChannel byteBufferByteChannel = Channels.newChannel(inputStream))
         {
-            try (WritableByteChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE))
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE))
             {
+                long position = 0;
 
-                fastChannelCopy(byteBufferByteChannel, fileChannel);
+                long transferred;
+
+                while ((transferred = fileChannel.transferFrom(byteBufferByteChannel, position, Long.MAX_VALUE)) > 0)
+                {
+                    position += transferred;
+                }
             }
         }
 
@@ -68,6 +74,17 @@ public class DataUtilities {
     }
 
 
+    /**
+     * @return a read-only view of the file mapped into memory, it remains valid after the file is closed
+     */
+    public static ByteBuffer mapFile(Path fp) throws IOException {
+
+        try (final FileChannel fileChannel = FileChannel.open(fp, StandardOpenOption.READ))
+        {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
+
     public static void fastChannelCopy(final ReadableByteChannel src, final WritableByteChannel destination) throws IOException {
 
         final ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
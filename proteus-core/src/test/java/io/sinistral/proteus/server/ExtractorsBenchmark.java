@@ -0,0 +1,117 @@
+package io.sinistral.proteus.server;
+
+import io.undertow.server.HttpServerExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the stream based parameter extraction previously emitted by the handler generator with the loop based {@link Extractors} methods.
+ * <p>
+ * Run {@link #main(String[])} after {@code mvn test-compile}, with the test classpath. The gc profiler reports
+ * {@code gc.alloc.rate.norm}, the bytes allocated per extraction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractorsBenchmark
+{
+
+    private HttpServerExchange exchange;
+
+    @Setup
+    public void setup()
+    {
+
+        exchange = new HttpServerExchange(null);
+
+        for (long i = 0; i < 8; i++)
+        {
+            exchange.addQueryParam("ids", Long.toString(i));
+        }
+
+        exchange.addQueryParam("count", "42");
+    }
+
+    @Benchmark
+    public List<Long> queryListStream()
+    {
+
+        return exchange.getQueryParameters().get("ids").stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Long> queryList()
+    {
+
+        return Extractors.queryList(exchange, "ids", Long::valueOf);
+    }
+
+    @Benchmark
+    public Optional<Set<Long>> optionalQuerySetStream()
+    {
+
+        return Optional.ofNullable(exchange.getQueryParameters().get("ids")).map(Deque::stream).map(p -> p.map(Long::valueOf).collect(Collectors.toSet()));
+    }
+
+    @Benchmark
+    public Optional<Set<Long>> optionalQuerySet()
+    {
+
+        return Extractors.Optional.querySet(exchange, "ids", Long::valueOf);
+    }
+
+    @Benchmark
+    public Optional<Integer> optionalValueOfMap()
+    {
+
+        return Optional.ofNullable(exchange.getQueryParameters().get("count")).map(Deque::getFirst).map(Integer::valueOf);
+    }
+
+    @Benchmark
+    public Optional<Integer> optionalValueOf()
+    {
+
+        return Extractors.Optional.extractWithFunction(exchange, "count", Integer::valueOf);
+    }
+
+    @Benchmark
+    public Object missingString()
+    {
+
+        try
+        {
+            return Extractors.string(exchange, "missing");
+        } catch (IllegalArgumentException e)
+        {
+            return e;
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+
+        new Runner(new OptionsBuilder().include(ExtractorsBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+
+}
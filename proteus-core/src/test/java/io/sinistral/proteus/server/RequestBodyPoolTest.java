@@ -0,0 +1,105 @@
+package io.sinistral.proteus.server;
+
+import io.undertow.connector.PooledByteBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBodyPoolTest
+{
+
+    private static final byte[] BODY = "{\"id\":42}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void bodiesAreReadIntoTheSmallestSizeClass()
+    {
+
+        RequestBodyPool pool = new RequestBodyPool(32 * 1024, 2);
+
+        try (PooledByteBuffer pooled = pool.allocate(BODY.length))
+        {
+            assertTrue(pooled.getBuffer().isDirect());
+            assertEquals(8 * 1024, pooled.getBuffer().capacity());
+            assertEquals(0, pooled.getBuffer().position());
+        }
+
+        try (PooledByteBuffer pooled = pool.allocate(20 * 1024))
+        {
+            assertEquals(32 * 1024, pooled.getBuffer().capacity());
+        }
+
+        try (PooledByteBuffer pooled = pool.allocate(64 * 1024))
+        {
+            assertFalse(pooled.getBuffer().isDirect());
+            assertEquals(64 * 1024, pooled.getBuffer().capacity());
+        }
+    }
+
+    @Test
+    public void growingKeepsTheBytesRead()
+    {
+
+        RequestBodyPool pool = new RequestBodyPool(32 * 1024, 2);
+
+        PooledByteBuffer pooled = pool.allocate(BODY.length);
+
+        pooled.getBuffer().put(BODY);
+
+        try (PooledByteBuffer grown = pool.grow(pooled))
+        {
+            assertEquals(16 * 1024, grown.getBuffer().capacity());
+            assertEquals(ByteBuffer.wrap(BODY), RequestBodyPool.view(grown));
+        }
+    }
+
+    @Test
+    public void bodiesAreReadOnlyViewsOfPooledBuffers()
+    {
+
+        RequestBodyPool pool = new RequestBodyPool(32 * 1024, 1);
+
+        PooledByteBuffer pooled = pool.allocate(BODY.length);
+
+        ByteBuffer buffer = pooled.getBuffer().put(BODY);
+
+        ByteBuffer body = RequestBodyPool.view(pooled);
+
+        assertTrue(body.isReadOnly());
+        assertTrue(body.isDirect());
+        assertEquals(BODY.length, body.capacity());
+        assertEquals(ByteBuffer.wrap(BODY), body);
+
+        RequestBodyPool.release(pooled, body);
+
+        assertFalse(body.hasRemaining());
+
+        try (PooledByteBuffer reused = pool.allocate(BODY.length))
+        {
+            assertSame(buffer, reused.getBuffer());
+        }
+    }
+
+    @Test
+    public void bodiesLargerThanThePooledSizeAreNotViewed()
+    {
+
+        RequestBodyPool pool = new RequestBodyPool(8 * 1024, 1);
+
+        try (PooledByteBuffer pooled = pool.allocate(16 * 1024))
+        {
+            pooled.getBuffer().put(BODY);
+
+            ByteBuffer body = RequestBodyPool.view(pooled);
+
+            assertSame(pooled.getBuffer(), body);
+            assertEquals(ByteBuffer.wrap(BODY), body);
+        }
+    }
+
+}
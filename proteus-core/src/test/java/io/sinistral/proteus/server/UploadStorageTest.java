@@ -0,0 +1,85 @@
+package io.sinistral.proteus.server;
+
+import io.undertow.server.handlers.form.FormData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UploadStorageTest
+{
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void uploadsAreHeapBuffersByDefault() throws Exception
+    {
+
+        UploadStorage storage = new UploadStorage(folder.getRoot().toPath().resolve("uploads").toString(), 0);
+
+        byte[] content = content(64 * 1024);
+
+        ByteBuffer buffer = storage.buffer(new FormData.FileItem(file(storage, content)));
+
+        assertTrue(buffer.hasArray());
+        assertEquals(content.length, buffer.array().length);
+        assertEquals(ByteBuffer.wrap(content), buffer);
+
+        buffer = storage.buffer(new FormData.FileItem(content));
+
+        assertTrue(buffer.hasArray());
+        assertEquals(ByteBuffer.wrap(content), buffer);
+    }
+
+    @Test
+    public void uploadsOfAtLeastTheMappedThresholdAreMapped() throws Exception
+    {
+
+        UploadStorage storage = new UploadStorage(folder.getRoot().toPath().resolve("uploads").toString(), 1024);
+
+        byte[] content = content(4 * 1024);
+
+        ByteBuffer mapped = storage.buffer(new FormData.FileItem(file(storage, content)));
+
+        assertFalse(mapped.hasArray());
+        assertTrue(mapped.isDirect());
+        assertTrue(mapped.isReadOnly());
+        assertEquals(ByteBuffer.wrap(content), mapped);
+
+        byte[] small = Arrays.copyOf(content, 512);
+
+        ByteBuffer buffer = storage.buffer(new FormData.FileItem(file(storage, small)));
+
+        assertTrue(buffer.hasArray());
+        assertEquals(ByteBuffer.wrap(small), buffer);
+    }
+
+    private static Path file(UploadStorage storage, byte[] content) throws Exception
+    {
+
+        return Files.write(Files.createTempFile(storage.getDirectory(), "upload", null), content);
+    }
+
+    private static byte[] content(int size)
+    {
+
+        byte[] content = new byte[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        return content;
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyRouteSupplierTest
+{
+
+    private static final List<EndpointInfo> ENDPOINTS = List.of(
+            EndpointInfo.builder().withMethod(Methods.GET).withPathTemplate("/items/{id}").withControllerName("Items").withControllerMethod("item").build(),
+            EndpointInfo.builder().withMethod(Methods.GET).withPathTemplate("/items").withControllerName("Items").withControllerMethod("items").build());
+
+    @Test
+    public void requestsAreNotRoutedTwice() throws Exception
+    {
+
+        LazyRouteSupplier supplier = new LazyRouteSupplier(Object.class, ENDPOINTS, () -> () -> {
+
+            RoutingHandler router = new ProteusRoutingHandler();
+
+            router.add(Methods.GET, "/items/{id}", exchange -> exchange.getResponseHeaders().put(Headers.LOCATION, exchange.getQueryParameters().get("id").size()));
+            router.add(Methods.GET, "/items", exchange -> exchange.getResponseHeaders().put(Headers.LOCATION, "all"));
+
+            return router;
+
+        }, Runnable::run);
+
+        assertTrue(supplier.initialize().isDone());
+
+        RoutingHandler router = supplier.get();
+
+        HttpServerExchange exchange = exchange("/items/7");
+
+        router.handleRequest(exchange);
+
+        assertEquals("1", exchange.getResponseHeaders().getFirst(Headers.LOCATION));
+
+        exchange = exchange("/items");
+
+        router.handleRequest(exchange);
+
+        assertEquals("all", exchange.getResponseHeaders().getFirst(Headers.LOCATION));
+    }
+
+    @Test
+    public void failedCreationIsRetried()
+    {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        LazyRouteSupplier supplier = new LazyRouteSupplier(Object.class, ENDPOINTS, () -> {
+
+            if (attempts.incrementAndGet() == 1)
+            {
+                throw new IllegalStateException("first attempt");
+            }
+
+            return ProteusRoutingHandler::new;
+
+        }, Runnable::run);
+
+        assertTrue(supplier.initialize().isCompletedExceptionally());
+        assertFalse(supplier.isInitialized());
+
+        assertFalse(supplier.initialize().isCompletedExceptionally());
+        assertTrue(supplier.isInitialized());
+        assertEquals(2, attempts.get());
+    }
+
+    private static HttpServerExchange exchange(String path)
+    {
+
+        HttpServerExchange exchange = new HttpServerExchange(null);
+
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setRelativePath(path);
+
+        return exchange;
+    }
+
+}
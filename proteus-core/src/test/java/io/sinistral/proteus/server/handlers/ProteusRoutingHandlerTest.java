@@ -0,0 +1,366 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.PathTemplateMatch;
+import org.junit.Test;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProteusRoutingHandlerTest
+{
+
+    private static final AttachmentKey<String> ROUTE = AttachmentKey.create(String.class);
+
+    private static final String[] TEMPLATES = {"/", "/a", "/a/b", "/a/b/", "/a/{id}", "/a/{id}/c", "/x/{p}/{q}", "/docs/*", "/s/*", "/s/static", "/v1/users/{id}", "/v1/users/me", "/v1/user"};
+
+    private static final String[] PATHS = {"", "/", "/a", "/a/", "/a/b", "/a/b/", "/a/7", "/a/7/", "/a/7/c", "/a/7/c/", "/a/b/c", "/a//c", "/docs", "/docs/", "/docs/x/y", "/x/1/2", "/x/1", "/x//2", "/s", "/s/static", "/s/other", "a/b", "//a", "/v1/users/me", "/v1/users/42", "/v1/users/42/", "/v1/user", "/v1/user/", "/v1/users", "/v1/use", "/missing"};
+
+    @Test
+    public void matchesLikeRoutingHandler() throws Exception
+    {
+
+        RoutingHandler expected = routes(new RoutingHandler());
+
+        ProteusRoutingHandler actual = routes(new ProteusRoutingHandler());
+
+        assertTrue(actual.compile());
+        assertEquals(7, actual.getCompiledRouter().getStaticRouteCount());
+
+        for (HttpString method : new HttpString[]{Methods.GET, Methods.POST, Methods.DELETE})
+        {
+            for (String path : PATHS)
+            {
+                assertEquals(method + " " + path, route(expected, method, path), route(actual, method, path));
+            }
+        }
+    }
+
+    @Test
+    public void staticRoutesResolveByPerfectHash() throws Exception
+    {
+
+        ProteusRoutingHandler router = new ProteusRoutingHandler();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            final String template = "/static/" + i + (i % 2 == 0 ? "/health" : "/openapi.yaml");
+
+            router.add(Methods.GET, template, exchange -> exchange.putAttachment(ROUTE, template));
+        }
+
+        router.add(Methods.GET, "/static/{id}/health", exchange -> exchange.putAttachment(ROUTE, "template"));
+
+        router.compile();
+
+        assertEquals(2000, router.getCompiledRouter().getStaticRouteCount());
+
+        for (int i = 0; i < 2000; i++)
+        {
+            final String path = "/static/" + i + (i % 2 == 0 ? "/health" : "/openapi.yaml");
+
+            assertEquals(path + " {} []", route(router, Methods.GET, path));
+        }
+
+        assertEquals("template {id=1} [1]", route(router, Methods.GET, "/static/1/health"));
+    }
+
+    @Test
+    public void staticRoutesWithCollidingHashesResolveByPerfectHash() throws Exception
+    {
+
+        assertEquals("/Aa".hashCode(), "/BB".hashCode());
+        assertEquals("/AaAa".hashCode(), "/BBBB".hashCode());
+        assertEquals("/AaAa".hashCode(), "/AaBB".hashCode());
+
+        ProteusRoutingHandler router = new ProteusRoutingHandler();
+
+        router.setFallbackHandler(exchange -> exchange.putAttachment(ROUTE, "404"));
+        router.setInvalidMethodHandler(exchange -> exchange.putAttachment(ROUTE, "405"));
+
+        for (String template : new String[]{"/Aa", "/BB", "/AaAa", "/BBBB", "/AaBB", "/health"})
+        {
+            router.add(Methods.GET, template, exchange -> exchange.putAttachment(ROUTE, template));
+        }
+
+        assertTrue(router.compile());
+        assertEquals(6, router.getCompiledRouter().getStaticRouteCount());
+
+        for (String path : new String[]{"/Aa", "/BB", "/AaAa", "/BBBB", "/AaBB", "/health"})
+        {
+            assertEquals(path + " {} []", route(router, Methods.GET, path));
+        }
+
+        assertEquals("404", route(router, Methods.GET, "/BBAa"));
+        assertEquals("405", route(router, Methods.POST, "/BB"));
+    }
+
+    @Test
+    public void collidingStaticRoutesMatchLikeRoutingHandler() throws Exception
+    {
+
+        RoutingHandler expected = collidingRoutes(routes(new RoutingHandler()));
+
+        ProteusRoutingHandler actual = collidingRoutes(routes(new ProteusRoutingHandler()));
+
+        assertTrue(actual.compile());
+        assertEquals(9, actual.getCompiledRouter().getStaticRouteCount());
+
+        for (HttpString method : new HttpString[]{Methods.GET, Methods.POST, Methods.DELETE})
+        {
+            for (String path : PATHS)
+            {
+                assertEquals(method + " " + path, route(expected, method, path), route(actual, method, path));
+            }
+
+            for (String path : new String[]{"/Aa", "/BB", "/Aa/", "/BB/"})
+            {
+                assertEquals(method + " " + path, route(expected, method, path), route(actual, method, path));
+            }
+        }
+    }
+
+    @Test
+    public void routesAddedAfterCompilation() throws Exception
+    {
+
+        ProteusRoutingHandler router = routes(new ProteusRoutingHandler());
+
+        router.compile();
+
+        ProteusRoutingHandler other = new ProteusRoutingHandler();
+
+        other.add(Methods.GET, "/late/{name}", exchange -> exchange.putAttachment(ROUTE, "late"));
+
+        router.addAll(other);
+
+        assertEquals("late {name=n} [n]", route(router, Methods.GET, "/late/n"));
+        assertEquals(TEMPLATES.length + 3, router.getCompiledRouter().getRouteCount());
+    }
+
+    @Test
+    public void updatesArePublishedAsOneSnapshot() throws Exception
+    {
+
+        ProteusRoutingHandler router = routes(new ProteusRoutingHandler());
+
+        router.compile();
+
+        RadixTreeRouter snapshot = router.getCompiledRouter();
+
+        router.update(r -> {
+
+            r.remove(Methods.GET, "/s/static");
+            r.add(Methods.GET, "/s/replaced", exchange -> exchange.putAttachment(ROUTE, "/s/replaced"));
+
+            assertTrue(router.getCompiledRouter() == snapshot);
+        });
+
+        assertEquals("/s/* {*=static} [static]", route(router, Methods.GET, "/s/static"));
+        assertEquals("/s/replaced {} []", route(router, Methods.GET, "/s/replaced"));
+        assertEquals("/s/static {} []", route(snapshot, Methods.GET, "/s/static"));
+
+        router.setEnabled(Methods.POST, "/a/b", false);
+
+        assertEquals("POST /a/{name} {name=b} [b]", route(router, Methods.POST, "/a/b"));
+
+        router.setEnabled(Methods.GET, "/v1/user", false);
+
+        assertEquals("404", route(router, Methods.GET, "/v1/user"));
+
+        router.setEnabled(Methods.GET, "/v1/user", true);
+
+        assertEquals("/v1/user {} []", route(router, Methods.GET, "/v1/user"));
+    }
+
+    @Test
+    public void unsupportedTemplatesAreRoutedByRoutingHandler() throws Exception
+    {
+
+        ProteusRoutingHandler router = routes(new ProteusRoutingHandler());
+
+        router.add(Methods.GET, "/w/*/k", exchange -> exchange.putAttachment(ROUTE, "/w/*/k"));
+
+        router.compile();
+
+        assertNull(router.getCompiledRouter());
+        assertNotNull(route(router, Methods.GET, "/w/1/k"));
+    }
+
+    @Test
+    public void compilationIsRetriedOnceUnsupportedTemplatesAreRemoved() throws Exception
+    {
+
+        ProteusRoutingHandler router = routes(new ProteusRoutingHandler());
+
+        router.add(Methods.GET, "/w/*/k", exchange -> exchange.putAttachment(ROUTE, "/w/*/k"));
+
+        router.compile();
+
+        router.remove("/w/*/k");
+
+        assertNotNull(router.getCompiledRouter());
+        assertEquals("/a/{id} {id=7} [7]", route(router, Methods.GET, "/a/7"));
+    }
+
+    @Test
+    public void routesOfPlainRoutingHandlersAreRoutedByRoutingHandler() throws Exception
+    {
+
+        ProteusRoutingHandler router = new ProteusRoutingHandler();
+
+        router.setFallbackHandler(exchange -> exchange.putAttachment(ROUTE, "404"));
+        router.setInvalidMethodHandler(exchange -> exchange.putAttachment(ROUTE, "405"));
+
+        router.compile();
+
+        RoutingHandler plain = routes(new RoutingHandler());
+
+        router.addAll(plain);
+
+        assertNull(router.getCompiledRouter());
+        assertFalse(router.compile());
+
+        for (HttpString method : new HttpString[]{Methods.GET, Methods.POST, Methods.DELETE})
+        {
+            for (String path : PATHS)
+            {
+                assertEquals(method + " " + path, route(plain, method, path), route(router, method, path));
+            }
+        }
+    }
+
+    @Test
+    public void requestsRoutedDuringUpdatesSeeWholeBatches() throws Exception
+    {
+
+        for (boolean compiled : new boolean[]{false, true})
+        {
+            ProteusRoutingHandler router = routes(new ProteusRoutingHandler());
+
+            if (compiled)
+            {
+                router.compile();
+            }
+
+            AtomicBoolean updating = new AtomicBoolean(true);
+
+            AtomicReference<String> failure = new AtomicReference<>();
+
+            Thread reader = new Thread(() -> {
+
+                try
+                {
+                    while (updating.get() && failure.get() == null)
+                    {
+                        String route = route(router, Methods.GET, "/v1/user");
+
+                        if (!"/v1/user {} []".equals(route))
+                        {
+                            failure.set(route);
+                        }
+                    }
+
+                } catch (Exception e)
+                {
+                    failure.set(e.toString());
+                }
+            });
+
+            reader.start();
+
+            try
+            {
+                for (int i = 0; i < 2000 && failure.get() == null; i++)
+                {
+                    router.update(r -> {
+
+                        r.remove(Methods.GET, "/v1/user");
+                        r.add(Methods.GET, "/v1/user", exchange -> exchange.putAttachment(ROUTE, "/v1/user"));
+                    });
+                }
+
+            } finally
+            {
+                updating.set(false);
+
+                reader.join();
+            }
+
+            assertNull("compiled=" + compiled, failure.get());
+            assertEquals(compiled, router.getCompiledRouter() != null);
+        }
+    }
+
+    private static <T extends RoutingHandler> T routes(T router)
+    {
+
+        router.setFallbackHandler(exchange -> exchange.putAttachment(ROUTE, "404"));
+        router.setInvalidMethodHandler(exchange -> exchange.putAttachment(ROUTE, "405"));
+
+        for (String template : TEMPLATES)
+        {
+            router.add(Methods.GET, template, exchange -> exchange.putAttachment(ROUTE, template));
+        }
+
+        router.add(Methods.POST, "/a/{name}", exchange -> exchange.putAttachment(ROUTE, "POST /a/{name}"));
+        router.add(Methods.POST, "/a/b", exchange -> exchange.putAttachment(ROUTE, "POST /a/b"));
+
+        return router;
+    }
+
+    private static <T extends RoutingHandler> T collidingRoutes(T router)
+    {
+
+        for (String template : new String[]{"/Aa", "/BB"})
+        {
+            router.add(Methods.GET, template, exchange -> exchange.putAttachment(ROUTE, template));
+        }
+
+        return router;
+    }
+
+    private static String route(HttpHandler router, HttpString method, String path) throws Exception
+    {
+
+        HttpServerExchange exchange = new HttpServerExchange(null);
+
+        exchange.setRequestMethod(method);
+        exchange.setRelativePath(path);
+
+        router.handleRequest(exchange);
+
+        String route = exchange.getAttachment(ROUTE);
+
+        PathTemplateMatch match = exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY);
+
+        if (match == null)
+        {
+            return route;
+        }
+
+        Map<String, String> queryParameters = new TreeMap<>();
+
+        for (Map.Entry<String, Deque<String>> entry : exchange.getQueryParameters().entrySet())
+        {
+            queryParameters.put(entry.getKey(), String.join(",", entry.getValue()));
+        }
+
+        return route + " " + new TreeMap<>(match.getParameters()) + " " + queryParameters.values();
+    }
+
+}
@@ -0,0 +1,154 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.undertow.server.RoutingHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteSupplierCacheTest
+{
+
+    private static final String SOURCE = "class CachedRoutes {}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    private Map<String, byte[]> classFiles;
+
+    @Before
+    public void setUp() throws Exception
+    {
+
+        directory = folder.getRoot().toPath().resolve("handlers");
+
+        try (InputStream inputStream = CachedRoutes.class.getResourceAsStream("/" + CachedRoutes.class.getName().replace('.', '/') + ".class"))
+        {
+            assertNotNull(inputStream);
+
+            classFiles = Map.of(CachedRoutes.class.getName(), inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void storedEntriesAreLoaded() throws Exception
+    {
+
+        RouteSupplierCache cache = new RouteSupplierCache(directory, 8, "1");
+
+        String key = cache.key(CachedRoutes.class, SOURCE);
+
+        assertNull(cache.load(key, CachedRoutes.class.getName(), CachedRoutes.class));
+
+        cache.store(key, classFiles);
+
+        Class<? extends Supplier<RoutingHandler>> loaded = cache.load(key, CachedRoutes.class.getName(), CachedRoutes.class);
+
+        assertNotNull(loaded);
+        assertEquals(CachedRoutes.class.getName(), loaded.getName());
+        assertNotEquals(CachedRoutes.class, loaded);
+
+        assertNull(cache.load(cache.key(CachedRoutes.class, SOURCE + " "), CachedRoutes.class.getName(), CachedRoutes.class));
+
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+        {
+            assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory));
+        }
+    }
+
+    @Test
+    public void corruptEntriesAreDeleted() throws Exception
+    {
+
+        RouteSupplierCache cache = new RouteSupplierCache(directory, 8, "1");
+
+        String key = cache.key(CachedRoutes.class, SOURCE);
+
+        cache.store(key, classFiles);
+
+        Path classFile = directory.resolve(key).resolve(CachedRoutes.class.getName().replace('.', '/') + ".class");
+
+        byte[] bytes = Files.readAllBytes(classFile);
+
+        bytes[bytes.length - 1] ^= 1;
+
+        Files.write(classFile, bytes);
+
+        assertNull(cache.load(key, CachedRoutes.class.getName(), CachedRoutes.class));
+        assertFalse(Files.exists(directory.resolve(key)));
+    }
+
+    @Test
+    public void entriesOfAnotherVersionAreNotLoaded() throws Exception
+    {
+
+        RouteSupplierCache cache = new RouteSupplierCache(directory, 8, "1");
+
+        String key = cache.key(CachedRoutes.class, SOURCE);
+
+        cache.store(key, classFiles);
+
+        RouteSupplierCache upgraded = new RouteSupplierCache(directory, 8, "2");
+
+        String upgradedKey = upgraded.key(CachedRoutes.class, SOURCE);
+
+        assertNotEquals(key, upgradedKey);
+        assertNull(upgraded.load(upgradedKey, CachedRoutes.class.getName(), CachedRoutes.class));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception
+    {
+
+        RouteSupplierCache cache = new RouteSupplierCache(directory, 2, "1");
+
+        String[] keys = new String[3];
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = cache.key(CachedRoutes.class, SOURCE + i);
+
+            cache.store(keys[i], classFiles);
+
+            Files.setLastModifiedTime(directory.resolve(keys[i]), FileTime.fromMillis(1000L * i));
+        }
+
+        assertFalse(Files.exists(directory.resolve(keys[0])));
+
+        assertNotNull(cache.load(keys[1], CachedRoutes.class.getName(), CachedRoutes.class));
+
+        cache.store(cache.key(CachedRoutes.class, SOURCE + 3), classFiles);
+
+        assertTrue(Files.exists(directory.resolve(keys[1])));
+        assertFalse(Files.exists(directory.resolve(keys[2])));
+    }
+
+    public static class CachedRoutes implements Supplier<RoutingHandler>
+    {
+
+        @Override
+        public RoutingHandler get()
+        {
+
+            return new ProteusRoutingHandler();
+        }
+    }
+
+}
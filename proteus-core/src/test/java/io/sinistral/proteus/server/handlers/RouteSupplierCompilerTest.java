@@ -0,0 +1,60 @@
+package io.sinistral.proteus.server.handlers;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteSupplierCompilerTest
+{
+
+    private static String source(String simpleName, String body)
+    {
+
+        return "package compiled;\n"
+               + "public class " + simpleName + " implements java.util.function.Supplier<io.undertow.server.RoutingHandler> {\n"
+               + "    public io.undertow.server.RoutingHandler get() { " + body + " }\n"
+               + "}\n";
+    }
+
+    @Test
+    public void sourcesAreCompiledInOneBatch()
+    {
+
+        Map<String, String> sources = new LinkedHashMap<>();
+
+        sources.put("compiled.FirstRoutes", source("FirstRoutes", "return new io.undertow.server.RoutingHandler();"));
+        sources.put("compiled.SecondRoutes", source("SecondRoutes", "return new io.undertow.server.RoutingHandler();"));
+
+        RouteSupplierCompiler.Result result = new RouteSupplierCompiler(getClass().getClassLoader()).compile(sources);
+
+        assertEquals(sources.keySet(), result.getClasses().keySet());
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void failingSourcesDoNotFailTheBatch() throws Exception
+    {
+
+        Map<String, String> sources = new LinkedHashMap<>();
+
+        sources.put("compiled.ValidRoutes", source("ValidRoutes", "return new io.undertow.server.RoutingHandler();"));
+        sources.put("compiled.InvalidRoutes", source("InvalidRoutes", "return missing();"));
+        sources.put("compiled.OtherRoutes", source("OtherRoutes", "return new io.undertow.server.RoutingHandler();"));
+
+        RouteSupplierCompiler.Result result = new RouteSupplierCompiler(getClass().getClassLoader()).compile(sources);
+
+        assertEquals(Set.of("compiled.ValidRoutes", "compiled.OtherRoutes"), result.getClasses().keySet());
+        assertEquals(Set.of("compiled.InvalidRoutes"), result.getFailures().keySet());
+        assertTrue(result.getFailures().get("compiled.InvalidRoutes").contains("missing"));
+
+        assertNotNull(result.getClasses().get("compiled.ValidRoutes").getDeclaredConstructor().newInstance().get());
+        assertEquals(1, result.getClassFiles().get("compiled.OtherRoutes").size());
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.sinistral.proteus.server.handlers;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.Methods;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares request routing by {@link RoutingHandler} with the compiled {@link RadixTreeRouter} of a {@link ProteusRoutingHandler}
+ * for 1,000 routes spread over 100 resources, each with static, single and nested parameter templates for several methods.
+ * <p>
+ * Static templates resolve from the perfect hash table of the compiled router, paths with parameters and paths that match
+ * no template go straight to the tree.
+ * <p>
+ * Run {@link #main(String[])} after {@code mvn test-compile}, with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark
+{
+
+    private static final HttpHandler NO_OP = exchange -> {
+    };
+
+    @Param({"/v1/resource42/items", "/v1/resource42/items/1234", "/v1/resource87/items/1234/children/5678", "/v1/resource87/missing"})
+    private String path;
+
+    private RoutingHandler routingHandler;
+
+    private ProteusRoutingHandler compiledHandler;
+
+    private HttpServerExchange exchange;
+
+    @Setup
+    public void setup()
+    {
+
+        routingHandler = routes(new RoutingHandler());
+
+        compiledHandler = routes(new ProteusRoutingHandler());
+        compiledHandler.compile();
+
+        exchange = new HttpServerExchange(null);
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setRelativePath(path);
+    }
+
+    @Benchmark
+    public HttpServerExchange routingHandler() throws Exception
+    {
+
+        exchange.getQueryParameters().clear();
+
+        routingHandler.handleRequest(exchange);
+
+        return exchange;
+    }
+
+    @Benchmark
+    public HttpServerExchange radixTreeRouter() throws Exception
+    {
+
+        exchange.getQueryParameters().clear();
+
+        compiledHandler.handleRequest(exchange);
+
+        return exchange;
+    }
+
+    private static <T extends RoutingHandler> T routes(T router)
+    {
+
+        router.setFallbackHandler(NO_OP);
+        router.setInvalidMethodHandler(NO_OP);
+
+        for (int i = 0; i < 100; i++)
+        {
+            final String base = "/v1/resource" + i;
+
+            router.add(Methods.GET, base + "/items", NO_OP);
+            router.add(Methods.POST, base + "/items", NO_OP);
+            router.add(Methods.GET, base + "/items/{id}", NO_OP);
+            router.add(Methods.PUT, base + "/items/{id}", NO_OP);
+            router.add(Methods.DELETE, base + "/items/{id}", NO_OP);
+            router.add(Methods.GET, base + "/items/{id}/children", NO_OP);
+            router.add(Methods.GET, base + "/items/{id}/children/{childId}", NO_OP);
+            router.add(Methods.GET, base + "/search", NO_OP);
+            router.add(Methods.GET, base + "/stats/daily", NO_OP);
+            router.add(Methods.GET, base + "/stats/monthly", NO_OP);
+        }
+
+        return router;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+
+        new Runner(new OptionsBuilder().include(RouterBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+
+}
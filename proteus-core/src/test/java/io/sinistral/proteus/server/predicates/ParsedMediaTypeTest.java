@@ -0,0 +1,113 @@
+package io.sinistral.proteus.server.predicates;
+
+import io.sinistral.proteus.protocol.MediaType;
+import io.undertow.attribute.ExchangeAttributes;
+import io.undertow.predicate.Predicate;
+import io.undertow.predicate.Predicates;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParsedMediaTypeTest
+{
+
+    private static final String[] VALUES = {null, "", "application/json", "application/json; charset=UTF-8", "text/json", "application/x-javascript", "application/json, text/plain", "application/xml", "text/xml;q=0.9", "application/xhtml+xml", "text/html", "text/html; charset=utf-8", "text/plain", "text/plain, */*", "*/*", "application/octet-stream", "multipart/form-data; boundary=abc", "application/x-www-form-urlencoded", "APPLICATION/JSON", "image/png"};
+
+    @Test
+    public void matchesRegexPredicates()
+    {
+
+        for (String value : VALUES)
+        {
+            HttpServerExchange exchange = exchange(Headers.CONTENT_TYPE, value);
+
+            assertEquals(value, Predicates.regex(ExchangeAttributes.requestHeader(Headers.CONTENT_TYPE), ServerPredicates.JSON_REGEX).resolve(exchange), ServerPredicates.JSON_PREDICATE.resolve(exchange));
+            assertEquals(value, Predicates.regex(ExchangeAttributes.requestHeader(Headers.CONTENT_TYPE), ServerPredicates.XML_REGEX).resolve(exchange), ServerPredicates.XML_PREDICATE.resolve(exchange));
+            assertEquals(value, Predicates.regex(ExchangeAttributes.requestHeader(Headers.CONTENT_TYPE), ServerPredicates.HTML_REGEX).resolve(exchange), ServerPredicates.HTML_PREDICATE.resolve(exchange));
+            assertEquals(value, Predicates.contains(ExchangeAttributes.requestHeader(Headers.CONTENT_TYPE), "multipart/form-data").resolve(exchange), ServerPredicates.MULTIPART_FORM_PREDICATE.resolve(exchange));
+
+            exchange = exchange(Headers.ACCEPT, value);
+
+            assertEquals(value, Predicates.regex(ExchangeAttributes.requestHeader(Headers.ACCEPT), ServerPredicates.JSON_REGEX).resolve(exchange), ServerPredicates.ACCEPT_JSON_PREDICATE.resolve(exchange));
+            assertEquals(value, Predicates.regex(ExchangeAttributes.requestHeader(Headers.ACCEPT), ServerPredicates.TEXT_PLAIN_REGEX).resolve(exchange), ServerPredicates.ACCEPT_TEXT_PREDICATE.resolve(exchange));
+            assertEquals(value, accept(ExchangeAttributes.requestHeader(Headers.ACCEPT).readAttribute(exchange)), ServerPredicates.ACCEPT_XML_EXCLUSIVE_PREDICATE.resolve(exchange));
+        }
+    }
+
+    @Test
+    public void internsValues()
+    {
+
+        assertSame(ParsedMediaType.of("application/json; charset=UTF-8"), ParsedMediaType.of("application/json; charset=UTF-8"));
+        assertSame(MediaType.APPLICATION_JSON, ParsedMediaType.of("application/json; charset=UTF-8").mediaType());
+        assertEquals("image/x-custom", ParsedMediaType.of("image/x-custom, */*").mediaType().contentType());
+        assertNull(ParsedMediaType.of(null).mediaType());
+    }
+
+    @Test
+    public void cachesNewValuesAfterManyBoundaries()
+    {
+
+        for (int i = 0; i <= ParsedMediaType.MAXIMUM_CACHE_SIZE * 2; i++)
+        {
+            final String value = "multipart/form-data; boundary=----" + i;
+
+            final ParsedMediaType parsed = ParsedMediaType.of(value);
+
+            assertEquals(value, parsed.value());
+            assertTrue(parsed.isMultipartForm());
+            assertSame(MediaType.MULTIPART_FORM_DATA, parsed.mediaType());
+        }
+
+        assertSame(ParsedMediaType.of("application/vnd.boundaries+json"), ParsedMediaType.of("application/vnd.boundaries+json"));
+    }
+
+    @Test
+    public void evictsOldValues()
+    {
+
+        for (int i = 0; i <= ParsedMediaType.MAXIMUM_CACHE_SIZE * 2; i++)
+        {
+            ParsedMediaType.of("application/vnd.evicted-" + i + "+json");
+        }
+
+        assertSame(ParsedMediaType.of("application/vnd.evictions+json"), ParsedMediaType.of("application/vnd.evictions+json"));
+    }
+
+    @Test
+    public void removesBoundaryValues()
+    {
+
+        assertEquals("multipart/form-data; boundary=", ParsedMediaType.withoutBoundary("multipart/form-data; boundary=abc"));
+        assertEquals("multipart/form-data;BOUNDARY=; charset=utf-8", ParsedMediaType.withoutBoundary("multipart/form-data;BOUNDARY=\"a;b\"; charset=utf-8"));
+        assertEquals("multipart/mixed; charset=utf-8", ParsedMediaType.withoutBoundary("multipart/mixed; charset=utf-8"));
+    }
+
+    private static boolean accept(String value)
+    {
+
+        Predicate xml = Predicates.regex(ExchangeAttributes.requestHeader(Headers.ACCEPT), ServerPredicates.XML_REGEX);
+
+        return xml.resolve(exchange(Headers.ACCEPT, value)) && (value == null || !value.contains("*/*"));
+    }
+
+    private static HttpServerExchange exchange(HttpString header, String value)
+    {
+
+        HttpServerExchange exchange = new HttpServerExchange(null);
+
+        if (value != null)
+        {
+            exchange.getRequestHeaders().put(header, value);
+        }
+
+        return exchange;
+    }
+
+}
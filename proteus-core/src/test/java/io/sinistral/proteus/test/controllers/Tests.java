@@ -7,19 +7,24 @@ import static io.sinistral.proteus.server.ServerResponse.response;
 import static io.sinistral.proteus.test.wrappers.TestWrapper.DEBUG_TEST_KEY;
 
 import java.io.File;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -46,8 +51,11 @@ import com.google.inject.Singleton;
 import io.sinistral.proteus.annotations.Blocking;
 import io.sinistral.proteus.annotations.Chain;
 import io.sinistral.proteus.annotations.Debug;
+import io.sinistral.proteus.annotations.MaxBodySize;
+import io.sinistral.proteus.annotations.SSE;
 import io.sinistral.proteus.server.ServerRequest;
 import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerSentEvent;
 import io.sinistral.proteus.server.exceptions.ServerException;
 import io.sinistral.proteus.test.models.User;
 
@@ -189,6 +197,21 @@ public class Tests
 		return CompletableFuture.completedFuture(map);
 	}
 
+	@GET
+	@Path("response/future/delayed")
+	public CompletableFuture<Map<String,String>> responseFutureDelayed( ServerRequest request )
+	{
+		return CompletableFuture.supplyAsync(() -> Map.of("message", "success"), CompletableFuture.delayedExecutor(50, java.util.concurrent.TimeUnit.MILLISECONDS));
+	}
+
+	@GET
+	@Path("response/future/delayed/blocking")
+	@Blocking
+	public CompletableFuture<ResponseThread> responseFutureDelayedBlocking( ServerRequest request )
+	{
+		return CompletableFuture.supplyAsync(ResponseThread::new, CompletableFuture.delayedExecutor(50, java.util.concurrent.TimeUnit.MILLISECONDS));
+	}
+
 	@GET
 	@Path("response/map")
 	public ServerResponse<Map<String,String>> futureMap( ServerRequest request )
@@ -196,6 +219,20 @@ public class Tests
 		Map<String,String> map = ImmutableMap.of("message", "success");
 		return  response( map ).applicationJson();
 	}
+
+	@GET
+	@Path("response/large")
+	public ServerResponse<List<String>> responseLarge( ServerRequest request, @QueryParam("count") Integer count )
+	{
+		List<String> items = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			items.add(String.format("item-%08d-%s", i, "x".repeat(48)));
+		}
+
+		return response( items ).applicationJson();
+	}
 	
 	@POST
 	@Debug
@@ -417,6 +454,194 @@ public class Tests
 
 	}
 	
+	@POST
+	@Path("limited/json")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Consumes(MediaType.APPLICATION_JSON)
+	@MaxBodySize(1024)
+	public ServerResponse<JsonNode> limitedJson(JsonNode node) throws Exception
+	{
+		return response(node).applicationJson().ok();
+	}
+
+	@GET
+	@Path("response/large")
+	@Produces(MediaType.APPLICATION_JSON)
+	public ServerResponse<List<Long>> responseLarge(@QueryParam("count") Integer count) throws Exception
+	{
+		return response(java.util.stream.LongStream.range(0, count).boxed().collect(java.util.stream.Collectors.toList())).applicationJson().ok();
+	}
+
+	@GET
+	@Path("response/large/blocking")
+	@Blocking
+	@Produces(MediaType.APPLICATION_JSON)
+	public ServerResponse<List<Long>> responseLargeBlocking(@QueryParam("count") Integer count) throws Exception
+	{
+		return response(java.util.stream.LongStream.range(0, count).boxed().collect(java.util.stream.Collectors.toList())).applicationJson().ok();
+	}
+
+	@GET
+	@Path("response/stream")
+	@Produces({MediaType.APPLICATION_JSON, "application/x-ndjson"})
+	public java.util.stream.Stream<Long> responseStream(@QueryParam("count") Integer count) throws Exception
+	{
+		return java.util.stream.LongStream.range(0, count).boxed();
+	}
+
+	@GET
+	@Path("response/iterator")
+	@Blocking
+	@Produces(MediaType.APPLICATION_JSON)
+	public java.util.Iterator<Long> responseIterator(@QueryParam("count") Integer count) throws Exception
+	{
+		return java.util.stream.LongStream.range(0, count).boxed().iterator();
+	}
+
+	@GET
+	@Path("response/publisher")
+	@Produces({MediaType.APPLICATION_JSON, "application/x-ndjson"})
+	public Flow.Publisher<Long> responsePublisher(@QueryParam("count") Integer count) throws Exception
+	{
+		return publisher(0, count, Long::valueOf);
+	}
+
+	@GET
+	@Path("events")
+	@SSE
+	public Flow.Publisher<ServerSentEvent<Map<String, Long>>> events(@HeaderParam("Last-Event-ID") Optional<String> lastEventId, @QueryParam("count") Integer count) throws Exception
+	{
+		long start = lastEventId.map(id -> Long.parseLong(id) + 1).orElse(0L);
+
+		return publisher(start, start + count, i -> ServerSentEvent.of(Map.of("value", i)).id(String.valueOf(i)).event("tick"));
+	}
+
+	private static <T> Flow.Publisher<T> publisher(long start, long end, java.util.function.LongFunction<T> element)
+	{
+		return subscriber -> subscriber.onSubscribe(new Flow.Subscription()
+		{
+			private long next = start;
+
+			private boolean done;
+
+			@Override
+			public synchronized void request(long n)
+			{
+				while (!done && n-- > 0 && next < end)
+				{
+					subscriber.onNext(element.apply(next++));
+				}
+
+				if (!done && next == end)
+				{
+					done = true;
+					subscriber.onComplete();
+				}
+			}
+
+			@Override
+			public synchronized void cancel()
+			{
+				done = true;
+			}
+		});
+	}
+
+	@POST
+	@Path("upload/stream/digest")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Consumes("*/*")
+	public ServerResponse<Map<String,String>> uploadStreamDigest(InputStream body) throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		byte[] chunk = new byte[8192];
+
+		int read;
+
+		while ((read = body.read(chunk)) != -1)
+		{
+			digest.update(chunk, 0, read);
+		}
+
+		return response(Map.of("sha256", hex(digest.digest()))).applicationJson().ok();
+	}
+
+	@POST
+	@Path("upload/channel/digest")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Consumes("*/*")
+	public ServerResponse<Map<String,String>> uploadChannelDigest(ReadableByteChannel body) throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		ByteBuffer chunk = ByteBuffer.allocateDirect(8192);
+
+		while (body.read(chunk) != -1)
+		{
+			digest.update(chunk.flip());
+			chunk.clear();
+		}
+
+		return response(Map.of("sha256", hex(digest.digest()))).applicationJson().ok();
+	}
+
+	@POST
+	@Path("upload/publisher/digest")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Consumes("*/*")
+	public CompletableFuture<ServerResponse<Map<String,String>>> uploadPublisherDigest(Flow.Publisher<ByteBuffer> body) throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		CompletableFuture<ServerResponse<Map<String,String>>> future = new CompletableFuture<>();
+
+		body.subscribe(new Flow.Subscriber<ByteBuffer>()
+		{
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription)
+			{
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(ByteBuffer chunk)
+			{
+				digest.update(chunk);
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable throwable)
+			{
+				future.completeExceptionally(throwable);
+			}
+
+			@Override
+			public void onComplete()
+			{
+				future.complete(response(Map.of("sha256", hex(digest.digest()))).applicationJson().ok());
+			}
+		});
+
+		return future;
+	}
+
+	private static String hex(byte[] bytes)
+	{
+		StringBuilder sb = new StringBuilder();
+
+		for (byte b : bytes)
+		{
+			sb.append(String.format("%02x", b));
+		}
+
+		return sb.toString();
+	}
+
 	@POST
 	@Path("response/file")
 	@Produces(MediaType.APPLICATION_OCTET_STREAM) 
@@ -527,6 +752,14 @@ public class Tests
 		return response(param).textPlain();
 	}
 
+	@GET
+	@Path("response/params/primitive/{id}")
+	@Produces(MediaType.TEXT_PLAIN)
+	public ServerResponse<ByteBuffer> primitiveParamsEndpoint(ServerRequest request, @PathParam("id") long id, @QueryParam("count") int count, @QueryParam("ratio") double ratio, @QueryParam("enabled") boolean enabled) {
+
+		return response(id + ":" + count + ":" + ratio + ":" + enabled).textPlain();
+	}
+
 
 	@GET
 	@Path("response/debug")
@@ -1094,5 +1327,16 @@ public class Tests
 
 	}
 
+	/**
+	 * Names the thread it is serialized on
+	 */
+	public static class ResponseThread
+	{
+		public String getName()
+		{
+			return Thread.currentThread().getName();
+		}
+	}
+
 
 }
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -186,6 +187,127 @@ public class StandardEndpointsTest extends AbstractEndpointTest {
         }
     }
 
+    @Test
+    public void largeGenericBeanList()
+    {
+
+        List<Long> randomLongs = new ArrayList<>();
+
+        Random random = new Random();
+
+        // several MB, so the body arrives in many chunks
+        for (int i = 0; i < 200000; i++)
+        {
+            randomLongs.add(random.nextLong());
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        try
+        {
+
+            String body = mapper.writeValueAsString(randomLongs);
+
+            given().contentType(ContentType.JSON).accept(ContentType.JSON).body(body).post("v1/tests/generic/list/bean").then().statusCode(200).body(equalTo(body));
+
+        } catch (Exception e)
+        {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void maxBodySize() throws Exception
+    {
+
+        String small = "{\"value\":\"" + "a".repeat(100) + "\"}";
+
+        String large = "{\"value\":\"" + "a".repeat(2048) + "\"}";
+
+        given().contentType(ContentType.JSON).accept(ContentType.JSON).body(small).post("v1/tests/limited/json").then().statusCode(200).body(equalTo(small));
+
+        given().contentType(ContentType.JSON).accept(ContentType.JSON).body(large).post("v1/tests/limited/json").then().statusCode(413);
+
+        given().contentType(ContentType.JSON).accept(ContentType.JSON).body(new java.io.ByteArrayInputStream(large.getBytes())).post("v1/tests/limited/json").then().statusCode(413);
+    }
+
+    @Test
+    public void largeResponse()
+    {
+
+        for (String path : new String[]{"response/large", "response/large/blocking"})
+        {
+            for (int count : new int[]{10, 100000})
+            {
+                given().accept(ContentType.JSON).queryParam("count", count).get("v1/tests/" + path).then().statusCode(200).body("size()", equalTo(count)).body("[" + (count - 1) + "]", equalTo(count - 1));
+            }
+        }
+    }
+
+    @Test
+    public void streamedResponse()
+    {
+
+        for (String path : new String[]{"response/stream", "response/iterator", "response/publisher"})
+        {
+            for (int count : new int[]{0, 3, 100000})
+            {
+                given().accept(ContentType.JSON).queryParam("count", count).get("v1/tests/" + path).then().statusCode(200).contentType(ContentType.JSON).body("size()", equalTo(count));
+            }
+        }
+
+        given().accept(ContentType.JSON).queryParam("count", 3).get("v1/tests/response/publisher").then().statusCode(200).body(equalTo("[0,1,2]"));
+
+        for (String path : new String[]{"response/stream", "response/publisher"})
+        {
+            String body = given().accept("application/x-ndjson").queryParam("count", 100000).get("v1/tests/" + path).then().statusCode(200).contentType("application/x-ndjson").extract().asString();
+
+            String[] lines = body.split("\n");
+
+            assertThat(lines.length, equalTo(100000));
+            assertThat(lines[99999], equalTo("99999"));
+        }
+    }
+
+    @Test
+    public void serverSentEvents()
+    {
+
+        String body = given().accept("text/event-stream").queryParam("count", 3).get("v1/tests/events").then().statusCode(200).contentType(containsString("text/event-stream")).extract().asString();
+
+        assertThat(body, containsString("id:2\n"));
+        assertThat(body, containsString("event:tick\n"));
+        assertThat(body, containsString("data:{\"value\":2}\n"));
+        assertThat(body, not(containsString("id:3\n")));
+
+        body = given().accept("text/event-stream").header("Last-Event-ID", "2").queryParam("count", 3).get("v1/tests/events").then().statusCode(200).extract().asString();
+
+        assertThat(body, not(containsString("id:2\n")));
+        assertThat(body, containsString("data:{\"value\":5}\n"));
+    }
+
+    @Test
+    public void streamingUploadDigest() throws Exception
+    {
+
+        byte[] body = new byte[1024 * 1024 * 4];
+
+        new Random().nextBytes(body);
+
+        StringBuilder sha256 = new StringBuilder();
+
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(body))
+        {
+            sha256.append(String.format("%02x", b));
+        }
+
+        for (String source : new String[]{"stream", "channel", "publisher"})
+        {
+            given().contentType(ContentType.BINARY).accept(ContentType.JSON).body(body).post("v1/tests/upload/" + source + "/digest").then().statusCode(200).body("sha256", equalTo(sha256.toString()));
+        }
+    }
+
     @Test
     public void genericBeanMap()
     {
@@ -383,11 +505,27 @@ public class StandardEndpointsTest extends AbstractEndpointTest {
         given().accept(ContentType.JSON).when().get("v1/tests/response/map").then().statusCode(200).and().body("message", is("success"));
     }
 
+    @Test
+    public void responseLargeEntity()
+    {
+
+        final int count = 64 * 1024;
+
+        List<String> items = given().accept(ContentType.JSON).queryParam("count", count).when().get("v1/tests/response/large").then().statusCode(200).extract().jsonPath().getList("$", String.class);
+
+        assertThat(items.size(), is(count));
+        assertThat(items.get(count - 1), startsWith(String.format("item-%08d-", count - 1)));
+    }
+
     @Test
     public void responseFutureMap()
     {
 
         given().accept(ContentType.JSON).when().get("v1/tests/response/future/map").then().statusCode(200).and().body("message", is("success"));
+
+        given().accept(ContentType.JSON).when().get("v1/tests/response/future/delayed").then().statusCode(200).and().body("message", is("success"));
+
+        given().accept(ContentType.JSON).when().get("v1/tests/response/future/delayed/blocking").then().statusCode(200).and().body("name", containsString(" task-"));
     }
 
     @Test
@@ -426,6 +564,18 @@ public class StandardEndpointsTest extends AbstractEndpointTest {
 
     }
 
+    @Test
+    public void primitiveParams()
+    {
+
+        given().accept(ContentType.TEXT).queryParam("count", 7).queryParam("ratio", 0.5).queryParam("enabled", true).when().get("v1/tests/response/params/primitive/9000000000").then().statusCode(200).and().body(equalTo("9000000000:7:0.5:true"));
+
+        given().accept(ContentType.TEXT).queryParam("count", "seven").queryParam("ratio", 0.5).queryParam("enabled", true).when().get("v1/tests/response/params/primitive/1").then().statusCode(400);
+
+        given().accept(ContentType.TEXT).queryParam("ratio", 0.5).queryParam("enabled", true).when().get("v1/tests/response/params/primitive/1").then().statusCode(400);
+
+    }
+
 //	@Test
 //	public void regexPathParam()
 //	{
@@ -12,6 +12,7 @@ import io.sinistral.proteus.openapi.jaxrs2.Reader;
 import io.sinistral.proteus.openapi.jaxrs2.ServerModelResolver;
 import io.sinistral.proteus.openapi.jaxrs2.ServerParameterExtension;
 import io.sinistral.proteus.server.endpoints.EndpointInfo;
+import io.sinistral.proteus.server.handlers.ProteusRoutingHandler;
 import io.sinistral.proteus.services.DefaultService;
 import io.swagger.v3.core.util.Json;
 import io.swagger.v3.core.util.Yaml;
@@ -360,7 +361,7 @@ public class OpenAPIService extends DefaultService implements Supplier<RoutingHa
 
         FileResourceManager resourceManager = new FileResourceManager(this.resourcePath.toFile(), 1024);
 
-        RoutingHandler router = new RoutingHandler();
+        RoutingHandler router = new ProteusRoutingHandler();
 
         router.add(HttpMethod.GET, basePath, (HttpServerExchange exchange) ->
         {